@@ -2,12 +2,17 @@ package com.example.madgwick_filter;
 
 import android.Manifest;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -20,11 +25,14 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
 
 public class MainActivity extends AppCompatActivity implements SensorEventListener {
 
@@ -34,20 +42,63 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private Sensor accelerometer, gyroscope;
     private TextView tvQuaternion, tvAcceleration, tvState, tvDistance;
     private Button btnStart, btnStop, btnReset;
-    private boolean isRunning = false;
-    private MadgwickFilter madgwickFilter;
-    private MovementDetector movementDetector;
-    private DistanceCalculator distanceCalculator;
-    private FileWriter csvWriter;
-    private static final long SAMPLING_PERIOD_US = 100000; // 100ms = 10Hz
-    private static final float SAMPLING_FREQUENCY = 10f; // Hz
-    private static final long CSV_WRITE_INTERVAL_NS = 200000000; // 200ms
-    private static final long MOVEMENT_DETECTION_INTERVAL_NS = 200000000; // 200ms
-    private long lastMovementDetectionTime = 0;
-    private long lastCsvWriteTime = 0;
-    private long startTime = 0;
-    private float[] lastAcceleration = new float[3];
-    private float[] lastGyroscope = new float[3];
+    private volatile boolean isRunning = false;
+    private FusionProcessor fusionProcessor;
+    // 処理結果は出力先（UI・CSV・バイナリ記録）ごとのバッファを経由して別スレッドで配る
+    private FusionPipeline fusionPipeline;
+    private SinkBuffer csvSink;
+    private SinkBuffer sessionSink;
+    private static final int UI_SINK_CAPACITY = 4;
+    private static final int RECORDER_SINK_CAPACITY = 1024;
+
+    // 一時停止のたびに処理状態（姿勢・検出窓・積分窓・累積距離）を保存し、再作成時に復元する
+    private static final String STATE_FILE_NAME = "fusion_state.bin";
+    private static final int STATE_BUFFER_SIZE = 4096;
+    private final ByteBuffer stateBuffer = ByteBuffer.allocate(STATE_BUFFER_SIZE);
+    private volatile boolean saveStateRequested = false;
+    private volatile boolean restoreStateRequested = false;
+    // センサーの要求周期（SensorManager.SENSOR_DELAY_* またはマイクロ秒）。400Hz 以上になる端末では
+    // 処理が追いつかなくなったときに OverloadGovernor が出力 → 移動検出・距離積分の順に間引く（姿勢は全サンプル処理）
+    private static final int SAMPLING_PERIOD_US = SensorManager.SENSOR_DELAY_FASTEST;
+    private final OverloadGovernor overloadGovernor = new OverloadGovernor(SAMPLE_RING_CAPACITY);
+    private volatile long startTime = 0;
+    // 加速度とジャイロをタイムスタンプで 1 組にしてからフィルタへ渡す
+    private final SampleAligner sampleAligner = new SampleAligner();
+    // 処理スレッドで毎サンプル再利用する出力レコード
+    private final SessionRecord fused = new SessionRecord();
+
+    // センサーコールバック（センサースレッド）→ 処理スレッドの受け渡し
+    private static final int SAMPLE_RING_CAPACITY = 1024;
+    private static final long IDLE_PARK_NS = 5000000; // 5ms
+    private final SensorSampleRing sampleRing = new SensorSampleRing(SAMPLE_RING_CAPACITY);
+    // FIFO バッチ配信の最大遅延。UI 表示の遅れが目立たない程度に抑える。
+    // 同じ種類のイベントが続けて届くので、SampleAligner はこの 1 回分を種類ごとに貯めて組にする
+    private static final int MAX_REPORT_LATENCY_US = 100000; // 100ms
+    private static final int SAMPLE_BATCH_CAPACITY = 64;
+    private final SampleBatch sampleBatch = new SampleBatch(SAMPLE_BATCH_CAPACITY);
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+    private Thread processingThread;
+    private volatile boolean processing = false;
+    // UI スレッドからの要求は処理スレッド側で適用する
+    private volatile boolean resetRequested = false;
+    private volatile boolean resetDistanceRequested = false;
+    private volatile boolean dumpTraceRequested = false;
+
+    // 段ごとの処理時間・センサー時刻からの遅延・ドロップ数。デバッグビルドで有効にし、測定中は定期的にファイルへ書き出す
+    private static final long METRICS_DUMP_PERIOD_MS = 5000;
+    private FusionMetrics metrics;
+    private LatencyHistogram callbackTime;
+    private MetricsDumper metricsDumper;
+
+    // 毎サンプルのデバッグ出力はトレースリングに数値のまま記録し、測定終了・エラー時にまとめて logcat へ出す
+    private static final FusionTrace.Event TRACE_WORLD_ACCEL = FusionTrace.event(TAG, FusionTrace.DEBUG,
+            (x, y, z, d, moving) -> String.format("Adjusted World Accel: %.2f, %.2f, %.2f, Moving: %b",
+                    x, y, z, moving != 0));
+
+    // UI 更新は最新値のみを表示フレーム単位で反映する（0 = 毎フレーム）
+    private static final float UI_MAX_RATE_HZ = 0f;
+    private UiPublisher uiPublisher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,9 +109,38 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         initializeSensors();
         requestPermissions();
 
-        madgwickFilter = new MadgwickFilter();
-        movementDetector = new MovementDetector();
-        distanceCalculator = new DistanceCalculator();
+        FusionLog.setSink(Log::d);
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        FusionTrace.setLevel(debuggable ? FusionTrace.DEBUG : FusionTrace.INFO);
+        metrics = new FusionMetrics(SystemClock::elapsedRealtimeNanos);
+        metrics.setEnabled(debuggable);
+        callbackTime = metrics.histogram("sensor.callback");
+        metrics.gauge("ring.dropped", sampleRing::droppedCount);
+        metrics.gauge("ring.maxDepth", sampleRing::maxDepth);
+        metrics.gauge("aligner.unpaired", sampleAligner::getDiscardedCount);
+        // 姿勢フィルタは全レートで回し、移動検出・距離積分は既定の間隔で（間の世界座標加速度を平均して）動かす
+        fusionProcessor = FusionProcessor.withDefaultIntervals();
+        // SENSOR_DELAY_FASTEST の実レートは端末の最小間隔で決まる（組になるのは遅い方のセンサーの間隔）
+        if (accelerometer != null && gyroscope != null) {
+            int minDelayUs = Math.max(accelerometer.getMinDelay(), gyroscope.getMinDelay());
+            if (minDelayUs > 0) {
+                fusionProcessor.setFallbackSampleFrequency(1e6f / minDelayUs);
+            }
+        }
+        fusionProcessor.setMetrics(metrics);
+        fusionPipeline = new FusionPipeline(fusionProcessor);
+        fusionPipeline.setMetrics(metrics);
+        overloadGovernor.setMetrics(metrics);
+        // 段階の変化は端末ごとの処理能力の目安になるので常に残す
+        overloadGovernor.setListener((from, to, backlog) -> Log.i(TAG, "Overload level " + from + " -> " + to
+                + " (backlog=" + backlog + ", outputs 1/" + overloadGovernor.getOutputDecimation()
+                + ", analysis 1/" + overloadGovernor.getAnalysisDecimation() + ")"));
+        // UI は最新値だけを表示すればよいので、溜まったら古いものから捨てる
+        fusionPipeline.addSink("ui", record -> uiPublisher.publish(record.quaternion, record.worldAccel,
+                record.moving ? "歩行" : "静止", record.motion[6]), UI_SINK_CAPACITY, SinkBuffer.Policy.DROP_OLDEST);
+        loadState();
+
+        startProcessingThread();
 
         // アプリ起動時にセンサーリスナーを登録
         startSensorListening();
@@ -78,6 +158,8 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         btnStart.setOnClickListener(v -> startMeasurement());
         btnStop.setOnClickListener(v -> stopMeasurement());
         btnReset.setOnClickListener(v -> resetMeasurement());
+
+        uiPublisher = new UiPublisher(tvQuaternion, tvAcceleration, tvState, tvDistance, UI_MAX_RATE_HZ);
     }
 
     private void initializeSensors() {
@@ -101,8 +183,23 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
     private void startSensorListening() {
         if (sensorManager != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
-            sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+            if (sensorThread == null) {
+                // センサーイベントはメインルーパーではなく専用スレッドで受け取る
+                sensorThread = new HandlerThread("SensorThread", Process.THREAD_PRIORITY_URGENT_DISPLAY);
+                sensorThread.start();
+                sensorHandler = new Handler(sensorThread.getLooper());
+            }
+            registerSensor(accelerometer);
+            registerSensor(gyroscope);
+        }
+    }
+
+    private void registerSensor(Sensor sensor) {
+        if (sensor.getFifoMaxEventCount() > 0) {
+            // ハードウェア FIFO がある端末ではまとめて配信させ、ウェイクアップを減らす
+            sensorManager.registerListener(this, sensor, SAMPLING_PERIOD_US, MAX_REPORT_LATENCY_US, sensorHandler);
+        } else {
+            sensorManager.registerListener(this, sensor, SAMPLING_PERIOD_US, sensorHandler);
         }
     }
 
@@ -112,6 +209,120 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         }
     }
 
+    private void startProcessingThread() {
+        processing = true;
+        processingThread = new Thread(this::runProcessingLoop, "FusionThread");
+        processingThread.start();
+    }
+
+    private void stopProcessingThread() {
+        processing = false;
+        if (processingThread != null) {
+            LockSupport.unpark(processingThread);
+            try {
+                processingThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processingThread = null;
+        }
+        if (sensorThread != null) {
+            sensorThread.quitSafely();
+            sensorThread = null;
+            sensorHandler = null;
+        }
+    }
+
+    private void runProcessingLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+        SensorSample sample = new SensorSample();
+        while (processing) {
+            applyRequests();
+            // リングに溜まっている分（FIFO のバッチ配信ならまとめて届く）を組にしてから一度に処理する
+            while (!sampleBatch.isFull() && sampleRing.poll(sample)) {
+                if (sampleAligner.offer(sample)) {
+                    sampleBatch.add(sampleAligner.timestamp(), sampleAligner.accel(), sampleAligner.gyro());
+                }
+            }
+            if (sampleBatch.size() > 0) {
+                processBatch(sampleBatch);
+                sampleBatch.clear();
+                if (overloadGovernor.observe(sampleRing.depth(), SystemClock.elapsedRealtimeNanos())) {
+                    fusionPipeline.setOutputDecimation(overloadGovernor.getOutputDecimation());
+                    fusionProcessor.setAnalysisDecimation(overloadGovernor.getAnalysisDecimation());
+                }
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NS);
+            }
+        }
+        applyRequests(); // 停止直前の保存要求を取りこぼさない
+    }
+
+    // UI スレッドからのリセット・状態保存の要求を処理スレッドで適用する
+    private void applyRequests() {
+        if (restoreStateRequested) {
+            restoreStateRequested = false;
+            try {
+                fusionPipeline.restoreState(stateBuffer);
+            } catch (IOException e) {
+                Log.w(TAG, "保存済みの状態を復元できませんでした", e);
+            }
+        }
+        if (resetRequested) {
+            resetRequested = false;
+            fusionPipeline.reset();
+            sampleAligner.reset();
+        }
+        if (resetDistanceRequested) {
+            resetDistanceRequested = false;
+            fusionProcessor.resetDistance();
+        }
+        if (dumpTraceRequested) {
+            dumpTraceRequested = false;
+            dumpTrace();
+        }
+        if (saveStateRequested) {
+            saveStateRequested = false;
+            saveState();
+        }
+    }
+
+    // 処理スレッドで呼ぶ。書き込み途中で終了しても壊れないよう一時ファイルから置き換える
+    private void saveState() {
+        stateBuffer.clear();
+        fusionPipeline.saveState(stateBuffer);
+        stateBuffer.flip();
+        File file = new File(getFilesDir(), STATE_FILE_NAME);
+        File temp = new File(getFilesDir(), STATE_FILE_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(stateBuffer.array(), 0, stateBuffer.limit());
+        } catch (IOException e) {
+            Log.e(TAG, "状態の保存に失敗しました", e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "状態ファイルの置き換えに失敗しました");
+        }
+    }
+
+    // onCreate で呼ぶ（処理スレッドの開始前）。復元自体は処理スレッドで行う
+    private void loadState() {
+        File file = new File(getFilesDir(), STATE_FILE_NAME);
+        if (!file.isFile() || file.length() > STATE_BUFFER_SIZE) {
+            return;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            int length = in.read(stateBuffer.array(), 0, STATE_BUFFER_SIZE);
+            if (length > 0) {
+                stateBuffer.clear();
+                stateBuffer.limit(length);
+                restoreStateRequested = true;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "状態ファイルの読み込みに失敗しました", e);
+        }
+    }
+
     private void requestPermissions() {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
                 != PackageManager.PERMISSION_GRANTED) {
@@ -124,11 +335,12 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private void startMeasurement() {
         if (!isRunning) {
             createCsvFile();
+            // CSV の経過時間は SensorEvent.timestamp と同じ時間基準で求める
+            startTime = SystemClock.elapsedRealtimeNanos();
+            resetDistanceRequested = true; // 距離を0にリセット（処理スレッドで適用）
             isRunning = true;
-            startTime = System.nanoTime();
-            distanceCalculator.resetDistance(); // 距離を0にリセット
             startSensorListening();
-            updateUI(new float[4], new float[3], "静止", 0); // UIも0に更新
+            uiPublisher.publish(new float[4], new float[3], "静止", 0); // UIも0に更新
             Toast.makeText(this, "測定開始", Toast.LENGTH_SHORT).show();
         }
     }
@@ -136,148 +348,157 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private void stopMeasurement() {
         if (isRunning) {
             stopSensorListening();
-            closeCsvFile();
             isRunning = false;
+            closeCsvFile();
+            Log.i(TAG, "Sample ring: maxDepth=" + sampleRing.maxDepth() + ", dropped=" + sampleRing.droppedCount()
+                    + ", pairs=" + sampleAligner.getPairCount() + ", unpaired=" + sampleAligner.getDiscardedCount());
+            dumpTraceRequested = true; // 整形は処理スレッドで行う
+            LockSupport.unpark(processingThread);
             Toast.makeText(this, "測定終了", Toast.LENGTH_SHORT).show();
         }
     }
 
     private void resetMeasurement() {
         stopMeasurement();
-        madgwickFilter.reset();
-        movementDetector.reset();
-        distanceCalculator.reset();
-        updateUI(new float[4], new float[3], "静止", 0);
+        resetRequested = true;
+        uiPublisher.publish(new float[4], new float[3], "静止", 0);
         Toast.makeText(this, "リセット完了", Toast.LENGTH_SHORT).show();
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
-        try {
-            if (event.values == null || event.values.length < 3) {
-                Log.e(TAG, "Invalid sensor data received");
-                return;
-            }
+        // センサースレッドでは値をリングへコピーするだけにして、すぐに返す
+        if (event.values == null || event.values.length < 3) {
+            Log.e(TAG, "Invalid sensor data received");
+            return;
+        }
 
-            if (madgwickFilter == null || movementDetector == null || distanceCalculator == null) {
-                Log.e(TAG, "One or more required objects are null");
-                return;
-            }
+        int type;
+        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            type = SensorSample.TYPE_ACCELEROMETER;
+        } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+            type = SensorSample.TYPE_GYROSCOPE;
+        } else {
+            return;
+        }
 
-            long currentTime = System.nanoTime();
-            long elapsedTime = currentTime - startTime;
+        if (metrics.isEnabled()) {
+            long start = System.nanoTime();
+            sampleRing.offer(type, event.timestamp, event.values[0], event.values[1], event.values[2]);
+            LockSupport.unpark(processingThread);
+            callbackTime.record(System.nanoTime() - start);
+        } else {
+            sampleRing.offer(type, event.timestamp, event.values[0], event.values[1], event.values[2]);
+            LockSupport.unpark(processingThread);
+        }
+    }
 
-            if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-                System.arraycopy(event.values, 0, lastAcceleration, 0, 3);
-            } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
-                System.arraycopy(event.values, 0, lastGyroscope, 0, 3);
+    // 処理スレッドで呼ばれる。組にした加速度・ジャイロのバッチをまとめて処理し、各出力先へ配る
+    private void processBatch(SampleBatch batch) {
+        try {
+            if (fusionPipeline == null) {
+                Log.e(TAG, "One or more required objects are null");
+                return;
             }
 
-            madgwickFilter.update(lastAcceleration, lastGyroscope, SAMPLING_FREQUENCY);
-            float[] quaternion = madgwickFilter.getQuaternion();
-            float[] adjustedWorldAccel = madgwickFilter.getWorldAcceleration();
-
-            boolean isMoving = movementDetector.update(adjustedWorldAccel);
-            String state = isMoving ? "歩行" : "静止";
-
-            // デバッグログ
-            Log.d(TAG, String.format("Adjusted World Accel: %.2f, %.2f, %.2f, Moving: %b",
-                    adjustedWorldAccel[0], adjustedWorldAccel[1], adjustedWorldAccel[2], isMoving));
-
-            float[] motionData = distanceCalculator.calculateMotion(adjustedWorldAccel, isMoving, event.timestamp);
+            fusionPipeline.processBatch(batch);
 
-            updateUI(quaternion, adjustedWorldAccel, state, motionData[6]);
-
-            if (isRunning && currentTime - lastCsvWriteTime >= CSV_WRITE_INTERVAL_NS) {
-                writeToCsv(elapsedTime, lastAcceleration, lastGyroscope, quaternion, adjustedWorldAccel, state, motionData);
-                lastCsvWriteTime = currentTime;
+            if (FusionTrace.isEnabled(FusionTrace.DEBUG)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    FusionTrace.record(TRACE_WORLD_ACCEL, batch.worldAccel[i * 3], batch.worldAccel[i * 3 + 1],
+                            batch.worldAccel[i * 3 + 2], batch.moving[i] ? 1 : 0);
+                }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error in onSensorChanged", e);
-            if (isRunning) {
-                stopMeasurement();
-            }
-            Toast.makeText(this, "センサーデータの処理中にエラーが発生しました: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            Log.e(TAG, "Error in processBatch", e);
+            dumpTrace(); // エラー直前の経過を残す
+            runOnUiThread(() -> {
+                if (isRunning) {
+                    stopMeasurement();
+                }
+                Toast.makeText(this, "センサーデータの処理中にエラーが発生しました: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            });
         }
     }
 
-    private void updateUI(float[] quaternion, float[] adjustedWorldAccel, String state, float distance) {
-        runOnUiThread(() -> {
-            tvQuaternion.setText(String.format(Locale.getDefault(),
-                    "%.2f, %.2f, %.2f, %.2f", quaternion[0], quaternion[1], quaternion[2], quaternion[3]));
-            tvAcceleration.setText(String.format(Locale.getDefault(),
-                    "X=%.2f, Y=%.2f, Z=%.2f", adjustedWorldAccel[0], adjustedWorldAccel[1], adjustedWorldAccel[2]));
-            tvState.setText(state);
-            tvDistance.setText(String.format(Locale.getDefault(), "%.2f m", distance));
-        });
+    // 処理スレッドで呼ばれる
+    private void dumpTrace() {
+        int count = FusionTrace.dump(Log::d);
+        Log.i(TAG, "Trace: dumped=" + count + ", overwritten=" + FusionTrace.getOverwrittenCount());
     }
 
     private void createCsvFile() {
-        String fileName = "sensor_data_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) + ".csv";
-        File file = new File(getExternalFilesDir(null), fileName);
+        String baseName = "sensor_data_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        File file = new File(getExternalFilesDir(null), baseName + ".csv");
         try {
-            csvWriter = new FileWriter(file);
-            csvWriter.append("Timestamp,AccelX,AccelY,AccelZ,GyroX,GyroY,GyroZ,QuatW,QuatX,QuatY,QuatZ,WorldAccelX,WorldAccelY,WorldAccelZ,VelocityX,VelocityY,VelocityZ,PositionX,PositionY,PositionZ,Distance\n");
+            // リプレイで同じ dt を使えるよう、登録レートから決めた周波数も記録する
+            CsvRecorder recorder = new CsvRecorder(new FileOutputStream(file), CsvRecorder.DEFAULT_BUFFER_SIZE,
+                    fusionProcessor.getFallbackSampleFrequency());
+            csvSink = fusionPipeline.addSink("csv", new SampleSink() {
+                @Override
+                public void accept(SessionRecord record) {
+                    recorder.record(record.timestamp - startTime, record.accel, record.gyro, record.quaternion,
+                            record.worldAccel, record.motion);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    recorder.close();
+                    Log.i(TAG, "CSV rows: recorded=" + recorder.getRecordedRows() + ", dropped=" + recorder.getDroppedRows());
+                }
+            }, RECORDER_SINK_CAPACITY, SinkBuffer.Policy.DROP_NEWEST);
             Toast.makeText(this, "CSVファイルが作成されました: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
         } catch (IOException e) {
             Log.e(TAG, "CSVファイルの作成に失敗しました", e);
             Toast.makeText(this, "CSVファイルの作成に失敗しました: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         }
-    }
-
-    private void writeToCsv(long elapsedTime, float[] acceleration, float[] gyroscope, float[] quaternion, float[] adjustedWorldAccel, String state, float[] motionData) {
-        if (csvWriter == null) return;
 
+        // リプレイ用に同じ内容をバイナリ形式（.mgs）でも記録する
+        File sessionFile = new File(getExternalFilesDir(null), baseName + ".mgs");
         try {
-            StringBuilder sb = new StringBuilder();
-            sb.append(elapsedTime).append(",");
-
-            // 加速度計の値
-            for (float value : acceleration) {
-                sb.append(value).append(",");
-            }
-
-            // ジャイロスコープの値
-            for (float value : gyroscope) {
-                sb.append(value).append(",");
-            }
+            SessionFileWriter sessionWriter = new SessionFileWriter(sessionFile);
+            sessionWriter.setSampleFrequency(fusionProcessor.getFallbackSampleFrequency());
+            sessionSink = fusionPipeline.addSink("session", sessionWriter,
+                    RECORDER_SINK_CAPACITY, SinkBuffer.Policy.DROP_NEWEST);
+        } catch (IOException e) {
+            Log.e(TAG, "セッションファイルの作成に失敗しました", e);
+        }
 
-            // クォータニオン
-            for (float q : quaternion) {
-                sb.append(q).append(",");
+        if (metrics.isEnabled()) {
+            try {
+                metricsDumper = new MetricsDumper(metrics, new File(getExternalFilesDir(null), baseName + ".metrics.txt"),
+                        METRICS_DUMP_PERIOD_MS);
+            } catch (IOException e) {
+                Log.e(TAG, "メトリクスファイルの作成に失敗しました", e);
             }
+        }
+    }
 
-            // 調整済みワールド座標系の加速度
-            for (float wa : adjustedWorldAccel) {
-                sb.append(wa).append(",");
+    // 未書き込みの行をすべて書き出してから閉じる
+    private void closeCsvFile() {
+        csvSink = closeSink(csvSink);
+        sessionSink = closeSink(sessionSink);
+        if (metricsDumper != null) {
+            try {
+                metricsDumper.close();
+            } catch (IOException e) {
+                Log.e(TAG, "メトリクスファイルのクローズに失敗しました", e);
             }
-
-            // 速度 (3D)
-            sb.append(motionData[0]).append(",").append(motionData[1]).append(",").append(motionData[2]).append(",");
-
-            // 位置 (3D)
-            sb.append(motionData[3]).append(",").append(motionData[4]).append(",").append(motionData[5]).append(",");
-
-            // 総移動距離 (2D: x-y平面上)
-            sb.append(motionData[6]);
-
-            sb.append("\n");
-
-            csvWriter.write(sb.toString());
-        } catch (IOException e) {
-            Log.e(TAG, "CSVファイルへの書き込みに失敗しました", e);
+            metricsDumper = null;
         }
     }
 
-    private void closeCsvFile() {
-        if (csvWriter != null) {
+    private SinkBuffer closeSink(SinkBuffer sink) {
+        if (sink != null) {
             try {
-                csvWriter.flush();
-                csvWriter.close();
+                fusionPipeline.removeSink(sink);
+                Log.i(TAG, "Sink " + sink.getName() + ": delivered=" + sink.getDeliveredCount()
+                        + ", dropped=" + sink.getDroppedCount() + ", errors=" + sink.getErrorCount());
             } catch (IOException e) {
-                Log.e(TAG, "CSVファイルのクローズに失敗しました", e);
+                Log.e(TAG, "記録ファイルのクローズに失敗しました", e);
             }
         }
+        return null;
     }
 
     @Override
@@ -310,15 +531,23 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     protected void onPause() {
         super.onPause();
         stopSensorListening();
+        saveStateRequested = true;
+        LockSupport.unpark(processingThread);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         stopMeasurement();
+        stopSensorListening();
+        stopProcessingThread();
+        try {
+            fusionPipeline.close();
+        } catch (IOException e) {
+            Log.e(TAG, "出力先のクローズに失敗しました", e);
+        }
         sensorManager = null;
-        madgwickFilter = null;
-        movementDetector = null;
-        distanceCalculator = null;
+        fusionProcessor = null;
+        fusionPipeline = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.example.madgwick_filter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 処理スレッドから受け取った最新値だけを保持し、表示フレームごと（または指定間隔）に 1 回だけ画面へ反映する
+class UiPublisher implements Choreographer.FrameCallback {
+    private static final int DECIMALS = 2;
+
+    private final TextView tvQuaternion, tvAcceleration, tvState, tvDistance;
+    private final long minIntervalNs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean frameRequested = new AtomicBoolean(false);
+    private final Runnable requestFrame = () -> Choreographer.getInstance().postFrameCallback(this);
+
+    // 最新スナップショット（lock で保護）
+    private final Object lock = new Object();
+    private final float[] latestQuaternion = new float[4];
+    private final float[] latestWorldAccel = new float[3];
+    private String latestState = "";
+    private float latestDistance;
+
+    // UI スレッド専用の作業領域
+    private final float[] quaternion = new float[4];
+    private final float[] worldAccel = new float[3];
+    private final char[] quaternionText = new char[4 * (FloatFormat.MAX_LENGTH + 2)];
+    private final char[] accelText = new char[3 * (FloatFormat.MAX_LENGTH + 4)];
+    private final char[] distanceText = new char[FloatFormat.MAX_LENGTH + 2];
+    private long lastRenderTimeNs = 0;
+
+    // maxRateHz <= 0 の場合は毎フレーム更新する
+    UiPublisher(TextView tvQuaternion, TextView tvAcceleration, TextView tvState, TextView tvDistance, float maxRateHz) {
+        this.tvQuaternion = tvQuaternion;
+        this.tvAcceleration = tvAcceleration;
+        this.tvState = tvState;
+        this.tvDistance = tvDistance;
+        this.minIntervalNs = maxRateHz > 0 ? (long) (1e9 / maxRateHz) : 0;
+    }
+
+    // 任意のスレッドから呼べる。値をコピーし、まだ要求していなければ次フレームの描画を予約する
+    void publish(float[] quaternion, float[] worldAccel, String state, float distance) {
+        synchronized (lock) {
+            System.arraycopy(quaternion, 0, latestQuaternion, 0, 4);
+            System.arraycopy(worldAccel, 0, latestWorldAccel, 0, 3);
+            latestState = state;
+            latestDistance = distance;
+        }
+        if (frameRequested.compareAndSet(false, true)) {
+            mainHandler.post(requestFrame);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (frameTimeNanos - lastRenderTimeNs < minIntervalNs) {
+            Choreographer.getInstance().postFrameCallback(this);
+            return;
+        }
+        lastRenderTimeNs = frameTimeNanos;
+
+        // 先にフラグを戻すことで、コピー後に届いた値は次フレームで反映される
+        frameRequested.set(false);
+        String state;
+        float distance;
+        synchronized (lock) {
+            System.arraycopy(latestQuaternion, 0, quaternion, 0, 4);
+            System.arraycopy(latestWorldAccel, 0, worldAccel, 0, 3);
+            state = latestState;
+            distance = latestDistance;
+        }
+
+        int len = 0;
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) {
+                len = FloatFormat.append(", ", quaternionText, len);
+            }
+            len = FloatFormat.format(quaternion[i], DECIMALS, quaternionText, len);
+        }
+        tvQuaternion.setText(quaternionText, 0, len);
+
+        len = FloatFormat.append("X=", accelText, 0);
+        len = FloatFormat.format(worldAccel[0], DECIMALS, accelText, len);
+        len = FloatFormat.append(", Y=", accelText, len);
+        len = FloatFormat.format(worldAccel[1], DECIMALS, accelText, len);
+        len = FloatFormat.append(", Z=", accelText, len);
+        len = FloatFormat.format(worldAccel[2], DECIMALS, accelText, len);
+        tvAcceleration.setText(accelText, 0, len);
+
+        tvState.setText(state);
+
+        len = FloatFormat.format(distance, DECIMALS, distanceText, 0);
+        len = FloatFormat.append(" m", distanceText, len);
+        tvDistance.setText(distanceText, 0, len);
+    }
+}
@@ -0,0 +1,53 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    implementation(project(":fusion-core"))
+    implementation(project(":fusion-simd"))
+    jmh(libs.jmh.core)
+    jmh(libs.jmh.generator.annprocess)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+// 逆平方根カーネルの精度比較: ./gradlew :benchmark:kernelAccuracyReport
+tasks.register<JavaExec>("kernelAccuracyReport") {
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.madgwick_filter.benchmark.KernelAccuracyReport")
+    jvmArgs("--add-modules=jdk.incubator.vector")
+}
+
+// 起動直後の姿勢の収束時間: ./gradlew :benchmark:convergenceReport
+tasks.register<JavaExec>("convergenceReport") {
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.madgwick_filter.benchmark.ConvergenceReport")
+}
+
+// 生成した歩行シナリオでのレート別の処理時間と真値に対する誤差: ./gradlew :benchmark:syntheticTraceReport
+tasks.register<JavaExec>("syntheticTraceReport") {
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.madgwick_filter.benchmark.SyntheticTraceReport")
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    benchmarkMode.add("avgt")
+    timeUnit.set("ns")
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector")
+    // 例: ./gradlew :benchmark:jmh -Pjmh.includes=FusionBenchmark.fullChain
+    (project.findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
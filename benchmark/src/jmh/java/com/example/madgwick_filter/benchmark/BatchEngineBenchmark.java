@@ -0,0 +1,91 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.MadgwickBatchEngine;
+import com.example.madgwick_filter.MadgwickFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多数ストリームの 1 tick あたりの処理時間を、ストリームごとの MadgwickFilter オブジェクトと
+ * MadgwickBatchEngine（単一スレッド / fork-join）で比較する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEngineBenchmark {
+    @Param({"1000", "100000"})
+    public int streams;
+
+    private MadgwickFilter[] filters;
+    private MadgwickBatchEngine sequential;
+    private MadgwickBatchEngine parallel;
+    private int[] sequentialIds;
+    private int[] parallelIds;
+    private SensorTrace input;
+    private int tick;
+
+    @Setup
+    public void setUp() {
+        input = SensorTrace.synthetic(true, 1024);
+        filters = new MadgwickFilter[streams];
+        sequential = new MadgwickBatchEngine(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        parallel = new MadgwickBatchEngine();
+        sequentialIds = new int[streams];
+        parallelIds = new int[streams];
+        for (int s = 0; s < streams; s++) {
+            filters[s] = new MadgwickFilter();
+            sequentialIds[s] = sequential.addStream();
+            parallelIds[s] = parallel.addStream();
+        }
+    }
+
+    // ストリームごとに系列上の位置をずらして入力する
+    private int sampleIndex(int stream) {
+        return (tick + stream) & (input.length() - 1);
+    }
+
+    @Benchmark
+    public void objectPerStream() {
+        tick++;
+        for (int s = 0; s < streams; s++) {
+            int i = sampleIndex(s);
+            filters[s].update(input.accel[i], input.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+        }
+    }
+
+    @Benchmark
+    public void batchSequential() {
+        tick++;
+        for (int s = 0; s < streams; s++) {
+            int i = sampleIndex(s);
+            sequential.setSample(sequentialIds[s], input.accel[i], input.gyro[i]);
+        }
+        sequential.update(SensorTrace.SAMPLE_RATE_HZ);
+    }
+
+    @Benchmark
+    public void batchForkJoin() {
+        tick++;
+        for (int s = 0; s < streams; s++) {
+            int i = sampleIndex(s);
+            parallel.setSample(parallelIds[s], input.accel[i], input.gyro[i]);
+        }
+        parallel.update(SensorTrace.SAMPLE_RATE_HZ);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.DistanceCalculator;
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.MadgwickFilter;
+import com.example.madgwick_filter.MovementDetector;
+import com.example.madgwick_filter.SampleBatch;
+import com.example.madgwick_filter.SessionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * センサーフュージョンの各段（フィルタ更新・世界座標加速度・移動検出・距離計算）と
+ * 全体チェーンの 1 サンプルあたりの処理時間を測る。
+ * worldAcceleration はフィルタ更新込み（filterUpdate を差し引いて見る）、cachedWorldAcceleration は更新なしの再取得。
+ * processorBatch は FIFO バッチ配信を想定し、BATCH サンプルをまとめて処理したときの 1 サンプルあたりの時間。
+ * 確保量は {@code -prof gc}（build.gradle.kts で既定有効）で確認する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FusionBenchmark {
+    private static final int TRACE_LENGTH = 8192;
+    private static final int BATCH = 32;
+
+    // still: 静止分岐、moving: 移動・積分分岐、walk: 生成した歩行シナリオ、file:<path>: 記録済みセッション
+    @Param({"still", "moving", "walk"})
+    public String trace;
+
+    private SensorTrace input;
+    private float[][] worldAccel;
+    private boolean[] moving;
+
+    private MadgwickFilter filter;
+    private MovementDetector detector;
+    private DistanceCalculator calculator;
+
+    private final float[] quaternionOut = new float[4];
+    private final float[] worldAccelOut = new float[3];
+    private final float[] motionOut = new float[7];
+    private int index;
+
+    private FusionProcessor singleProcessor;
+    private FusionProcessor batchProcessor;
+    private final SessionRecord record = new SessionRecord();
+    private final SampleBatch batch = new SampleBatch(BATCH);
+
+    @Setup
+    public void setUp() throws IOException {
+        input = SensorTrace.load(trace, TRACE_LENGTH);
+
+        // 段ごとのベンチマーク用に、前段の出力をあらかじめ計算しておく
+        MadgwickFilter warmupFilter = new MadgwickFilter();
+        MovementDetector warmupDetector = newDetector();
+        int length = input.length();
+        worldAccel = new float[length][3];
+        moving = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            warmupFilter.update(input.accel[i], input.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+            warmupFilter.getWorldAcceleration(worldAccel[i]);
+            moving[i] = warmupDetector.update(worldAccel[i]);
+        }
+
+        filter = new MadgwickFilter();
+        detector = newDetector();
+        calculator = new DistanceCalculator();
+        filter.update(input.accel[0], input.gyro[0], SensorTrace.SAMPLE_RATE_HZ);
+        singleProcessor = new FusionProcessor(new MadgwickFilter(), newDetector(), new DistanceCalculator(),
+                SensorTrace.SAMPLE_RATE_HZ);
+        batchProcessor = new FusionProcessor(new MadgwickFilter(), newDetector(), new DistanceCalculator(),
+                SensorTrace.SAMPLE_RATE_HZ);
+        index = 0;
+    }
+
+    private static MovementDetector newDetector() {
+        MovementDetector detector = new MovementDetector();
+        detector.setDebugLogging(false);
+        return detector;
+    }
+
+    private int next() {
+        int i = index;
+        index = (i + 1 == input.length()) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public void filterUpdate(Blackhole bh) {
+        int i = next();
+        filter.update(input.accel[i], input.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+        bh.consume(filter.getQuaternion(quaternionOut));
+    }
+
+    // 更新のたびにキャッシュが無効になるので、filterUpdate との差が回転行列・世界座標加速度の計算時間
+    @Benchmark
+    public float[] worldAcceleration() {
+        int i = next();
+        filter.update(input.accel[i], input.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+        return filter.getWorldAcceleration(worldAccelOut);
+    }
+
+    // 更新のない連続呼び出し（キャッシュのコピーだけ）
+    @Benchmark
+    public float[] cachedWorldAcceleration() {
+        return filter.getWorldAcceleration(worldAccelOut);
+    }
+
+    @Benchmark
+    public boolean movementDetector() {
+        return detector.update(worldAccel[next()]);
+    }
+
+    @Benchmark
+    public float[] distanceCalculator() {
+        int i = next();
+        return calculator.calculateMotion(worldAccel[i], moving[i], input.timestamps[i], motionOut);
+    }
+
+    @Benchmark
+    public float[] fullChain() {
+        int i = next();
+        filter.update(input.accel[i], input.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+        filter.getQuaternion(quaternionOut);
+        filter.getWorldAcceleration(worldAccelOut);
+        boolean isMoving = detector.update(worldAccelOut);
+        return calculator.calculateMotion(worldAccelOut, isMoving, input.timestamps[i], motionOut);
+    }
+
+    @Benchmark
+    public boolean processorSingle() {
+        int i = next();
+        return singleProcessor.process(input.accel[i], input.gyro[i], input.timestamps[i], record);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean processorBatch() {
+        batch.clear();
+        for (int n = 0; n < BATCH; n++) {
+            int i = next();
+            batch.add(input.timestamps[i], input.accel[i], input.gyro[i]);
+        }
+        batchProcessor.processBatch(batch);
+        return batch.moving[BATCH - 1];
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.BatchKernel;
+import com.example.madgwick_filter.MadgwickBatchEngine;
+import com.example.madgwick_filter.MadgwickFilter;
+import com.example.madgwick_filter.MathKernel;
+import com.example.madgwick_filter.MathKernels;
+import com.example.madgwick_filter.ScalarBatchKernel;
+import com.example.madgwick_filter.simd.VectorBatchKernel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逆平方根カーネルごとの速度比較。単体の invSqrt、スカラーの MadgwickFilter.update、
+ * バッチエンジン（スカラー / SIMD）の 1 ストリームあたりの時間を測る。
+ * 精度は KernelAccuracyReport（./gradlew :benchmark:kernelAccuracyReport）で確認する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class MathKernelBenchmark {
+    private static final int STREAMS = 4096;
+    private static final int VALUES = 1024;
+
+    @Param({"exact", "fast1", "fast2"})
+    public String kernel;
+
+    private MathKernel math;
+    private final float[] values = new float[VALUES];
+    private MadgwickFilter filter;
+    private SensorTrace input;
+    private int index;
+
+    private MadgwickBatchEngine scalarEngine;
+    private MadgwickBatchEngine vectorEngine;
+
+    @Setup
+    public void setUp() {
+        int iterations = kernel.startsWith("fast") ? Integer.parseInt(kernel.substring(4)) : 0;
+        math = iterations == 0 ? MathKernels.EXACT : MathKernels.fast(iterations);
+        BatchKernel vector = iterations == 0 ? VectorBatchKernel.exact() : VectorBatchKernel.fast(iterations);
+
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = 0.01f + i * 0.37f;
+        }
+        filter = new MadgwickFilter(math);
+        input = SensorTrace.synthetic(true, 1024);
+
+        scalarEngine = new MadgwickBatchEngine(ForkJoinPool.commonPool(), Integer.MAX_VALUE, new ScalarBatchKernel(math));
+        vectorEngine = new MadgwickBatchEngine(ForkJoinPool.commonPool(), Integer.MAX_VALUE, vector);
+        for (int s = 0; s < STREAMS; s++) {
+            scalarEngine.addStream();
+            vectorEngine.addStream();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public float invSqrt() {
+        float sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += math.invSqrt(values[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float[] filterUpdate() {
+        int i = index;
+        index = (i + 1) & (input.length() - 1);
+        filter.update(input.accel[i], input.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+        return input.accel[i];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAMS)
+    public void batchScalar() {
+        tick(scalarEngine);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAMS)
+    public void batchVector() {
+        tick(vectorEngine);
+    }
+
+    private void tick(MadgwickBatchEngine engine) {
+        int base = index;
+        index = (base + 1) & (input.length() - 1);
+        for (int s = 0; s < STREAMS; s++) {
+            int i = (base + s) & (input.length() - 1);
+            engine.setSample(s, input.accel[i], input.gyro[i]);
+        }
+        engine.update(SensorTrace.SAMPLE_RATE_HZ);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.FusionPipeline;
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.SessionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一時停止・再開時の状態スナップショットの保存・復元にかかる時間。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateSnapshotBenchmark {
+    private FusionPipeline pipeline;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    private final ByteBuffer snapshot = ByteBuffer.allocateDirect(4096);
+
+    @Setup
+    public void setUp() {
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        pipeline = new FusionPipeline(processor);
+
+        // 移動中の状態（積分窓が埋まっている）を作る
+        SensorTrace trace = SensorTrace.synthetic(true, 1000);
+        SessionRecord record = new SessionRecord();
+        for (int i = 0; i < trace.length(); i++) {
+            record.timestamp = trace.timestamps[i];
+            System.arraycopy(trace.accel[i], 0, record.accel, 0, 3);
+            System.arraycopy(trace.gyro[i], 0, record.gyro, 0, 3);
+            pipeline.process(record);
+        }
+        pipeline.saveState(snapshot);
+        snapshot.flip();
+    }
+
+    @Benchmark
+    public int save() {
+        buffer.clear();
+        pipeline.saveState(buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int restore() throws IOException {
+        snapshot.rewind();
+        pipeline.restoreState(snapshot);
+        return snapshot.position();
+    }
+}
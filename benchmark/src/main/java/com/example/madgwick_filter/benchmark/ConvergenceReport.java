@@ -0,0 +1,96 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.DistanceCalculator;
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.MadgwickFilter;
+import com.example.madgwick_filter.MovementDetector;
+import com.example.madgwick_filter.SessionRecord;
+
+import java.util.Random;
+
+/**
+ * 起動直後に姿勢が使える精度（重力方向の誤差 1° 以内）に収まるまでの時間を、
+ * 初期化・ウォームアップの設定ごとに比較する。
+ * 実行: ./gradlew :benchmark:convergenceReport
+ */
+public final class ConvergenceReport {
+    private static final float RATE_HZ = 50f;
+    private static final double USABLE_DEGREES = 1.0;
+    private static final int SECONDS = 60;
+    private static final int RUNS = 20;
+
+    private ConvergenceReport() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-28s %20s %20s %18s%n", "configuration", "still [s] (max)", "shaken [s] (max)", "shaken false moves");
+        report("identity, beta=0.04", 0, 0f, 0f);
+        report("identity + warm-up", 0, FusionProcessor.DEFAULT_WARMUP_BETA, FusionProcessor.DEFAULT_WARMUP_SECONDS);
+        report("accel init", FusionProcessor.DEFAULT_INIT_SAMPLES, 0f, 0f);
+        report("accel init + warm-up (default)", FusionProcessor.DEFAULT_INIT_SAMPLES,
+                FusionProcessor.DEFAULT_WARMUP_BETA, FusionProcessor.DEFAULT_WARMUP_SECONDS);
+    }
+
+    private static void report(String name, int initSamples, float warmupBeta, float warmupSeconds) {
+        float still = 0;
+        float shaken = 0;
+        long falseMoves = 0;
+        for (int seed = 0; seed < RUNS; seed++) {
+            still = Math.max(still, run(filter(initSamples, warmupBeta, warmupSeconds), seed, false, null));
+            long[] moves = new long[1];
+            shaken = Math.max(shaken, run(filter(initSamples, warmupBeta, warmupSeconds), seed, true, moves));
+            falseMoves += moves[0];
+        }
+        System.out.printf("%-28s %20.2f %20.2f %18d%n", name, still, shaken, falseMoves);
+    }
+
+    private static MadgwickFilter filter(int initSamples, float warmupBeta, float warmupSeconds) {
+        MadgwickFilter filter = new MadgwickFilter();
+        filter.setAccelerometerInitialization(initSamples);
+        if (warmupSeconds > 0) {
+            filter.setWarmup(warmupBeta, warmupSeconds);
+        }
+        return filter;
+    }
+
+    // 傾けて静止した端末。戻り値は誤差が最後に閾値を超えた時刻 [s]。
+    // falseMoves が null でなければ、静止中に MovementDetector が移動と判定したサンプル数を数える
+    private static float run(MadgwickFilter filter, int seed, boolean shakeDuringInit, long[] falseMoves) {
+        Random random = new Random(seed);
+        double roll = Math.toRadians(random.nextDouble() * 120 - 60);
+        double pitch = Math.toRadians(random.nextDouble() * 120 - 60);
+        float gx = (float) -Math.sin(pitch);
+        float gy = (float) (Math.cos(pitch) * Math.sin(roll));
+        float gz = (float) (Math.cos(pitch) * Math.cos(roll));
+        FusionProcessor processor = new FusionProcessor(filter, new MovementDetector(),
+                new DistanceCalculator(), RATE_HZ);
+        processor.getDetector().setDebugLogging(false);
+        SessionRecord record = new SessionRecord();
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+        float[] gravity = new float[3];
+
+        int lastBad = -1;
+        int samples = (int) (SECONDS * RATE_HZ);
+        for (int i = 0; i < samples; i++) {
+            float shake = shakeDuringInit && i < 5 ? 3f : 0f;
+            accel[0] = 9.81f * gx + (float) random.nextGaussian() * 0.05f + shake;
+            accel[1] = 9.81f * gy + (float) random.nextGaussian() * 0.05f;
+            accel[2] = 9.81f * gz + (float) random.nextGaussian() * 0.05f;
+            for (int k = 0; k < 3; k++) {
+                gyro[k] = (float) random.nextGaussian() * 0.2f;
+            }
+            boolean moving = processor.process(accel, gyro, (long) (i * 1e9 / RATE_HZ), record);
+            if (falseMoves != null && moving && i >= 5) {
+                falseMoves[0]++;
+            }
+            filter.getGravityVector(gravity);
+            double norm = Math.sqrt(gravity[0] * gravity[0] + gravity[1] * gravity[1] + gravity[2] * gravity[2]);
+            double cos = (gravity[0] * gx + gravity[1] * gy + gravity[2] * gz) / norm;
+            if (Math.toDegrees(Math.acos(Math.min(1.0, cos))) > USABLE_DEGREES) {
+                lastBad = i;
+            }
+        }
+        return (lastBad + 1) / RATE_HZ;
+    }
+}
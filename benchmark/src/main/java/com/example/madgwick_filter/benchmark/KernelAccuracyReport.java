@@ -0,0 +1,103 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.BatchKernel;
+import com.example.madgwick_filter.MadgwickBatchEngine;
+import com.example.madgwick_filter.MadgwickFilter;
+import com.example.madgwick_filter.MathKernel;
+import com.example.madgwick_filter.MathKernels;
+import com.example.madgwick_filter.simd.VectorBatchKernel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 逆平方根カーネルごとの精度レポート。
+ * <ul>
+ *   <li>invSqrt 単体の相対誤差（double での 1/sqrt を基準）</li>
+ *   <li>合成系列でフィルタを回したときの姿勢誤差（double 精度の逆平方根を使ったフィルタを基準、度）</li>
+ * </ul>
+ * 実行: ./gradlew :benchmark:kernelAccuracyReport
+ */
+public final class KernelAccuracyReport {
+    private static final int SAMPLES = 60_000; // 100 Hz で 10 分
+
+    private KernelAccuracyReport() {
+    }
+
+    public static void main(String[] args) {
+        MathKernel reference = x -> (float) (1.0 / Math.sqrt((double) x));
+        SensorTrace trace = SensorTrace.synthetic(true, SAMPLES);
+        float[] expected = orientations(new MadgwickFilter(reference), trace);
+
+        System.out.printf("%-24s %16s %16s %18s %18s%n",
+                "kernel", "invSqrt max rel", "invSqrt mean rel", "attitude max [deg]", "attitude end [deg]");
+        MathKernel[] kernels = {MathKernels.EXACT, MathKernels.fast(1), MathKernels.fast(2), MathKernels.fast(3)};
+        for (MathKernel kernel : kernels) {
+            report(kernel.toString(), kernel, orientations(new MadgwickFilter(kernel), trace), expected);
+        }
+
+        BatchKernel[] vectorKernels = {VectorBatchKernel.exact(), VectorBatchKernel.fast(1), VectorBatchKernel.fast(2)};
+        for (BatchKernel kernel : vectorKernels) {
+            report(kernel + " (" + VectorBatchKernel.lanes() + " lanes)", null, orientations(kernel, trace), expected);
+        }
+    }
+
+    private static void report(String name, MathKernel kernel, float[] actual, float[] expected) {
+        double maxRel = Double.NaN;
+        double meanRel = Double.NaN;
+        if (kernel != null) {
+            maxRel = 0;
+            double sum = 0;
+            int count = 0;
+            // 1e-6 〜 1e6 を対数等間隔で走査
+            for (double e = -6; e <= 6; e += 1e-4) {
+                float x = (float) Math.pow(10, e);
+                double exact = 1.0 / Math.sqrt(x);
+                double rel = Math.abs(kernel.invSqrt(x) - exact) / exact;
+                maxRel = Math.max(maxRel, rel);
+                sum += rel;
+                count++;
+            }
+            meanRel = sum / count;
+        }
+
+        double maxAngle = 0;
+        double endAngle = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            endAngle = angleBetween(expected, actual, i * 4);
+            maxAngle = Math.max(maxAngle, endAngle);
+        }
+        System.out.printf("%-24s %16.3e %16.3e %18.5f %18.5f%n", name, maxRel, meanRel, maxAngle, endAngle);
+    }
+
+    private static float[] orientations(MadgwickFilter filter, SensorTrace trace) {
+        float[] result = new float[SAMPLES * 4];
+        float[] q = new float[4];
+        for (int i = 0; i < SAMPLES; i++) {
+            filter.update(trace.accel[i], trace.gyro[i], SensorTrace.SAMPLE_RATE_HZ);
+            System.arraycopy(filter.getQuaternion(q), 0, result, i * 4, 4);
+        }
+        return result;
+    }
+
+    private static float[] orientations(BatchKernel kernel, SensorTrace trace) {
+        MadgwickBatchEngine engine = new MadgwickBatchEngine(ForkJoinPool.commonPool(), Integer.MAX_VALUE, kernel);
+        int id = engine.addStream();
+        float[] result = new float[SAMPLES * 4];
+        float[] q = new float[4];
+        for (int i = 0; i < SAMPLES; i++) {
+            engine.setSample(id, trace.accel[i], trace.gyro[i]);
+            engine.update(SensorTrace.SAMPLE_RATE_HZ);
+            System.arraycopy(engine.getQuaternion(id, q), 0, result, i * 4, 4);
+        }
+        return result;
+    }
+
+    // 2 つの単位クォータニオン間の回転角 [deg]
+    private static double angleBetween(float[] a, float[] b, int offset) {
+        double dot = 0;
+        for (int k = 0; k < 4; k++) {
+            dot += (double) a[offset + k] * b[offset + k];
+        }
+        return Math.toDegrees(2 * Math.acos(Math.min(1.0, Math.abs(dot))));
+    }
+}
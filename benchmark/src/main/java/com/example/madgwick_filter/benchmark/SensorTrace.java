@@ -0,0 +1,139 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.ImuTraceGenerator;
+import com.example.madgwick_filter.SessionRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// ベンチマーク入力となる加速度・ジャイロ系列（合成または記録済み CSV）
+public final class SensorTrace {
+    public static final float SAMPLE_RATE_HZ = 100f;
+    private static final long PERIOD_NS = (long) (1e9 / SAMPLE_RATE_HZ);
+
+    public final long[] timestamps;
+    public final float[][] accel;
+    public final float[][] gyro;
+
+    private SensorTrace(long[] timestamps, float[][] accel, float[][] gyro) {
+        this.timestamps = timestamps;
+        this.accel = accel;
+        this.gyro = gyro;
+    }
+
+    public int length() {
+        return timestamps.length;
+    }
+
+    // "still" / "moving" は合成系列、"walk" は ImuTraceGenerator の歩行シナリオ、
+    // "file:<path>" はアプリが出力した CSV を読み込む
+    public static SensorTrace load(String name, int length) throws IOException {
+        if (name.startsWith("file:")) {
+            return fromCsv(name.substring("file:".length()));
+        }
+        switch (name) {
+            case "still":
+                return synthetic(false, length);
+            case "moving":
+                return synthetic(true, length);
+            case "walk":
+                return generated(walkScenario(SAMPLE_RATE_HZ, 42), length);
+            default:
+                throw new IllegalArgumentException("Unknown trace: " + name);
+        }
+    }
+
+    public static SensorTrace synthetic(boolean moving, int length) {
+        Random random = new Random(42);
+        long[] timestamps = new long[length];
+        float[][] accel = new float[length][3];
+        float[][] gyro = new float[length][3];
+        for (int i = 0; i < length; i++) {
+            double t = i / (double) SAMPLE_RATE_HZ;
+            timestamps[i] = 1_000_000_000L + i * PERIOD_NS;
+            // 歩行相当: 約 2 Hz の上下動・前後動と小さな旋回
+            double step = moving ? Math.sin(2 * Math.PI * 2.0 * t) : 0;
+            accel[i][0] = (float) (1.5 * step + random.nextGaussian() * 0.02);
+            accel[i][1] = (float) (0.8 * (moving ? Math.cos(2 * Math.PI * 2.0 * t) : 0) + random.nextGaussian() * 0.02);
+            accel[i][2] = (float) (9.81 + 2.0 * step + random.nextGaussian() * 0.02);
+            gyro[i][0] = (float) (random.nextGaussian() * 0.1);
+            gyro[i][1] = (float) (random.nextGaussian() * 0.1);
+            gyro[i][2] = (float) ((moving ? 5.0 * Math.sin(2 * Math.PI * 0.5 * t) : 0) + random.nextGaussian() * 0.1);
+        }
+        return new SensorTrace(timestamps, accel, gyro);
+    }
+
+    // 静止 → 歩行 → 旋回 → 歩行 → 静止。ノイズ・バイアスはスマートフォンの IMU 程度
+    public static ImuTraceGenerator walkScenario(float rateHz, long seed) {
+        ImuTraceGenerator generator = new ImuTraceGenerator(rateHz, seed);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 3f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 20f);
+        generator.addSegment(ImuTraceGenerator.Motion.ROTATING, 4f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 20f);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 3f);
+        generator.setInitialOrientation((float) Math.toRadians(15), (float) Math.toRadians(-10), 0f);
+        generator.setNoise(0.03f, 0.1f);
+        generator.setAccelBias(0.02f, -0.01f, 0.03f);
+        generator.setGyroBias(0.05f, -0.05f, 0.02f);
+        generator.setTimestampJitter(Math.min(1_000_000L, (long) (0.2e9 / rateHz)));
+        return generator;
+    }
+
+    // 生成器の計測値を最大 length サンプル取り出す（シナリオが短ければそこまで）
+    public static SensorTrace generated(ImuTraceGenerator generator, int length) {
+        int count = (int) Math.min(length, generator.getSampleCount());
+        long[] timestamps = new long[count];
+        float[][] accel = new float[count][3];
+        float[][] gyro = new float[count][3];
+        SessionRecord measured = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        for (int i = 0; i < count && generator.next(measured, truth); i++) {
+            timestamps[i] = measured.timestamp;
+            System.arraycopy(measured.accel, 0, accel[i], 0, 3);
+            System.arraycopy(measured.gyro, 0, gyro[i], 0, 3);
+        }
+        return new SensorTrace(timestamps, accel, gyro);
+    }
+
+    // Timestamp,AccelX,AccelY,AccelZ,GyroX,GyroY,GyroZ,... の列順を前提とする
+    public static SensorTrace fromCsv(String path) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            boolean header = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue; // CsvRecorder.SAMPLE_FREQUENCY_PREFIX の行
+                }
+                if (header) {
+                    header = false;
+                } else if (!line.isEmpty()) {
+                    rows.add(line.split(","));
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            throw new IOException("No samples in " + path);
+        }
+
+        int length = rows.size();
+        long[] timestamps = new long[length];
+        float[][] accel = new float[length][3];
+        float[][] gyro = new float[length][3];
+        for (int i = 0; i < length; i++) {
+            String[] row = rows.get(i);
+            timestamps[i] = Long.parseLong(row[0]);
+            for (int axis = 0; axis < 3; axis++) {
+                accel[i][axis] = Float.parseFloat(row[1 + axis]);
+                gyro[i][axis] = Float.parseFloat(row[4 + axis]);
+            }
+        }
+        return new SensorTrace(timestamps, accel, gyro);
+    }
+}
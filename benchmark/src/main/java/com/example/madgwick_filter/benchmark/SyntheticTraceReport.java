@@ -0,0 +1,90 @@
+package com.example.madgwick_filter.benchmark;
+
+import com.example.madgwick_filter.DistanceCalculator;
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.ImuTraceGenerator;
+import com.example.madgwick_filter.MovementDetector;
+import com.example.madgwick_filter.SessionRecord;
+
+/**
+ * ImuTraceGenerator の歩行シナリオを 10Hz〜10kHz で生成して FusionProcessor に直接流し、
+ * 1 サンプルあたりの処理時間と真値に対する誤差（姿勢・移動判定・移動距離）をレートごとに比較する。
+ * 生成は計測の前に済ませ、処理時間には含めない。
+ * 実行: ./gradlew :benchmark:syntheticTraceReport
+ */
+public final class SyntheticTraceReport {
+    private static final float[] RATES_HZ = {10f, 50f, 100f, 200f, 1000f, 10_000f};
+    private static final int SEED = 42;
+    private static final int WARMUP_RUNS = 3;
+
+    private SyntheticTraceReport() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%9s %9s %11s %14s %14s %12s %14s %14s%n", "rate [Hz]", "samples", "ns/sample",
+                "attitude [deg]", "max att [deg]", "moving [%]", "distance [m]", "truth [m]");
+        for (float rate : RATES_HZ) {
+            report(rate);
+        }
+    }
+
+    private static void report(float rate) {
+        ImuTraceGenerator generator = SensorTrace.walkScenario(rate, SEED);
+        int count = (int) generator.getSampleCount();
+        SessionRecord[] measured = new SessionRecord[count];
+        SessionRecord[] truth = new SessionRecord[count];
+        for (int i = 0; i < count; i++) {
+            measured[i] = new SessionRecord();
+            truth[i] = new SessionRecord();
+            generator.next(measured[i], truth[i]);
+        }
+
+        // 時間: 同じ系列を何度か流して JIT を温めてから測る
+        SessionRecord out = new SessionRecord();
+        long elapsed = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            FusionProcessor processor = newProcessor(rate);
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                SessionRecord in = measured[i];
+                processor.process(in.accel, in.gyro, in.timestamp, out);
+            }
+            elapsed = System.nanoTime() - start;
+        }
+
+        // 誤差: 計測とは別に 1 回流し、サンプルごとに真値と比べる
+        FusionProcessor processor = newProcessor(rate);
+        double sumSquared = 0;
+        double worst = 0;
+        int agree = 0;
+        for (int i = 0; i < count; i++) {
+            SessionRecord in = measured[i];
+            boolean moving = processor.process(in.accel, in.gyro, in.timestamp, out);
+            double error = attitudeError(out.quaternion, truth[i].quaternion);
+            sumSquared += error * error;
+            worst = Math.max(worst, error);
+            if (moving == truth[i].moving) {
+                agree++;
+            }
+        }
+        SessionRecord last = truth[count - 1];
+        System.out.printf("%9.0f %9d %11.1f %14.2f %14.2f %12.1f %14.2f %14.2f%n", rate, count,
+                elapsed / (double) count, Math.sqrt(sumSquared / count), worst, 100.0 * agree / count,
+                out.motion[6], last.motion[6]);
+    }
+
+    private static FusionProcessor newProcessor(float rate) {
+        FusionProcessor processor = new FusionProcessor(FusionProcessor.newDefaultFilter(), new MovementDetector(),
+                new DistanceCalculator(FusionProcessor.DEFAULT_RESAMPLE_RATE_HZ), rate);
+        processor.getDetector().setDebugLogging(false);
+        return processor;
+    }
+
+    // 2 つの姿勢のなす角 [deg]
+    private static double attitudeError(float[] q, float[] truth) {
+        double dot = q[0] * truth[0] + q[1] * truth[1] + q[2] * truth[2] + q[3] * truth[3];
+        double norm = Math.sqrt((q[0] * q[0] + q[1] * q[1] + q[2] * q[2] + q[3] * q[3])
+                * (truth[0] * truth[0] + truth[1] * truth[1] + truth[2] * truth[2] + truth[3] * truth[3]));
+        return Math.toDegrees(2 * Math.acos(Math.min(1.0, Math.abs(dot) / norm)));
+    }
+}
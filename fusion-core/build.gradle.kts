@@ -0,0 +1,13 @@
+plugins {
+    `java-library`
+}
+
+// Android (:app) とサーバー側の両方から使うため、Android 依存を持たない Java 8 ライブラリとする
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
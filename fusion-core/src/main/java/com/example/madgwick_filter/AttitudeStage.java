@@ -0,0 +1,76 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 姿勢推定の段: accel / gyro → quaternion / worldAccel。更新周波数はタイムスタンプの差から求める
+public class AttitudeStage implements PipelineStage {
+    private final MadgwickFilter filter;
+    private float fallbackFrequency;
+    private final long maxIntervalNs;
+    private long lastTimestamp;
+    private boolean hasLastTimestamp = false;
+
+    // 間隔が 0 以下または maxIntervalNs を超えたときは fallbackFrequency で更新する
+    public AttitudeStage(MadgwickFilter filter, float fallbackFrequency, long maxIntervalNs) {
+        this.filter = filter;
+        this.fallbackFrequency = fallbackFrequency;
+        this.maxIntervalNs = maxIntervalNs;
+    }
+
+    // 登録したサンプリングレートが分かったときに合わせる
+    public void setFallbackFrequency(float fallbackFrequency) {
+        this.fallbackFrequency = fallbackFrequency;
+    }
+
+    public float getFallbackFrequency() {
+        return fallbackFrequency;
+    }
+
+    @Override
+    public void process(SessionRecord record) {
+        filter.update(record.accel, record.gyro, measuredFrequency(record.timestamp));
+        filter.getQuaternion(record.quaternion);
+        filter.getWorldAcceleration(record.worldAccel);
+    }
+
+    @Override
+    public void processBatch(SampleBatch batch) {
+        int count = batch.size();
+        for (int i = 0; i < count; i++) {
+            batch.sampleFrequency[i] = measuredFrequency(batch.timestamps[i]);
+        }
+        filter.updateBatch(batch.accel, batch.gyro, batch.sampleFrequency, count, batch.quaternion, batch.worldAccel);
+    }
+
+    private float measuredFrequency(long timestamp) {
+        long dt = timestamp - lastTimestamp;
+        boolean valid = hasLastTimestamp && dt > 0 && dt <= maxIntervalNs;
+        lastTimestamp = timestamp;
+        hasLastTimestamp = true;
+        return valid ? 1e9f / dt : fallbackFrequency;
+    }
+
+    public MadgwickFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public void reset() {
+        filter.reset();
+        hasLastTimestamp = false;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        filter.saveState(out);
+        out.put((byte) (hasLastTimestamp ? 1 : 0));
+        out.putLong(lastTimestamp);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        filter.restoreState(in);
+        hasLastTimestamp = in.get() != 0;
+        lastTimestamp = in.getLong();
+    }
+}
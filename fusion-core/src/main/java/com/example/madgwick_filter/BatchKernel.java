@@ -0,0 +1,10 @@
+package com.example.madgwick_filter;
+
+// MadgwickBatchEngine の [from, to) 区間を 1 ステップ進める計算カーネル。
+// pending[i] が true のストリームだけを更新し、pending を false に戻す。ジャイロは deg/s
+public interface BatchKernel {
+    void update(float[] q0, float[] q1, float[] q2, float[] q3,
+                float[] ax, float[] ay, float[] az,
+                float[] gx, float[] gy, float[] gz,
+                boolean[] pending, int from, int to, float beta, float sampleFreq);
+}
@@ -0,0 +1,199 @@
+package com.example.madgwick_filter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// 全サンプルを CSV として記録するバックグラウンドレコーダー。
+// 呼び出し側は 2 枚のバイトバッファの一方に行をエンコードするだけで、ファイル書き込みは専用スレッドがまとめて行う。
+// 書き込み中のバッファが 1 枚（未処理は最大 1 バッファ分）を超える場合は行を破棄して数える
+public class CsvRecorder implements Closeable {
+    public static final String HEADER = "Timestamp,AccelX,AccelY,AccelZ,GyroX,GyroY,GyroZ,QuatW,QuatX,QuatY,QuatZ,WorldAccelX,WorldAccelY,WorldAccelZ,VelocityX,VelocityY,VelocityZ,PositionX,PositionY,PositionZ,Distance\n";
+    // ヘッダーの前に置く記録時の登録サンプリング周波数の行（"# SampleFrequency=400.0"）
+    public static final String SAMPLE_FREQUENCY_PREFIX = "# SampleFrequency=";
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final int DECIMALS = 6;
+    private static final int VALUES_PER_ROW = 20;
+    // 1 行の最大バイト数（タイムスタンプ + 20 個の数値 + 区切り）
+    private static final int MAX_ROW_LENGTH = 20 + 1 + VALUES_PER_ROW * (FloatFormat.MAX_LENGTH + 1);
+    private static final long FLUSH_INTERVAL_NS = 1000000000L; // 1秒
+
+    private final OutputStream out;
+    private final Thread writerThread;
+
+    // 以下は this で保護する
+    private byte[] active;        // エンコード中
+    private int activeLength = 0;
+    private byte[] spare;         // 書き込み完了済みの空きバッファ（書き込み中は null）
+    private byte[] pending;       // 書き込み待ち
+    private int pendingLength = 0;
+    private boolean closed = false;
+    private IOException writeError;
+    private long lastHandoffTime;
+    private long recordedRows = 0;
+    private long droppedRows = 0;
+
+    public CsvRecorder(OutputStream out) throws IOException {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvRecorder(OutputStream out, int bufferSize) throws IOException {
+        this(out, bufferSize, 0f);
+    }
+
+    // sampleFrequency > 0 ならヘッダーの前に SAMPLE_FREQUENCY_PREFIX の行を書く（リプレイで同じ dt を使うため）
+    public CsvRecorder(OutputStream out, int bufferSize, float sampleFrequency) throws IOException {
+        if (bufferSize < MAX_ROW_LENGTH) {
+            throw new IllegalArgumentException("bufferSize must be at least " + MAX_ROW_LENGTH);
+        }
+        this.out = out;
+        this.active = new byte[bufferSize];
+        this.spare = new byte[bufferSize];
+        int pos = 0;
+        if (sampleFrequency > 0) {
+            pos = FloatFormat.append(SAMPLE_FREQUENCY_PREFIX + sampleFrequency + "\n", active, pos);
+        }
+        this.activeLength = FloatFormat.append(HEADER, active, pos);
+        this.lastHandoffTime = System.nanoTime();
+        this.writerThread = new Thread(this::runWriter, "CsvRecorder");
+        this.writerThread.start();
+    }
+
+    // 1 行をエンコードする。記録できなかった（破棄・クローズ済み）場合は false
+    public synchronized boolean record(long elapsedTime, float[] accel, float[] gyro, float[] quaternion,
+                                       float[] worldAccel, float[] motionData) {
+        if (closed) {
+            return false;
+        }
+        if (active.length - activeLength < MAX_ROW_LENGTH || System.nanoTime() - lastHandoffTime >= FLUSH_INTERVAL_NS) {
+            if (!handOff() && active.length - activeLength < MAX_ROW_LENGTH) {
+                droppedRows++;
+                return false;
+            }
+        }
+
+        byte[] buf = active;
+        int pos = FloatFormat.format(elapsedTime, buf, activeLength);
+        pos = appendValues(accel, 3, buf, pos);
+        pos = appendValues(gyro, 3, buf, pos);
+        pos = appendValues(quaternion, 4, buf, pos);
+        pos = appendValues(worldAccel, 3, buf, pos);
+        pos = appendValues(motionData, 7, buf, pos);
+        buf[pos++] = '\n';
+        activeLength = pos;
+        recordedRows++;
+        return true;
+    }
+
+    private static int appendValues(float[] values, int count, byte[] buf, int pos) {
+        for (int i = 0; i < count; i++) {
+            buf[pos++] = ',';
+            // 速度の残差など 0.5e-6 未満の値も 0 にせず残す
+            pos = FloatFormat.formatPreservingSmall(values[i], DECIMALS, buf, pos);
+        }
+        return pos;
+    }
+
+    // active を書き込みスレッドに渡し、spare と入れ替える。書き込みスレッドが前のバッファを処理中なら false
+    private boolean handOff() {
+        if (spare == null || pending != null) {
+            return false;
+        }
+        lastHandoffTime = System.nanoTime();
+        if (activeLength == 0) {
+            return true;
+        }
+        pending = active;
+        pendingLength = activeLength;
+        active = spare;
+        activeLength = 0;
+        spare = null;
+        notifyAll();
+        return true;
+    }
+
+    private void runWriter() {
+        while (true) {
+            byte[] buf;
+            int length;
+            boolean last;
+            synchronized (this) {
+                while (pending == null && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending != null) {
+                    buf = pending;
+                    length = pendingLength;
+                    last = false;
+                } else {
+                    // クローズ済み: 残りを書き出して終了
+                    buf = active;
+                    length = activeLength;
+                    activeLength = 0;
+                    last = true;
+                }
+            }
+
+            try {
+                out.write(buf, 0, length);
+                if (last) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (writeError == null) {
+                        writeError = e;
+                    }
+                }
+            }
+
+            synchronized (this) {
+                if (last) {
+                    return;
+                }
+                pending = null;
+                spare = buf;
+                notifyAll();
+            }
+        }
+    }
+
+    public synchronized long getRecordedRows() {
+        return recordedRows;
+    }
+
+    public synchronized long getDroppedRows() {
+        return droppedRows;
+    }
+
+    // 未書き込みの行をすべて書き出してからストリームを閉じる
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } finally {
+            synchronized (this) {
+                if (writeError != null) {
+                    throw writeError;
+                }
+            }
+        }
+    }
+}
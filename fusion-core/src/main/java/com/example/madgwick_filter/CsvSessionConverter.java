@@ -0,0 +1,78 @@
+package com.example.madgwick_filter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// アプリが出力した CSV（CsvRecorder.HEADER の列順）をバイナリセッションファイルへ変換する。
+// ヘッダー前の登録サンプリング周波数の行（CsvRecorder.SAMPLE_FREQUENCY_PREFIX）はセッションのヘッダーへ移す
+public final class CsvSessionConverter {
+    private static final int COLUMN_COUNT = 1 + SessionFormat.VALUE_COUNT;
+
+    private CsvSessionConverter() {
+    }
+
+    // 変換したレコード数を返す
+    public static long convert(File csvFile, File sessionFile) throws IOException {
+        SessionRecord record = new SessionRecord();
+        float[] values = new float[SessionFormat.VALUE_COUNT];
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8), 1 << 16);
+             SessionFileWriter writer = new SessionFileWriter(sessionFile)) {
+            String header = reader.readLine();
+            int lineNumber = 1;
+            if (header != null && header.startsWith(CsvRecorder.SAMPLE_FREQUENCY_PREFIX)) {
+                try {
+                    writer.setSampleFrequency(Float.parseFloat(
+                            header.substring(CsvRecorder.SAMPLE_FREQUENCY_PREFIX.length()).trim()));
+                } catch (NumberFormatException e) {
+                    throw new IOException(csvFile + ":1: " + e.getMessage(), e);
+                }
+                header = reader.readLine();
+                lineNumber++;
+            }
+            if (header == null || !header.startsWith("Timestamp,")) {
+                throw new IOException("Missing CSV header in " + csvFile);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                if (columns.length < COLUMN_COUNT) {
+                    throw new IOException(csvFile + ":" + lineNumber + ": expected " + COLUMN_COUNT + " columns");
+                }
+                try {
+                    record.timestamp = Long.parseLong(columns[0].trim());
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = Float.parseFloat(columns[1 + i]);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException(csvFile + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+                System.arraycopy(values, SessionFormat.COL_ACCEL_X, record.accel, 0, 3);
+                System.arraycopy(values, SessionFormat.COL_GYRO_X, record.gyro, 0, 3);
+                System.arraycopy(values, SessionFormat.COL_QUAT_W, record.quaternion, 0, 4);
+                System.arraycopy(values, SessionFormat.COL_WORLD_ACCEL_X, record.worldAccel, 0, 3);
+                System.arraycopy(values, SessionFormat.COL_VELOCITY_X, record.motion, 0, 7);
+                writer.append(record);
+            }
+            return writer.getRecordCount();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CsvSessionConverter <input.csv> <output.mgs>");
+            System.exit(2);
+        }
+        long records = convert(new File(args[0]), new File(args[1]));
+        System.out.println("Converted " + records + " records to " + args[1]);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+public class DistanceCalculator {
+    private static final String TAG = "DistanceCalculator";
+
+    // 加速度 → 速度、速度 → 変位 の 2 段のストリーミング積分
+    private final SimpsonIntegrator velocityIntegrator = new SimpsonIntegrator();
+    private final SimpsonIntegrator displacementIntegrator = new SimpsonIntegrator();
+
+    private float saveVeloX = 0, saveVeloY = 0, saveVeloZ = 0;
+    private float saveDistX = 0, saveDistY = 0, saveDistZ = 0;
+    private float totalDistance = 0;
+    private long initTime = 0;
+    private boolean initialized = false; // タイムスタンプ 0 から始まる記録データも扱えるようにする
+    // null でなければ、積分の前に等間隔の格子へ補間する
+    private final UniformResampler resampler;
+
+    public DistanceCalculator() {
+        this.resampler = null;
+    }
+
+    // 加速度を resampleRateHz の等間隔に補間してから積分する。タイムスタンプの揺らぎがあってもシンプソン則の前提が崩れない
+    public DistanceCalculator(float resampleRateHz) {
+        this.resampler = new UniformResampler(resampleRateHz);
+    }
+
+    public float[] calculateMotion(float[] worldAccel, boolean isMoving, long timestamp) {
+        return calculateMotion(worldAccel, isMoving, timestamp, new float[7]);
+    }
+
+    // 結果を out に書き込む版: [vx, vy, vz, px, py, pz, totalDistance]
+    public float[] calculateMotion(float[] worldAccel, boolean isMoving, long timestamp, float[] out) {
+        step(worldAccel[0], worldAccel[1], worldAccel[2], isMoving, timestamp);
+        return writeResult(out, 0);
+    }
+
+    // N サンプルをまとめて積分する。worldAccel は [x0, y0, z0, x1, ...]、
+    // motionOut にはサンプルごとに 7 要素ずつ（calculateMotion と同じ並び）書き込む
+    public float[] calculateMotionBatch(float[] worldAccel, boolean[] isMoving, long[] timestamps, int count,
+                                        float[] motionOut) {
+        for (int i = 0; i < count; i++) {
+            int v = i * 3;
+            step(worldAccel[v], worldAccel[v + 1], worldAccel[v + 2], isMoving[i], timestamps[i]);
+            writeResult(motionOut, i * 7);
+        }
+        return motionOut;
+    }
+
+    private void step(float ax, float ay, float az, boolean isMoving, long timestamp) {
+        if (!initialized) {
+            initTime = timestamp;
+            initialized = true;
+        }
+
+        long sampleTime = timestamp - initTime;
+
+        if (!isMoving) {
+            // 静止状態では速度をリセットし、距離計算をスキップ
+            saveVeloX = saveVeloY = saveVeloZ = 0;
+            clearQueues();
+            return;
+        }
+
+        if (resampler == null) {
+            integrate(sampleTime, ax, ay, az);
+            return;
+        }
+        int count = resampler.add(sampleTime, ax, ay, az);
+        for (int i = 0; i < count; i++) {
+            integrate(resampler.time(i), resampler.x(i), resampler.y(i), resampler.z(i));
+        }
+    }
+
+    private void integrate(long sampleTime, float ax, float ay, float az) {
+        if (velocityIntegrator.add(sampleTime, ax, ay, az)) {
+            // 速度の計算（シンプソン則）
+            saveVeloX = velocityIntegrator.getX();
+            saveVeloY = velocityIntegrator.getY();
+            saveVeloZ = velocityIntegrator.getZ();
+
+            if (displacementIntegrator.add(sampleTime, saveVeloX, saveVeloY, saveVeloZ)) {
+                // 距離の計算（シンプソン則）
+                float distX = displacementIntegrator.getX();
+                float distY = displacementIntegrator.getY();
+                float distZ = displacementIntegrator.getZ();
+
+                saveDistX += distX;
+                saveDistY += distY;
+                saveDistZ += distZ;
+
+                // 2D距離の計算 (x-y平面)
+                float distanceIncrement = (float) Math.sqrt(distX * distX + distY * distY);
+                totalDistance += distanceIncrement;
+            }
+        }
+    }
+
+    private float[] writeResult(float[] out, int off) {
+        out[off] = saveVeloX;
+        out[off + 1] = saveVeloY;
+        out[off + 2] = saveVeloZ;
+        out[off + 3] = saveDistX;
+        out[off + 4] = saveDistY;
+        out[off + 5] = saveDistZ;
+        out[off + 6] = totalDistance;
+        return out;
+    }
+
+    private void clearQueues() {
+        velocityIntegrator.clear();
+        displacementIntegrator.clear();
+        if (resampler != null) {
+            resampler.clear();
+        }
+    }
+
+    public void reset() {
+        clearQueues();
+        saveVeloX = saveVeloY = saveVeloZ = 0;
+        saveDistX = saveDistY = saveDistZ = 0;
+        totalDistance = 0;
+        initTime = 0;
+        initialized = false;
+    }
+
+    public void resetDistance() {
+        saveDistX = saveDistY = saveDistZ = 0;
+        totalDistance = 0;
+    }
+
+    // 積分窓・速度・累積距離を保存する（リサンプラを使う設定かどうかも一致している必要がある）
+    public void saveState(ByteBuffer out) {
+        out.put((byte) (initialized ? 1 : 0));
+        out.putLong(initTime);
+        out.putFloat(saveVeloX);
+        out.putFloat(saveVeloY);
+        out.putFloat(saveVeloZ);
+        out.putFloat(saveDistX);
+        out.putFloat(saveDistY);
+        out.putFloat(saveDistZ);
+        out.putFloat(totalDistance);
+        velocityIntegrator.saveState(out);
+        displacementIntegrator.saveState(out);
+        out.put((byte) (resampler != null ? 1 : 0));
+        if (resampler != null) {
+            resampler.saveState(out);
+        }
+    }
+
+    public void restoreState(ByteBuffer in) {
+        initialized = in.get() != 0;
+        initTime = in.getLong();
+        saveVeloX = in.getFloat();
+        saveVeloY = in.getFloat();
+        saveVeloZ = in.getFloat();
+        saveDistX = in.getFloat();
+        saveDistY = in.getFloat();
+        saveDistZ = in.getFloat();
+        totalDistance = in.getFloat();
+        velocityIntegrator.restoreState(in);
+        displacementIntegrator.restoreState(in);
+        boolean resampled = in.get() != 0;
+        if (resampled != (resampler != null)) {
+            throw new IllegalArgumentException("resampler configuration does not match");
+        }
+        if (resampler != null) {
+            resampler.restoreState(in);
+        }
+    }
+}
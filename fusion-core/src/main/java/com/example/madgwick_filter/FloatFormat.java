@@ -0,0 +1,220 @@
+package com.example.madgwick_filter;
+
+// String.format / Float.toString を使わずに固定小数点表記で数値を書き出す（確保なし）。
+// 画面表示用の char[] 版と、ファイル出力用の ASCII byte[] 版がある（書き込みは型ごと、値の分解は共通）。
+// long に収まらない大きさは固定小数点で表せないので指数表記（1.234568E13）で書く
+public final class FloatFormat {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L
+    };
+    public static final int MAX_DECIMALS = POWERS_OF_TEN.length - 1;
+
+    // 最悪ケースの文字数: 符号 + 整数部 19 桁 + 小数点 + 小数部（指数表記はこれより短い）
+    public static final int MAX_LENGTH = 1 + 19 + 1 + MAX_DECIMALS;
+
+    private FloatFormat() {
+    }
+
+    // value を小数 decimals 桁（四捨五入）で buf[offset..] に書き込み、書き込み後の位置を返す。
+    // 表示桁より小さい値は 0 になる
+    public static int format(float value, int decimals, char[] buf, int offset) {
+        checkDecimals(decimals);
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return append(specialText(value), buf, offset);
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = scaledAbs(value, scale);
+        if (useScientific(value, scaled, false)) {
+            return writeScientific(value, decimals, buf, offset);
+        }
+        long rounded = (long) scaled;
+        int pos = offset;
+        if (value < 0 && rounded != 0) {
+            buf[pos++] = '-';
+        }
+        return writeFixed(rounded, decimals, buf, pos);
+    }
+
+    // ASCII で buf[offset..] に書き込む以外は format(float, int, char[], int) と同じ
+    public static int format(float value, int decimals, byte[] buf, int offset) {
+        return write(value, decimals, false, buf, offset);
+    }
+
+    // 記録用。0 でない値が小数 decimals 桁で 0 に丸められる場合は、値を残すため指数表記で書く
+    public static int formatPreservingSmall(float value, int decimals, byte[] buf, int offset) {
+        return write(value, decimals, true, buf, offset);
+    }
+
+    // long 値を ASCII 10 進で書き込む
+    public static int format(long value, byte[] buf, int offset) {
+        int pos = offset;
+        if (value < 0) {
+            buf[pos++] = '-';
+            if (value == Long.MIN_VALUE) {
+                return append("9223372036854775808", buf, pos);
+            }
+            value = -value;
+        }
+        return appendDigits(value, buf, pos);
+    }
+
+    public static int append(String text, char[] buf, int offset) {
+        text.getChars(0, text.length(), buf, offset);
+        return offset + text.length();
+    }
+
+    public static int append(String text, byte[] buf, int offset) {
+        for (int i = 0; i < text.length(); i++) {
+            buf[offset + i] = (byte) text.charAt(i);
+        }
+        return offset + text.length();
+    }
+
+    private static int write(float value, int decimals, boolean preserveSmall, byte[] buf, int offset) {
+        checkDecimals(decimals);
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return append(specialText(value), buf, offset);
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = scaledAbs(value, scale);
+        if (useScientific(value, scaled, preserveSmall)) {
+            return writeScientific(value, decimals, buf, offset);
+        }
+        long rounded = (long) scaled;
+        int pos = offset;
+        if (value < 0 && rounded != 0) {
+            buf[pos++] = '-';
+        }
+        return writeFixed(rounded, decimals, buf, pos);
+    }
+
+    private static void checkDecimals(int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("decimals must be 0.." + MAX_DECIMALS + ": " + decimals);
+        }
+    }
+
+    private static String specialText(float value) {
+        return Float.isNaN(value) ? "NaN" : value > 0 ? "Infinity" : "-Infinity";
+    }
+
+    // |value| × scale を四捨五入用に 0.5 足したもの
+    private static double scaledAbs(float value, long scale) {
+        return Math.abs((double) value) * scale + 0.5;
+    }
+
+    // long に収まらない、または（preserveSmall のとき）0 でないのに 0 に丸められる
+    private static boolean useScientific(float value, double scaled, boolean preserveSmall) {
+        return scaled >= Long.MAX_VALUE || (preserveSmall && value != 0 && scaled < 1);
+    }
+
+    // 指数表記の 10 の指数（仮数が [1, 10) で decimals 桁に丸めても 10 にならないもの）
+    private static int exponentOf(double abs, long scale) {
+        int exponent = (int) Math.floor(Math.log10(abs));
+        // log10 の誤差・繰り上がりで仮数が [1, 10) から外れたら指数を直す
+        long mantissa = mantissaOf(abs, exponent, scale);
+        if (mantissa >= 10 * scale) {
+            exponent++;
+        } else if (mantissa < scale) {
+            exponent--;
+        }
+        return exponent;
+    }
+
+    // scale 倍して丸めた仮数
+    private static long mantissaOf(double abs, int exponent, long scale) {
+        return Math.round(abs / Math.pow(10, exponent) * scale);
+    }
+
+    // 仮数を小数 decimals 桁で書き、E と 10 の指数を続ける
+    private static int writeScientific(float value, int decimals, char[] buf, int offset) {
+        double abs = Math.abs((double) value);
+        long scale = POWERS_OF_TEN[decimals];
+        int exponent = exponentOf(abs, scale);
+        int pos = offset;
+        if (value < 0) {
+            buf[pos++] = '-';
+        }
+        pos = writeFixed(mantissaOf(abs, exponent, scale), decimals, buf, pos);
+        buf[pos++] = 'E';
+        if (exponent < 0) {
+            buf[pos++] = '-';
+            exponent = -exponent;
+        }
+        return appendDigits(exponent, buf, pos);
+    }
+
+    private static int writeScientific(float value, int decimals, byte[] buf, int offset) {
+        double abs = Math.abs((double) value);
+        long scale = POWERS_OF_TEN[decimals];
+        int exponent = exponentOf(abs, scale);
+        int pos = offset;
+        if (value < 0) {
+            buf[pos++] = '-';
+        }
+        pos = writeFixed(mantissaOf(abs, exponent, scale), decimals, buf, pos);
+        buf[pos++] = 'E';
+        if (exponent < 0) {
+            buf[pos++] = '-';
+            exponent = -exponent;
+        }
+        return appendDigits(exponent, buf, pos);
+    }
+
+    // 10^decimals 倍された非負の値を「整数部.小数部」で書く
+    private static int writeFixed(long scaledValue, int decimals, char[] buf, int pos) {
+        long scale = POWERS_OF_TEN[decimals];
+        pos = appendDigits(scaledValue / scale, buf, pos);
+        if (decimals > 0) {
+            long fractionPart = scaledValue % scale;
+            buf[pos++] = '.';
+            for (int i = decimals - 1; i >= 0; i--) {
+                buf[pos + i] = (char) ('0' + fractionPart % 10);
+                fractionPart /= 10;
+            }
+            pos += decimals;
+        }
+        return pos;
+    }
+
+    private static int writeFixed(long scaledValue, int decimals, byte[] buf, int pos) {
+        long scale = POWERS_OF_TEN[decimals];
+        pos = appendDigits(scaledValue / scale, buf, pos);
+        if (decimals > 0) {
+            long fractionPart = scaledValue % scale;
+            buf[pos++] = '.';
+            for (int i = decimals - 1; i >= 0; i--) {
+                buf[pos + i] = (byte) ('0' + fractionPart % 10);
+                fractionPart /= 10;
+            }
+            pos += decimals;
+        }
+        return pos;
+    }
+
+    private static int appendDigits(long value, char[] buf, int pos) {
+        int digits = digitCount(value);
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[pos + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static int appendDigits(long value, byte[] buf, int pos) {
+        int digits = digitCount(value);
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[pos + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.madgwick_filter;
+
+// fusion-core 内のデバッグログ出力先。Android では logcat、サーバーでは任意のロガーを差し込む
+public final class FusionLog {
+    public interface Sink {
+        void debug(String tag, String message);
+    }
+
+    private static final Sink NO_OP = (tag, message) -> { };
+    private static volatile Sink sink = NO_OP;
+
+    private FusionLog() {
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : NO_OP;
+    }
+
+    public static boolean isEnabled() {
+        return sink != NO_OP;
+    }
+
+    public static void d(String tag, String message) {
+        sink.debug(tag, message);
+    }
+}
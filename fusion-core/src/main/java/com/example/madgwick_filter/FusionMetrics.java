@@ -0,0 +1,102 @@
+package com.example.madgwick_filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 処理時間・遅延のヒストグラムとカウンタの登録先。登録は起動時に済ませ、ホットパスでは
+// 取得済みの LatencyHistogram / Counter に記録するだけ（確保なし）。
+// setEnabled(false) の間は計装側が時刻の取得ごと省く
+public class FusionMetrics {
+    // 段ごとの処理時間（1 サンプルあたり、バッチ処理ではバッチ全体をサンプル数で割った値）
+    public static final String STAGE_FILTER = "stage.filter";
+    public static final String STAGE_DETECTOR = "stage.detector";
+    public static final String STAGE_INTEGRATOR = "stage.integrator";
+    // センサーのタイムスタンプから処理結果が出るまで
+    public static final String LATENCY_FUSED = "latency.fused";
+    // 連続するサンプルのタイムスタンプの間隔（揺らぎの確認用）
+    public static final String SAMPLE_INTERVAL = "sample.interval";
+    public static final String SAMPLES = "samples";
+
+    // センサーのタイムスタンプと同じ時間基準の現在時刻。Android では SystemClock.elapsedRealtimeNanos
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public interface Gauge {
+        long get();
+    }
+
+    // 1 スレッドから加算するカウンタ
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            add(1);
+        }
+
+        public void add(long delta) {
+            value.lazySet(value.get() + delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    private final Clock clock;
+    private final long startTime;
+    private volatile boolean enabled = true;
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, Gauge> gauges = new LinkedHashMap<>();
+
+    public FusionMetrics() {
+        this(System::nanoTime);
+    }
+
+    public FusionMetrics(Clock clock) {
+        this.clock = clock;
+        this.startTime = clock.nanoTime();
+    }
+
+    public long now() {
+        return clock.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // 同じ名前なら登録済みのものを返す
+    public synchronized LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    public synchronized Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    // 既存の値（ドロップ数など）をスナップショット時に読む。同じ名前なら置き換える
+    public synchronized void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public synchronized MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(clock.nanoTime() - startTime, histograms, counters, gauges);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.madgwick_filter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// 処理段（PipelineStage）を順に適用し、結果を各出力先（SinkBuffer）へ配る。
+// process / processBatch は単一スレッド（処理スレッド）から呼ぶ。出力先の追加・削除は任意のスレッドから行える
+public class FusionPipeline {
+    // 状態スナップショットの先頭
+    public static final int STATE_MAGIC = 0x5453474D; // "MGST"
+    public static final short STATE_VERSION = 2; // 2: 移動検出・距離積分の平均の途中経過を追加
+
+    private final PipelineStage[] stages;
+    private volatile SinkBuffer[] sinks = new SinkBuffer[0];
+    private final SessionRecord scratch = new SessionRecord();
+    private FusionMetrics metrics;
+    // 出力先へは n サンプルに 1 つだけ渡す（過負荷時）
+    private int outputDecimation = 1;
+    private int outputPhase = 0;
+
+    public FusionPipeline(PipelineStage... stages) {
+        this.stages = stages.clone();
+    }
+
+    // record の入力欄を埋めてから呼ぶ
+    public void process(SessionRecord record) {
+        for (PipelineStage stage : stages) {
+            stage.process(record);
+        }
+        publish(record);
+    }
+
+    public void processBatch(SampleBatch batch) {
+        for (PipelineStage stage : stages) {
+            stage.processBatch(batch);
+        }
+        SinkBuffer[] current = sinks;
+        if (current.length == 0) {
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (!nextOutputIsDue()) {
+                continue;
+            }
+            batch.read(i, scratch);
+            for (SinkBuffer sink : current) {
+                sink.offer(scratch);
+            }
+        }
+    }
+
+    public void publish(SessionRecord record) {
+        if (!nextOutputIsDue()) {
+            return;
+        }
+        for (SinkBuffer sink : sinks) {
+            sink.offer(record);
+        }
+    }
+
+    // process / processBatch と同じスレッドから呼ぶ
+    public void setOutputDecimation(int decimation) {
+        if (decimation <= 0) {
+            throw new IllegalArgumentException("decimation must be positive: " + decimation);
+        }
+        outputDecimation = decimation;
+        outputPhase = 0;
+    }
+
+    private boolean nextOutputIsDue() {
+        boolean due = outputPhase == 0;
+        outputPhase = (outputPhase + 1) % outputDecimation;
+        return due;
+    }
+
+    // 以降に追加する出力先も含め、各出力先の遅延・処理時間・ドロップ数を metrics に記録する
+    public synchronized void setMetrics(FusionMetrics metrics) {
+        this.metrics = metrics;
+        for (SinkBuffer sink : sinks) {
+            sink.setMetrics(metrics);
+        }
+    }
+
+    // capacity は 2 のべき乗
+    public synchronized SinkBuffer addSink(String name, SampleSink sink, int capacity, SinkBuffer.Policy policy) {
+        SinkBuffer buffer = new SinkBuffer(name, sink, capacity, policy);
+        if (metrics != null) {
+            buffer.setMetrics(metrics);
+        }
+        SinkBuffer[] next = Arrays.copyOf(sinks, sinks.length + 1);
+        next[next.length - 1] = buffer;
+        sinks = next;
+        return buffer;
+    }
+
+    // 配信を止め、溜まっている分を書き出してから出力先を閉じる
+    public void removeSink(SinkBuffer buffer) throws IOException {
+        synchronized (this) {
+            SinkBuffer[] current = sinks;
+            int index = Arrays.asList(current).indexOf(buffer);
+            if (index < 0) {
+                return;
+            }
+            SinkBuffer[] next = new SinkBuffer[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+            sinks = next;
+        }
+        buffer.close();
+    }
+
+    public void reset() {
+        for (PipelineStage stage : stages) {
+            stage.reset();
+        }
+    }
+
+    // 全段の状態を out の現在位置から書き込む（リトルエンディアン）。容量が足りなければ BufferOverflowException
+    public void saveState(ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(STATE_MAGIC);
+        out.putShort(STATE_VERSION);
+        out.putShort((short) stages.length);
+        for (PipelineStage stage : stages) {
+            stage.saveState(out);
+        }
+    }
+
+    // saveState で書いた状態を読み込む。形式や設定が合わない場合は全段をリセットして IOException
+    public void restoreState(ByteBuffer in) throws IOException {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != STATE_MAGIC) {
+                throw new IOException("Not a fusion state snapshot (bad magic)");
+            }
+            short version = in.getShort();
+            short count = in.getShort();
+            if (version != STATE_VERSION || count != stages.length) {
+                throw new IOException("Unsupported state snapshot version " + version + ", stages " + count);
+            }
+            for (PipelineStage stage : stages) {
+                stage.restoreState(in);
+            }
+        } catch (IOException e) {
+            reset();
+            throw e;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            reset();
+            throw new IOException("Corrupt or incompatible state snapshot", e);
+        }
+    }
+
+    public void close() throws IOException {
+        SinkBuffer[] current;
+        synchronized (this) {
+            current = sinks;
+            sinks = new SinkBuffer[0];
+        }
+        IOException failure = null;
+        for (SinkBuffer sink : current) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// フィルタ更新 → 移動検出 → 距離計算 の 3 段をまとめたもの。
+// アプリ（MainActivity）とオフラインのリプレイで同じ計算を行うための共通実装
+public class FusionProcessor implements PipelineStage {
+    // 実測の間隔が使えないとき（最初のサンプル・中断後）の周波数。SENSOR_DELAY_GAME の公称値。
+    // 登録レートの分かる呼び出し側（SENSOR_DELAY_FASTEST のアプリ）は setFallbackSampleFrequency で合わせる
+    public static final float DEFAULT_SAMPLE_FREQUENCY = 50f; // Hz
+    // これより間隔が空いたら中断とみなし、実測値を使わない
+    public static final long MAX_SAMPLE_INTERVAL_NS = 200_000_000L; // 200ms
+    // 距離積分の前に世界座標加速度を載せ替える等間隔格子の周波数
+    public static final float DEFAULT_RESAMPLE_RATE_HZ = 50f;
+    // 起動・リセット直後の姿勢の収束（MadgwickFilterTest / ConvergenceReport で計測）
+    public static final int DEFAULT_INIT_SAMPLES = 10;
+    public static final float DEFAULT_WARMUP_BETA = 0.3f;
+    public static final float DEFAULT_WARMUP_SECONDS = 2f;
+    // アプリの移動検出・距離積分の間隔（姿勢フィルタは全レート）。リプレイも同じ値で再現する
+    public static final long DEFAULT_DETECTION_INTERVAL_NS = 200_000_000L; // 200ms
+    public static final long DEFAULT_INTEGRATION_INTERVAL_NS = 20_000_000L; // 20ms（距離積分の格子 50Hz に合わせる）
+
+    private final AttitudeStage attitude;
+    private final MovementStage movement;
+    private final MotionStage motion;
+
+    // null なら計測しない
+    private FusionMetrics metrics;
+    private LatencyHistogram filterTime, detectorTime, integratorTime, fusedLatency, sampleInterval;
+    private FusionMetrics.Counter samples;
+    private long lastTimestamp;
+    private boolean hasLastTimestamp = false;
+
+    public FusionProcessor() {
+        this(newDefaultFilter(), new MovementDetector(), new DistanceCalculator(DEFAULT_RESAMPLE_RATE_HZ),
+                DEFAULT_SAMPLE_FREQUENCY);
+    }
+
+    // アプリと同じ設定（移動検出・距離積分を DEFAULT_*_INTERVAL_NS で動かす）
+    public static FusionProcessor withDefaultIntervals() {
+        FusionProcessor processor = new FusionProcessor();
+        processor.setDetectionIntervalNs(DEFAULT_DETECTION_INTERVAL_NS);
+        processor.setIntegrationIntervalNs(DEFAULT_INTEGRATION_INTERVAL_NS);
+        return processor;
+    }
+
+    // 最初の加速度から初期姿勢を決め、短いウォームアップで残りの誤差を詰める
+    public static MadgwickFilter newDefaultFilter() {
+        MadgwickFilter filter = new MadgwickFilter();
+        filter.setAccelerometerInitialization(DEFAULT_INIT_SAMPLES);
+        filter.setWarmup(DEFAULT_WARMUP_BETA, DEFAULT_WARMUP_SECONDS);
+        return filter;
+    }
+
+    public FusionProcessor(MadgwickFilter filter, MovementDetector detector, DistanceCalculator calculator,
+                           float sampleFrequency) {
+        this.attitude = new AttitudeStage(filter, sampleFrequency, MAX_SAMPLE_INTERVAL_NS);
+        this.movement = new MovementStage(detector);
+        this.motion = new MotionStage(calculator);
+    }
+
+    // 時刻をそろえた加速度・ジャイロの 1 組で 1 回更新し、入力と結果を out に書き込む。移動中なら true。
+    // 積分の刻みは前回のタイムスタンプとの差から求める
+    public boolean process(float[] accel, float[] gyro, long timestamp, SessionRecord out) {
+        out.timestamp = timestamp;
+        System.arraycopy(accel, 0, out.accel, 0, 3);
+        System.arraycopy(gyro, 0, out.gyro, 0, 3);
+        process(out);
+        return out.moving;
+    }
+
+    // 段ごとの処理時間・センサー時刻からの遅延・サンプル間隔・サンプル数を記録する。処理スレッドから呼ぶ
+    public void setMetrics(FusionMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            filterTime = metrics.histogram(FusionMetrics.STAGE_FILTER);
+            detectorTime = metrics.histogram(FusionMetrics.STAGE_DETECTOR);
+            integratorTime = metrics.histogram(FusionMetrics.STAGE_INTEGRATOR);
+            fusedLatency = metrics.histogram(FusionMetrics.LATENCY_FUSED);
+            sampleInterval = metrics.histogram(FusionMetrics.SAMPLE_INTERVAL);
+            samples = metrics.counter(FusionMetrics.SAMPLES);
+        }
+        hasLastTimestamp = false;
+    }
+
+    @Override
+    public void process(SessionRecord record) {
+        if (metrics == null || !metrics.isEnabled()) {
+            attitude.process(record);
+            movement.process(record);
+            motion.process(record);
+            return;
+        }
+        long t0 = System.nanoTime();
+        attitude.process(record);
+        long t1 = System.nanoTime();
+        movement.process(record);
+        long t2 = System.nanoTime();
+        motion.process(record);
+        long t3 = System.nanoTime();
+        filterTime.record(t1 - t0);
+        detectorTime.record(t2 - t1);
+        integratorTime.record(t3 - t2);
+        recordSample(record.timestamp, metrics.now());
+    }
+
+    // batch に溜めた N サンプルをまとめて処理し、結果を batch の出力配列に書き込む。
+    // 各段をサンプル数分のループで回すだけで、process を N 回呼んだ場合と同じ結果になる
+    @Override
+    public void processBatch(SampleBatch batch) {
+        int count = batch.size();
+        if (metrics == null || !metrics.isEnabled() || count == 0) {
+            attitude.processBatch(batch);
+            movement.processBatch(batch);
+            motion.processBatch(batch);
+            return;
+        }
+        long t0 = System.nanoTime();
+        attitude.processBatch(batch);
+        long t1 = System.nanoTime();
+        movement.processBatch(batch);
+        long t2 = System.nanoTime();
+        motion.processBatch(batch);
+        long t3 = System.nanoTime();
+        filterTime.record((t1 - t0) / count);
+        detectorTime.record((t2 - t1) / count);
+        integratorTime.record((t3 - t2) / count);
+        long now = metrics.now();
+        for (int i = 0; i < count; i++) {
+            recordSample(batch.timestamps[i], now);
+        }
+    }
+
+    private void recordSample(long timestamp, long now) {
+        if (hasLastTimestamp) {
+            sampleInterval.record(timestamp - lastTimestamp);
+        }
+        lastTimestamp = timestamp;
+        hasLastTimestamp = true;
+        fusedLatency.record(now - timestamp);
+        samples.increment();
+    }
+
+    // タイムスタンプの間隔が使えない（最初のサンプル・途切れた直後）ときの dt を決める周波数
+    public void setFallbackSampleFrequency(float sampleFrequency) {
+        attitude.setFallbackFrequency(sampleFrequency);
+    }
+
+    public float getFallbackSampleFrequency() {
+        return attitude.getFallbackFrequency();
+    }
+
+    // 移動検出・距離積分をそれぞれの間隔で動かす（0 なら毎サンプル）。姿勢フィルタは全レートのまま、
+    // 間の世界座標加速度は平均してから渡す
+    public void setDetectionIntervalNs(long intervalNs) {
+        movement.setIntervalNs(intervalNs);
+    }
+
+    public void setIntegrationIntervalNs(long intervalNs) {
+        motion.setIntervalNs(intervalNs);
+    }
+
+    // 移動検出・距離積分の頻度を 1/n にする（過負荷時）。間隔が設定されていれば間隔を n 倍、
+    // なければ n サンプルに 1 回。姿勢フィルタは常に全サンプルを処理する
+    public void setAnalysisDecimation(int decimation) {
+        movement.setDecimation(decimation);
+        motion.setDecimation(decimation);
+    }
+
+    public MadgwickFilter getFilter() {
+        return attitude.getFilter();
+    }
+
+    public MovementDetector getDetector() {
+        return movement.getDetector();
+    }
+
+    public DistanceCalculator getCalculator() {
+        return motion.getCalculator();
+    }
+
+    @Override
+    public void reset() {
+        attitude.reset();
+        movement.reset();
+        motion.reset();
+        hasLastTimestamp = false;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        attitude.saveState(out);
+        movement.saveState(out);
+        motion.saveState(out);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        attitude.restoreState(in);
+        movement.restoreState(in);
+        motion.restoreState(in);
+    }
+
+    public void resetDistance() {
+        motion.resetDistance();
+    }
+}
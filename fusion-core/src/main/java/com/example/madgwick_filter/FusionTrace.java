@@ -0,0 +1,181 @@
+package com.example.madgwick_filter;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 毎サンプルのトレースを数値のまま固定長リングに記録し、dump() のときだけ文字列にする。
+// 記録はレベル判定 1 回と配列への書き込みだけで確保なし。無効時は volatile 読み 1 回で返る。
+// 複数スレッドから記録でき、古い記録から上書きされる
+public final class FusionTrace {
+    public static final int OFF = 0;
+    public static final int INFO = 1;
+    public static final int DEBUG = 2;
+    public static final int VERBOSE = 3;
+
+    public static final int DEFAULT_CAPACITY = 4096; // 2 の累乗
+
+    // 記録した数値を dump 時に文字列へ変換する
+    public interface Formatter {
+        String format(float a, float b, float c, float d, long n);
+    }
+
+    // 呼び出し側で static final に 1 度だけ作っておくトレース点
+    public static final class Event {
+        final String tag;
+        final int level;
+        final Formatter formatter;
+
+        Event(String tag, int level, Formatter formatter) {
+            this.tag = tag;
+            this.level = level;
+            this.formatter = formatter;
+        }
+    }
+
+    private static volatile int level = OFF;
+    private static volatile Ring ring = new Ring(DEFAULT_CAPACITY);
+
+    private FusionTrace() {
+    }
+
+    public static Event event(String tag, int level, Formatter formatter) {
+        if (level <= OFF || level > VERBOSE) {
+            throw new IllegalArgumentException("level must be INFO, DEBUG or VERBOSE: " + level);
+        }
+        return new Event(tag, level, formatter);
+    }
+
+    public static void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    public static boolean isEnabled(int eventLevel) {
+        return eventLevel <= level;
+    }
+
+    // 記録済みの内容は捨てる。起動時に 1 度だけ呼ぶ想定
+    public static void setCapacity(int capacity) {
+        ring = new Ring(capacity);
+    }
+
+    public static void record(Event event) {
+        record(event, 0f, 0f, 0f, 0f, 0L);
+    }
+
+    public static void record(Event event, long n) {
+        record(event, 0f, 0f, 0f, 0f, n);
+    }
+
+    public static void record(Event event, float a, float b, float c, long n) {
+        record(event, a, b, c, 0f, n);
+    }
+
+    public static void record(Event event, float a, float b, float c, float d, long n) {
+        if (event.level > level) {
+            return;
+        }
+        ring.put(System.nanoTime(), event, a, b, c, d, n);
+    }
+
+    // 古い順に整形して sink へ書き出し、リングを空にする。書き出した件数を返す
+    public static int dump(FusionLog.Sink sink) {
+        return ring.drain(sink);
+    }
+
+    // 上書きで失われた記録の累計
+    public static long getOverwrittenCount() {
+        return ring.overwritten();
+    }
+
+    public static void clear() {
+        ring.clear();
+    }
+
+    private static final class Ring {
+        private final int mask;
+        // 中身も atomic 配列にして、書き込みは lazySet（release）、読み出しは get（acquire）で行う。
+        // 通常のフィールドだと -1 の書き込みより前に中身が書かれたり、読み出し側の再確認が中身の読み出しより
+        // 先に行われたりしうる（ARM ではこのメモリモデル通りに入れ替わる）
+        private final AtomicLongArray times;
+        private final AtomicReferenceArray<Event> events;
+        private final AtomicIntegerArray values; // 1 件あたり 4 要素（float のビット列）
+        private final AtomicLongArray longs;
+        // スロットに書き終えた記録の通し番号。書き込み中は -1
+        private final AtomicLongArray published;
+        private final AtomicLong next = new AtomicLong();
+        private long read = 0; // dump 側だけが触る
+        private long overwritten = 0;
+
+        Ring(int capacity) {
+            if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+                throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+            }
+            mask = capacity - 1;
+            times = new AtomicLongArray(capacity);
+            events = new AtomicReferenceArray<>(capacity);
+            values = new AtomicIntegerArray(capacity * 4);
+            longs = new AtomicLongArray(capacity);
+            published = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                published.set(i, -1);
+            }
+        }
+
+        void put(long time, Event event, float a, float b, float c, float d, long n) {
+            long sequence = next.getAndIncrement();
+            int slot = (int) sequence & mask;
+            published.set(slot, -1);
+            times.lazySet(slot, time);
+            events.lazySet(slot, event);
+            int v = slot * 4;
+            values.lazySet(v, Float.floatToRawIntBits(a));
+            values.lazySet(v + 1, Float.floatToRawIntBits(b));
+            values.lazySet(v + 2, Float.floatToRawIntBits(c));
+            values.lazySet(v + 3, Float.floatToRawIntBits(d));
+            longs.lazySet(slot, n);
+            published.lazySet(slot, sequence);
+        }
+
+        synchronized int drain(FusionLog.Sink sink) {
+            long end = next.get();
+            long start = Math.max(read, end - (mask + 1));
+            overwritten += start - read;
+            int count = 0;
+            for (long sequence = start; sequence < end; sequence++) {
+                int slot = (int) sequence & mask;
+                if (published.get(slot) != sequence) {
+                    continue; // 書き込み中、または既に上書きされた
+                }
+                long time = times.get(slot);
+                Event event = events.get(slot);
+                int v = slot * 4;
+                float a = Float.intBitsToFloat(values.get(v));
+                float b = Float.intBitsToFloat(values.get(v + 1));
+                float c = Float.intBitsToFloat(values.get(v + 2));
+                float d = Float.intBitsToFloat(values.get(v + 3));
+                long n = longs.get(slot);
+                if (published.get(slot) != sequence) {
+                    continue;
+                }
+                sink.debug(event.tag, time + " " + event.formatter.format(a, b, c, d, n));
+                count++;
+            }
+            read = end;
+            return count;
+        }
+
+        synchronized long overwritten() {
+            return overwritten + Math.max(0, next.get() - (mask + 1) - read);
+        }
+
+        synchronized void clear() {
+            read = next.get();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.madgwick_filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// 真の軌跡（静止・歩行・回転の区間の並び）から加速度・ジャイロの計測値を決定的に生成する。
+// 10Hz〜10kHz の任意のレートで、ノイズ・バイアス・タイムスタンプの揺らぎを設定できる。
+// 計測値と同時に真値（姿勢・世界座標の線形加速度・速度・位置・水平移動距離）も返すので、
+// パイプラインのスループットと誤差をそのまま測れる。ジャイロは MadgwickFilter の入力と同じ deg/s
+public class ImuTraceGenerator {
+    public static final float MIN_RATE_HZ = 10f;
+    public static final float MAX_RATE_HZ = 10_000f;
+    public static final float GRAVITY = 9.81f;
+
+    public enum Motion {
+        STILL,    // 静止
+        WALKING,  // 端末の x 軸の水平方向へ歩く（前後・上下に揺れる）
+        ROTATING  // その場で z 軸まわりに回り、x 軸まわりにも揺れる
+    }
+
+    // 歩行: 巡航速度、前後の速度の揺れ、上下の速度の揺れ、歩調
+    private static final double WALK_SPEED = 1.4; // m/s
+    private static final double WALK_SURGE = 0.15; // m/s
+    private static final double WALK_BOUNCE = 0.12; // m/s
+    private static final double STEP_HZ = 2.0;
+    // 回転: z 軸の角速度、x 軸の揺れの振幅と周波数
+    private static final double TURN_RATE = 90.0; // deg/s
+    private static final double WOBBLE_RATE = 25.0; // deg/s
+    private static final double WOBBLE_HZ = 0.5;
+    // 区間の始めと終わりで速度・角速度をなめらかに立ち上げる時間
+    private static final double RAMP_SECONDS = 1.0;
+
+    private final float rateHz;
+    private final long periodNs;
+    private final long seed;
+    private final List<Segment> segments = new ArrayList<>();
+    private long totalNs = 0;
+
+    private float accelNoise = 0;
+    private float gyroNoise = 0;
+    private final float[] accelBias = new float[3];
+    private final float[] gyroBias = new float[3];
+    private long jitterNs = 0;
+    private double initialRoll, initialPitch, initialYaw;
+
+    // 生成の進み具合
+    private Random random;
+    private long index;
+    private int segmentIndex;
+    private long lastTime;
+    private final double[] q = new double[4];
+    private final double[] position = new double[3];
+    private double distance;
+    private final double[] velocity = new double[3];
+    private final double[] velocityStart = new double[3];
+    private final double[] velocityMid = new double[3];
+    private final double[] accel = new double[3];
+    private final double[] rate = new double[3];
+    private final double[] rotation = new double[9];
+
+    private static final class Segment {
+        final Motion motion;
+        final long startNs;
+        final long durationNs;
+        double heading; // 歩行方向（世界座標の x 軸からの角度）。区間に入ったときに決める
+
+        Segment(Motion motion, long startNs, long durationNs) {
+            this.motion = motion;
+            this.startNs = startNs;
+            this.durationNs = durationNs;
+        }
+    }
+
+    public ImuTraceGenerator(float rateHz, long seed) {
+        if (rateHz < MIN_RATE_HZ || rateHz > MAX_RATE_HZ) {
+            throw new IllegalArgumentException("rateHz must be in [" + MIN_RATE_HZ + ", " + MAX_RATE_HZ + "]: " + rateHz);
+        }
+        this.rateHz = rateHz;
+        this.periodNs = Math.round(1e9 / rateHz);
+        this.seed = seed;
+        restart();
+    }
+
+    public void addSegment(Motion motion, float seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("seconds must be positive: " + seconds);
+        }
+        long duration = Math.round(seconds * 1e9);
+        segments.add(new Segment(motion, totalNs, duration));
+        totalNs += duration;
+    }
+
+    // 加速度 [m/s²]・ジャイロ [deg/s] に加える白色ノイズの標準偏差
+    public void setNoise(float accelStdDev, float gyroStdDev) {
+        accelNoise = accelStdDev;
+        gyroNoise = gyroStdDev;
+    }
+
+    public void setAccelBias(float x, float y, float z) {
+        accelBias[0] = x;
+        accelBias[1] = y;
+        accelBias[2] = z;
+    }
+
+    public void setGyroBias(float x, float y, float z) {
+        gyroBias[0] = x;
+        gyroBias[1] = y;
+        gyroBias[2] = z;
+    }
+
+    // タイムスタンプを ±maxNs の一様乱数でずらす（順序は保つ）
+    public void setTimestampJitter(long maxNs) {
+        if (maxNs < 0 || maxNs >= periodNs / 2) {
+            throw new IllegalArgumentException("jitter must be in [0, period / 2): " + maxNs);
+        }
+        jitterNs = maxNs;
+    }
+
+    // 開始時の姿勢（ラジアン、ZYX 順）。restart() で反映される
+    public void setInitialOrientation(float roll, float pitch, float yaw) {
+        initialRoll = roll;
+        initialPitch = pitch;
+        initialYaw = yaw;
+        restart();
+    }
+
+    public float getRate() {
+        return rateHz;
+    }
+
+    public long getSampleCount() {
+        return totalNs / periodNs;
+    }
+
+    public float getDurationSeconds() {
+        return totalNs / 1e9f;
+    }
+
+    // 同じ乱数列で最初から生成し直す
+    public void restart() {
+        random = new Random(seed);
+        index = 0;
+        segmentIndex = -1;
+        lastTime = 0;
+        distance = 0;
+        for (int i = 0; i < 3; i++) {
+            position[i] = 0;
+        }
+        double cr = Math.cos(initialRoll * 0.5), sr = Math.sin(initialRoll * 0.5);
+        double cp = Math.cos(initialPitch * 0.5), sp = Math.sin(initialPitch * 0.5);
+        double cy = Math.cos(initialYaw * 0.5), sy = Math.sin(initialYaw * 0.5);
+        q[0] = cr * cp * cy + sr * sp * sy;
+        q[1] = sr * cp * cy - cr * sp * sy;
+        q[2] = cr * sp * cy + sr * cp * sy;
+        q[3] = cr * cp * sy - sr * sp * cy;
+    }
+
+    // 次のサンプルを measured（timestamp / accel / gyro）と truth（全項目）に書き込む。終端なら false。
+    // truth.motion は [vx, vy, vz, px, py, pz, 水平移動距離] で DistanceCalculator の出力と同じ並び
+    public boolean next(SessionRecord measured, SessionRecord truth) {
+        if (index >= getSampleCount()) {
+            return false;
+        }
+        long nominal = index * periodNs;
+        long t = nominal;
+        if (jitterNs > 0 && index > 0) {
+            t += (long) ((random.nextDouble() * 2 - 1) * jitterNs);
+        }
+        enterSegment(t);
+
+        if (index > 0) {
+            // 姿勢: 区間の中点の角速度で回す。位置・距離: 速度をシンプソン則で積分する
+            long mid = (lastTime + t) / 2;
+            double dt = (t - lastTime) / 1e9;
+            angularRate(mid, rate);
+            rotate(rate, dt);
+            velocityAt(lastTime, velocityStart);
+            velocityAt(mid, velocityMid);
+            velocityAt(t, velocity);
+            for (int i = 0; i < 3; i++) {
+                position[i] += dt / 6 * (velocityStart[i] + 4 * velocityMid[i] + velocity[i]);
+            }
+            distance += dt / 6 * (Math.hypot(velocityStart[0], velocityStart[1]) + 4 * Math.hypot(velocityMid[0], velocityMid[1])
+                    + Math.hypot(velocity[0], velocity[1]));
+        } else {
+            velocityAt(t, velocity);
+        }
+        lastTime = t;
+
+        accelerationAt(t, accel);
+        angularRate(t, rate);
+        rotationMatrix(rotation);
+
+        // 加速度計は比力（線形加速度 + 重力の反力）をセンサー座標系で測る: a_s = Rᵀ (a_w + g)
+        double fx = accel[0], fy = accel[1], fz = accel[2] + GRAVITY;
+        truth.timestamp = t;
+        measured.timestamp = t;
+        for (int i = 0; i < 3; i++) {
+            float trueAccel = (float) (rotation[i] * fx + rotation[3 + i] * fy + rotation[6 + i] * fz);
+            float trueGyro = (float) rate[i];
+            truth.accel[i] = trueAccel;
+            truth.gyro[i] = trueGyro;
+            measured.accel[i] = trueAccel + accelBias[i] + (float) random.nextGaussian() * accelNoise;
+            measured.gyro[i] = trueGyro + gyroBias[i] + (float) random.nextGaussian() * gyroNoise;
+            truth.worldAccel[i] = (float) accel[i];
+            truth.motion[i] = (float) velocity[i];
+            truth.motion[3 + i] = (float) position[i];
+        }
+        truth.motion[6] = (float) distance;
+        for (int i = 0; i < 4; i++) {
+            truth.quaternion[i] = (float) q[i];
+        }
+        truth.moving = segments.get(segmentIndex).motion == Motion.WALKING;
+        index++;
+        return true;
+    }
+
+    private void enterSegment(long t) {
+        int target = segmentAt(t);
+        while (segmentIndex < target) {
+            segmentIndex++;
+            rotationMatrix(rotation);
+            // 端末の x 軸を水平面に投影した向きへ歩く
+            segments.get(segmentIndex).heading = Math.atan2(rotation[3], rotation[0]);
+        }
+    }
+
+    private int segmentAt(long t) {
+        int i = Math.max(segmentIndex, 0);
+        while (i < segments.size() - 1 && t >= segments.get(i).startNs + segments.get(i).durationNs) {
+            i++;
+        }
+        while (i > 0 && t < segments.get(i).startNs) {
+            i--;
+        }
+        return i;
+    }
+
+    // 区間の両端で 0、内側で 1 になる立ち上がり・立ち下がりの包絡線とその微分
+    private static double envelope(double tau, double duration) {
+        double ramp = Math.min(RAMP_SECONDS, duration / 2);
+        if (tau < ramp) {
+            return (1 - Math.cos(Math.PI * tau / ramp)) / 2;
+        }
+        if (tau > duration - ramp) {
+            return (1 - Math.cos(Math.PI * (duration - tau) / ramp)) / 2;
+        }
+        return 1;
+    }
+
+    private static double envelopeSlope(double tau, double duration) {
+        double ramp = Math.min(RAMP_SECONDS, duration / 2);
+        if (tau < ramp) {
+            return Math.PI / (2 * ramp) * Math.sin(Math.PI * tau / ramp);
+        }
+        if (tau > duration - ramp) {
+            return -Math.PI / (2 * ramp) * Math.sin(Math.PI * (duration - tau) / ramp);
+        }
+        return 0;
+    }
+
+    private void velocityAt(long t, double[] out) {
+        Segment segment = segments.get(segmentAt(t));
+        out[0] = out[1] = out[2] = 0;
+        if (segment.motion != Motion.WALKING) {
+            return;
+        }
+        double tau = (t - segment.startNs) / 1e9;
+        double duration = segment.durationNs / 1e9;
+        double s = envelope(tau, duration);
+        double w = 2 * Math.PI * STEP_HZ;
+        double forward = s * (WALK_SPEED + WALK_SURGE * Math.sin(w * tau));
+        out[0] = forward * Math.cos(segment.heading);
+        out[1] = forward * Math.sin(segment.heading);
+        out[2] = s * WALK_BOUNCE * Math.sin(2 * w * tau);
+    }
+
+    private void accelerationAt(long t, double[] out) {
+        Segment segment = segments.get(segmentAt(t));
+        out[0] = out[1] = out[2] = 0;
+        if (segment.motion != Motion.WALKING) {
+            return;
+        }
+        double tau = (t - segment.startNs) / 1e9;
+        double duration = segment.durationNs / 1e9;
+        double s = envelope(tau, duration);
+        double ds = envelopeSlope(tau, duration);
+        double w = 2 * Math.PI * STEP_HZ;
+        double forward = ds * (WALK_SPEED + WALK_SURGE * Math.sin(w * tau)) + s * WALK_SURGE * w * Math.cos(w * tau);
+        out[0] = forward * Math.cos(segment.heading);
+        out[1] = forward * Math.sin(segment.heading);
+        out[2] = ds * WALK_BOUNCE * Math.sin(2 * w * tau) + s * WALK_BOUNCE * 2 * w * Math.cos(2 * w * tau);
+    }
+
+    // センサー座標系の角速度 [deg/s]
+    private void angularRate(long t, double[] out) {
+        Segment segment = segments.get(segmentAt(t));
+        out[0] = out[1] = out[2] = 0;
+        if (segment.motion != Motion.ROTATING) {
+            return;
+        }
+        double tau = (t - segment.startNs) / 1e9;
+        double s = envelope(tau, segment.durationNs / 1e9);
+        out[0] = s * WOBBLE_RATE * Math.sin(2 * Math.PI * WOBBLE_HZ * tau);
+        out[2] = s * TURN_RATE;
+    }
+
+    // q ← q ⊗ exp(ω dt / 2)
+    private void rotate(double[] rateDeg, double dt) {
+        double wx = Math.toRadians(rateDeg[0]), wy = Math.toRadians(rateDeg[1]), wz = Math.toRadians(rateDeg[2]);
+        double norm = Math.sqrt(wx * wx + wy * wy + wz * wz);
+        if (norm == 0) {
+            return;
+        }
+        double half = norm * dt / 2;
+        double c = Math.cos(half);
+        double k = Math.sin(half) / norm;
+        double dx = wx * k, dy = wy * k, dz = wz * k;
+        double a = q[0], b = q[1], cc = q[2], d = q[3];
+        q[0] = a * c - b * dx - cc * dy - d * dz;
+        q[1] = a * dx + b * c + cc * dz - d * dy;
+        q[2] = a * dy - b * dz + cc * c + d * dx;
+        q[3] = a * dz + b * dy - cc * dx + d * c;
+        double n = Math.sqrt(q[0] * q[0] + q[1] * q[1] + q[2] * q[2] + q[3] * q[3]);
+        for (int i = 0; i < 4; i++) {
+            q[i] /= n;
+        }
+    }
+
+    // センサー座標 → 世界座標（MadgwickFilter.getRotationMatrix と同じ並び）
+    private void rotationMatrix(double[] r) {
+        double q0 = q[0], q1 = q[1], q2 = q[2], q3 = q[3];
+        r[0] = 1 - 2 * (q2 * q2 + q3 * q3);
+        r[1] = 2 * (q1 * q2 - q0 * q3);
+        r[2] = 2 * (q1 * q3 + q0 * q2);
+        r[3] = 2 * (q1 * q2 + q0 * q3);
+        r[4] = 1 - 2 * (q1 * q1 + q3 * q3);
+        r[5] = 2 * (q2 * q3 - q0 * q1);
+        r[6] = 2 * (q1 * q3 - q0 * q2);
+        r[7] = 2 * (q2 * q3 + q0 * q1);
+        r[8] = 1 - 2 * (q1 * q1 + q2 * q2);
+    }
+}
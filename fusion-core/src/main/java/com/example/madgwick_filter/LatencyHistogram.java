@@ -0,0 +1,97 @@
+package com.example.madgwick_filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ナノ秒の値を固定の対数バケットに数えるヒストグラム。2 倍ごとの区間を 4 分割する（相対誤差 25% 以内）。
+// 記録は 1 スレッドから、読み出し（スナップショット）は任意のスレッドから。記録は確保なし
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 4;
+    static final int BUCKETS = 62 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        int index = bucketOf(nanos);
+        counts.lazySet(index, counts.get(index) + 1);
+        count.lazySet(count.get() + 1);
+        sum.lazySet(sum.get() + Math.max(0, nanos));
+        if (nanos > max.get()) {
+            max.lazySet(nanos);
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return nanos <= 0 ? 0 : (int) nanos;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        return (msb - 1) * SUB_BUCKETS + (int) ((nanos >>> (msb - 2)) & (SUB_BUCKETS - 1));
+    }
+
+    // バケットに入る最小値
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int msb = index / SUB_BUCKETS + 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (msb - 2);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / (double) n;
+    }
+
+    // 累積が fraction（0〜1）に達するバケットの上端。記録がなければ 0
+    public long getPercentile(double fraction) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                long upper = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(upper, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // other の記録を足し込む（スレッドごとのヒストグラムの集計用）。両方の記録スレッドが止まっているときに呼ぶ
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, counts.get(i) + other.counts.get(i));
+        }
+        count.set(count.get() + other.count.get());
+        sum.set(sum.get() + other.sum.get());
+        max.set(Math.max(max.get(), other.max.get()));
+    }
+
+    // 記録スレッドが止まっているときに呼ぶ
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 固定容量の long リングバッファ。満杯時は最古の要素を上書きする（ボクシング・確保なし）
+public class LongRingBuffer {
+    private final long[] values;
+    private int head = 0; // 次に書き込む位置
+    private int size = 0;
+
+    public LongRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        values = new long[capacity];
+    }
+
+    public void add(long value) {
+        values[head] = value;
+        head = (head + 1) % values.length;
+        if (size < values.length) {
+            size++;
+        }
+    }
+
+    // index 0 が最古、size() - 1 が最新
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return values[(head - size + index + values.length) % values.length];
+    }
+
+    public long oldest() {
+        return get(0);
+    }
+
+    public long newest() {
+        return get(size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isFull() {
+        return size == values.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // 状態の保存・復元（容量、要素数、最古から順の値）
+    public void saveState(ByteBuffer out) {
+        out.putInt(values.length);
+        out.putInt(size);
+        for (int i = 0; i < size; i++) {
+            out.putLong(get(i));
+        }
+    }
+
+    public void restoreState(ByteBuffer in) {
+        int capacity = in.getInt();
+        int count = in.getInt();
+        if (capacity != values.length || count < 0 || count > capacity) {
+            throw new IllegalArgumentException("ring buffer capacity " + capacity + ", size " + count
+                    + " does not match capacity " + values.length);
+        }
+        clear();
+        for (int i = 0; i < count; i++) {
+            add(in.getLong());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.madgwick_filter;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// 多数のデバイス分の Madgwick フィルタ状態をプリミティブ配列（structure-of-arrays）で保持し、
+// 1 tick につき 1 回の呼び出しで全ストリームを進める。既定のカーネルでは計算は MadgwickFilter.update と同一。
+// addStream/removeStream/setSample/update は同じ（tick を回す）スレッドから呼ぶこと
+public class MadgwickBatchEngine {
+    private static final float BETA = 0.04f; // MadgwickFilter と同じゲイン
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final BatchKernel kernel;
+
+    // ストリームごとの状態と今回 tick の入力（インデックス = ストリーム ID）
+    private float[] q0, q1, q2, q3;
+    private float[] ax, ay, az, gx, gy, gz;
+    private boolean[] pending; // 今回 tick で更新する入力があるか
+    private boolean[] active;
+
+    private int[] freeIds = new int[16];
+    private int freeCount = 0;
+    private int highWater = 0; // これまでに払い出した ID の上限（未満を走査する）
+    private int streamCount = 0;
+
+    public MadgwickBatchEngine() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public MadgwickBatchEngine(ForkJoinPool pool, int parallelThreshold) {
+        this(pool, parallelThreshold, new ScalarBatchKernel(MathKernels.FAST));
+    }
+
+    // kernel: ScalarBatchKernel（MathKernels で精度を選択）や :fusion-simd の VectorBatchKernel
+    public MadgwickBatchEngine(ForkJoinPool pool, int parallelThreshold, BatchKernel kernel) {
+        this.pool = pool;
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.kernel = kernel;
+        allocate(64);
+    }
+
+    private void allocate(int capacity) {
+        q0 = grow(q0, capacity);
+        q1 = grow(q1, capacity);
+        q2 = grow(q2, capacity);
+        q3 = grow(q3, capacity);
+        ax = grow(ax, capacity);
+        ay = grow(ay, capacity);
+        az = grow(az, capacity);
+        gx = grow(gx, capacity);
+        gy = grow(gy, capacity);
+        gz = grow(gz, capacity);
+        pending = pending == null ? new boolean[capacity] : Arrays.copyOf(pending, capacity);
+        active = active == null ? new boolean[capacity] : Arrays.copyOf(active, capacity);
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    // 新しいストリームを単位クォータニオンで追加し、その ID を返す。削除済み ID は再利用する
+    public int addStream() {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (highWater == q0.length) {
+                allocate(q0.length * 2);
+            }
+            id = highWater++;
+        }
+        q0[id] = 1.0f;
+        q1[id] = q2[id] = q3[id] = 0.0f;
+        pending[id] = false;
+        active[id] = true;
+        streamCount++;
+        return id;
+    }
+
+    public void removeStream(int id) {
+        checkActive(id);
+        active[id] = false;
+        pending[id] = false;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+        streamCount--;
+    }
+
+    public int getStreamCount() {
+        return streamCount;
+    }
+
+    public boolean isActive(int id) {
+        return id >= 0 && id < highWater && active[id];
+    }
+
+    // 次の update で使う入力を設定する（ジャイロは deg/s、MadgwickFilter と同じ）
+    public void setSample(int id, float[] accel, float[] gyro) {
+        checkActive(id);
+        ax[id] = accel[0];
+        ay[id] = accel[1];
+        az[id] = accel[2];
+        gx[id] = gyro[0];
+        gy[id] = gyro[1];
+        gz[id] = gyro[2];
+        pending[id] = true;
+    }
+
+    public float[] getQuaternion(int id, float[] out) {
+        checkActive(id);
+        out[0] = q0[id];
+        out[1] = q1[id];
+        out[2] = q2[id];
+        out[3] = q3[id];
+        return out;
+    }
+
+    public void resetStream(int id) {
+        checkActive(id);
+        q0[id] = 1.0f;
+        q1[id] = q2[id] = q3[id] = 0.0f;
+        pending[id] = false;
+    }
+
+    private void checkActive(int id) {
+        if (!isActive(id)) {
+            throw new IllegalArgumentException("Unknown stream id: " + id);
+        }
+    }
+
+    // setSample されたストリームをすべて 1 ステップ進める。ストリーム数が閾値を超えると fork/join で分割する
+    public void update(float sampleFreq) {
+        if (highWater <= parallelThreshold) {
+            updateRange(0, highWater, sampleFreq);
+        } else {
+            pool.invoke(new Shard(0, highWater, sampleFreq));
+        }
+    }
+
+    private final class Shard extends RecursiveAction {
+        private final int from, to;
+        private final float sampleFreq;
+
+        Shard(int from, int to, float sampleFreq) {
+            this.from = from;
+            this.to = to;
+            this.sampleFreq = sampleFreq;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= parallelThreshold) {
+                updateRange(from, to, sampleFreq);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Shard(from, mid, sampleFreq), new Shard(mid, to, sampleFreq));
+            }
+        }
+    }
+
+    private void updateRange(int from, int to, float sampleFreq) {
+        kernel.update(q0, q1, q2, q3, ax, ay, az, gx, gy, gz, pending, from, to, BETA, sampleFreq);
+    }
+}
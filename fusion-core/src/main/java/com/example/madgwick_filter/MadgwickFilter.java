@@ -0,0 +1,402 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class MadgwickFilter {
+    private static final float BETA = 0.04f; // Filter gain
+    private static final float GRAVITY = 9.81f;
+    private static final float EPSILON = 0.01f; // 世界座標加速度のノイズ除去閾値、適宜調整が必要
+
+    private float q0 = 1.0f, q1 = 0.0f, q2 = 0.0f, q3 = 0.0f; // Quaternion
+    private final float[] accel = new float[3];
+    private final float[] gyro = new float[3];
+    private final MathKernel math;
+    private final float[] stepResult = new float[4]; // gradientStep の出力
+
+    // 起動直後の収束を速める設定（既定ではどちらも無効: 単位クォータニオンから BETA で開始）
+    private int initSamples = 0;
+    private float warmupBeta = BETA;
+    private float warmupSeconds = 0;
+    private int initCount = 0;
+    private float initSumX, initSumY, initSumZ;
+    private float warmupElapsed = 0;
+
+    // クォータニオンから導出する量のキャッシュ。姿勢か入力が変わったら無効にし、最初に要求されたときに 1 回だけ計算する
+    private final float[] rotation = new float[9]; // 回転行列 R（センサー座標 → 世界座標、行優先）
+    private final float[] gravity = new float[3]; // センサー座標系での重力方向
+    private final float[] linearAccel = new float[3]; // 重力を除いたセンサー座標系の加速度
+    private final float[] worldAccel = new float[3];
+    private final float[] euler = new float[3]; // [roll, pitch, yaw] ラジアン
+    private boolean rotationValid = false;
+    private boolean accelValid = false;
+    private boolean eulerValid = false;
+
+    public MadgwickFilter() {
+        this(MathKernels.FAST);
+    }
+
+    // 逆平方根の実装を選ぶ（MathKernels.EXACT / MathKernels.fast(n)）
+    public MadgwickFilter(MathKernel math) {
+        this.math = math;
+    }
+
+    // 最初の samples 個の加速度の平均から初期姿勢（ロール・ピッチ、ヨーは 0）を決める。
+    // その間は加速度だけで姿勢を置き直し、ジャイロの積分は行わない。reset() 後もやり直す
+    public void setAccelerometerInitialization(int samples) {
+        if (samples < 0) {
+            throw new IllegalArgumentException("samples must not be negative");
+        }
+        initSamples = samples;
+    }
+
+    // 初期化後のゲインを initialBeta から始め、seconds 秒（積分した時間）かけて BETA まで線形に下げる
+    public void setWarmup(float initialBeta, float seconds) {
+        if (initialBeta < BETA || seconds < 0) {
+            throw new IllegalArgumentException("initialBeta must be >= " + BETA + " and seconds >= 0");
+        }
+        warmupBeta = initialBeta;
+        warmupSeconds = seconds;
+    }
+
+    // 加速度（重力方向）から姿勢を直接設定する
+    public void initializeFromAccelerometer(float ax, float ay, float az) {
+        if (ax == 0.0f && ay == 0.0f && az == 0.0f) {
+            return;
+        }
+        double roll = Math.atan2(ay, az);
+        double pitch = Math.atan2(-ax, Math.sqrt(ay * ay + az * az));
+        double cr = Math.cos(roll * 0.5), sr = Math.sin(roll * 0.5);
+        double cp = Math.cos(pitch * 0.5), sp = Math.sin(pitch * 0.5);
+        q0 = (float) (cr * cp);
+        q1 = (float) (sr * cp);
+        q2 = (float) (cr * sp);
+        q3 = (float) (-sr * sp);
+        invalidate();
+    }
+
+    // 初期化中またはウォームアップ中（定常ゲインになる前）か
+    public boolean isConverging() {
+        return initCount < initSamples || warmupElapsed < warmupSeconds;
+    }
+
+    public void update(float[] accel, float[] gyro, float sampleFreq) {
+        step(accel[0], accel[1], accel[2], gyro[0], gyro[1], gyro[2], sampleFreq);
+
+        // Update instance variables (copied so callers can reuse their buffers)
+        System.arraycopy(accel, 0, this.accel, 0, 3);
+        System.arraycopy(gyro, 0, this.gyro, 0, 3);
+        // 入力が変わったので派生値を作り直す（初期化中に読み飛ばしたサンプルで step() が何もしなかった場合も）
+        invalidate();
+    }
+
+    // N サンプルをまとめて更新する（センサーの FIFO バッチ配信向け）。
+    // accel / gyro は [x0, y0, z0, x1, ...] と詰めた配列、sampleFreq はサンプルごとの更新周波数。
+    // 各サンプル後のクォータニオン（4N）と世界座標加速度（3N）を書き込む。不要な出力は null でよい
+    public void updateBatch(float[] accel, float[] gyro, float[] sampleFreq, int count,
+                            float[] quaternionOut, float[] worldAccelOut) {
+        for (int i = 0; i < count; i++) {
+            int v = i * 3;
+            step(accel[v], accel[v + 1], accel[v + 2], gyro[v], gyro[v + 1], gyro[v + 2], sampleFreq[i]);
+            if (quaternionOut != null) {
+                int q = i * 4;
+                quaternionOut[q] = q0;
+                quaternionOut[q + 1] = q1;
+                quaternionOut[q + 2] = q2;
+                quaternionOut[q + 3] = q3;
+            }
+            if (worldAccelOut != null) {
+                ensureRotation();
+                transform(accel[v], accel[v + 1], accel[v + 2], null, worldAccelOut, v);
+            }
+        }
+        if (count > 0) {
+            int last = (count - 1) * 3;
+            System.arraycopy(accel, last, this.accel, 0, 3);
+            System.arraycopy(gyro, last, this.gyro, 0, 3);
+            invalidate();
+        }
+    }
+
+    private void step(float ax, float ay, float az, float gxDeg, float gyDeg, float gzDeg, float sampleFreq) {
+        if (initCount < initSamples) {
+            if (!((ax == 0.0f) && (ay == 0.0f) && (az == 0.0f))) {
+                initSumX += ax;
+                initSumY += ay;
+                initSumZ += az;
+                initCount++;
+                initializeFromAccelerometer(initSumX, initSumY, initSumZ);
+            }
+            return;
+        }
+        float beta = currentBeta(sampleFreq);
+
+        gradientStep(math, q0, q1, q2, q3, ax, ay, az, gxDeg, gyDeg, gzDeg, beta, sampleFreq, stepResult);
+        q0 = stepResult[0];
+        q1 = stepResult[1];
+        q2 = stepResult[2];
+        q3 = stepResult[3];
+        invalidate();
+    }
+
+    // Madgwick の 1 ステップ（ジャイロの積分・加速度による勾配降下の補正・正規化）。
+    // q0..q3 から進めた姿勢を out[0..3] に書く。ScalarBatchKernel も同じ計算をこれで行う
+    static void gradientStep(MathKernel math, float q0, float q1, float q2, float q3,
+                             float ax, float ay, float az, float gxDeg, float gyDeg, float gzDeg,
+                             float beta, float sampleFreq, float[] out) {
+        float recipNorm;
+        float s0, s1, s2, s3;
+        float qDot1, qDot2, qDot3, qDot4;
+        float _2q0, _2q1, _2q2, _2q3, _4q0, _4q1, _4q2, _8q1, _8q2, q0q0, q1q1, q2q2, q3q3;
+
+        // Convert gyroscope degrees/sec to radians/sec
+        float gx = gxDeg * 0.017453292f;
+        float gy = gyDeg * 0.017453292f;
+        float gz = gzDeg * 0.017453292f;
+
+        // Rate of change of quaternion from gyroscope
+        qDot1 = 0.5f * (-q1 * gx - q2 * gy - q3 * gz);
+        qDot2 = 0.5f * (q0 * gx + q2 * gz - q3 * gy);
+        qDot3 = 0.5f * (q0 * gy - q1 * gz + q3 * gx);
+        qDot4 = 0.5f * (q0 * gz + q1 * gy - q2 * gx);
+
+        // Compute feedback only if accelerometer measurement valid (avoids NaN in accelerometer normalisation)
+        if (!((ax == 0.0f) && (ay == 0.0f) && (az == 0.0f))) {
+            // Normalise accelerometer measurement
+            recipNorm = math.invSqrt(ax * ax + ay * ay + az * az);
+            ax *= recipNorm;
+            ay *= recipNorm;
+            az *= recipNorm;
+
+            // Auxiliary variables to avoid repeated arithmetic
+            _2q0 = 2.0f * q0;
+            _2q1 = 2.0f * q1;
+            _2q2 = 2.0f * q2;
+            _2q3 = 2.0f * q3;
+            _4q0 = 4.0f * q0;
+            _4q1 = 4.0f * q1;
+            _4q2 = 4.0f * q2;
+            _8q1 = 8.0f * q1;
+            _8q2 = 8.0f * q2;
+            q0q0 = q0 * q0;
+            q1q1 = q1 * q1;
+            q2q2 = q2 * q2;
+            q3q3 = q3 * q3;
+
+            // Gradient decent algorithm corrective step
+            s0 = _4q0 * q2q2 + _2q2 * ax + _4q0 * q1q1 - _2q1 * ay;
+            s1 = _4q1 * q3q3 - _2q3 * ax + 4.0f * q0q0 * q1 - _2q0 * ay - _4q1 + _8q1 * q1q1 + _8q1 * q2q2 + _4q1 * az;
+            s2 = 4.0f * q0q0 * q2 + _2q0 * ax + _4q2 * q3q3 - _2q3 * ay - _4q2 + _8q2 * q1q1 + _8q2 * q2q2 + _4q2 * az;
+            s3 = 4.0f * q1q1 * q3 - _2q1 * ax + 4.0f * q2q2 * q3 - _2q2 * ay;
+
+            recipNorm = math.invSqrt(s0 * s0 + s1 * s1 + s2 * s2 + s3 * s3); // normalise step magnitude
+            s0 *= recipNorm;
+            s1 *= recipNorm;
+            s2 *= recipNorm;
+            s3 *= recipNorm;
+
+            // Apply feedback step
+            qDot1 -= beta * s0;
+            qDot2 -= beta * s1;
+            qDot3 -= beta * s2;
+            qDot4 -= beta * s3;
+        }
+
+        // Integrate rate of change of quaternion to yield quaternion
+        q0 += qDot1 * (1.0f / sampleFreq);
+        q1 += qDot2 * (1.0f / sampleFreq);
+        q2 += qDot3 * (1.0f / sampleFreq);
+        q3 += qDot4 * (1.0f / sampleFreq);
+
+        // Normalise quaternion
+        recipNorm = math.invSqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3);
+        out[0] = q0 * recipNorm;
+        out[1] = q1 * recipNorm;
+        out[2] = q2 * recipNorm;
+        out[3] = q3 * recipNorm;
+    }
+
+    private float currentBeta(float sampleFreq) {
+        if (warmupElapsed >= warmupSeconds) {
+            return BETA;
+        }
+        float beta = warmupBeta + (BETA - warmupBeta) * (warmupElapsed / warmupSeconds);
+        warmupElapsed += 1.0f / sampleFreq;
+        return beta;
+    }
+
+    public float[] getQuaternion() {
+        return getQuaternion(new float[4]);
+    }
+
+    // 呼び出し側のバッファに書き込む版（毎サンプルの配列確保を避ける）
+    public float[] getQuaternion(float[] out) {
+        out[0] = q0;
+        out[1] = q1;
+        out[2] = q2;
+        out[3] = q3;
+        return out;
+    }
+
+    public float[] getGravityVector() {
+        return getGravityVector(new float[3]);
+    }
+
+    public float[] getGravityVector(float[] out) {
+        ensureRotation();
+        System.arraycopy(gravity, 0, out, 0, 3);
+        return out;
+    }
+
+    public float[] getRotationMatrix() {
+        return getRotationMatrix(new float[9]);
+    }
+
+    // センサー座標 → 世界座標の回転行列（行優先の 3x3）
+    public float[] getRotationMatrix(float[] out) {
+        ensureRotation();
+        System.arraycopy(rotation, 0, out, 0, 9);
+        return out;
+    }
+
+    public float[] getEulerAngles() {
+        return getEulerAngles(new float[3]);
+    }
+
+    // [roll, pitch, yaw]（ラジアン、ZYX 順）
+    public float[] getEulerAngles(float[] out) {
+        if (!eulerValid) {
+            ensureRotation();
+            euler[0] = (float) Math.atan2(rotation[7], rotation[8]);
+            euler[1] = (float) Math.asin(Math.max(-1f, Math.min(1f, -rotation[6])));
+            euler[2] = (float) Math.atan2(rotation[3], rotation[0]);
+            eulerValid = true;
+        }
+        System.arraycopy(euler, 0, out, 0, 3);
+        return out;
+    }
+
+    public float[] getLinearAcceleration() {
+        return getLinearAcceleration(new float[3]);
+    }
+
+    // 直近の加速度から重力を除いた値（センサー座標系）
+    public float[] getLinearAcceleration(float[] out) {
+        ensureAccel();
+        System.arraycopy(linearAccel, 0, out, 0, 3);
+        return out;
+    }
+
+    public float[] getWorldAcceleration() {
+        return getWorldAcceleration(new float[3]);
+    }
+
+    public float[] getWorldAcceleration(float[] out) {
+        ensureAccel();
+        System.arraycopy(worldAccel, 0, out, 0, 3);
+        return out;
+    }
+
+    private void invalidate() {
+        rotationValid = false;
+        accelValid = false;
+        eulerValid = false;
+    }
+
+    private void ensureRotation() {
+        if (rotationValid) {
+            return;
+        }
+        gravity[0] = 2 * (q1 * q3 - q0 * q2);
+        gravity[1] = 2 * (q0 * q1 + q2 * q3);
+        gravity[2] = q0 * q0 - q1 * q1 - q2 * q2 + q3 * q3;
+
+        rotation[0] = 1 - 2 * (q2 * q2 + q3 * q3);
+        rotation[1] = 2 * (q1 * q2 - q0 * q3);
+        rotation[2] = 2 * (q1 * q3 + q0 * q2);
+        rotation[3] = 2 * (q1 * q2 + q0 * q3);
+        rotation[4] = 1 - 2 * (q1 * q1 + q3 * q3);
+        rotation[5] = 2 * (q2 * q3 - q0 * q1);
+        rotation[6] = 2 * (q1 * q3 - q0 * q2);
+        rotation[7] = 2 * (q2 * q3 + q0 * q1);
+        rotation[8] = 1 - 2 * (q1 * q1 + q2 * q2);
+        rotationValid = true;
+    }
+
+    private void ensureAccel() {
+        if (accelValid) {
+            return;
+        }
+        ensureRotation();
+        transform(accel[0], accel[1], accel[2], linearAccel, worldAccel, 0);
+        accelValid = true;
+    }
+
+    // ensureRotation() 後に呼ぶ。linearOut は null でもよい
+    private void transform(float ax, float ay, float az, float[] linearOut, float[] worldOut, int off) {
+        // ローカル加速度から重力を除去
+        float lx = ax - gravity[0] * GRAVITY;
+        float ly = ay - gravity[1] * GRAVITY;
+        float lz = az - gravity[2] * GRAVITY;
+        if (linearOut != null) {
+            linearOut[0] = lx;
+            linearOut[1] = ly;
+            linearOut[2] = lz;
+        }
+
+        // 重力を除去したローカル加速度を世界座標系に変換
+        float wx = rotation[0] * lx + rotation[1] * ly + rotation[2] * lz;
+        float wy = rotation[3] * lx + rotation[4] * ly + rotation[5] * lz;
+        float wz = rotation[6] * lx + rotation[7] * ly + rotation[8] * lz;
+
+        // 小さな値をゼロにする（ノイズ除去）
+        worldOut[off] = Math.abs(wx) < EPSILON ? 0 : wx;
+        worldOut[off + 1] = Math.abs(wy) < EPSILON ? 0 : wy;
+        worldOut[off + 2] = Math.abs(wz) < EPSILON ? 0 : wz;
+    }
+
+    // 姿勢と初期化・ウォームアップの進み具合を保存する（ゲインなどの設定は含まない）
+    public void saveState(ByteBuffer out) {
+        out.putFloat(q0);
+        out.putFloat(q1);
+        out.putFloat(q2);
+        out.putFloat(q3);
+        for (int i = 0; i < 3; i++) {
+            out.putFloat(accel[i]);
+            out.putFloat(gyro[i]);
+        }
+        out.putInt(initCount);
+        out.putFloat(initSumX);
+        out.putFloat(initSumY);
+        out.putFloat(initSumZ);
+        out.putFloat(warmupElapsed);
+    }
+
+    public void restoreState(ByteBuffer in) {
+        q0 = in.getFloat();
+        q1 = in.getFloat();
+        q2 = in.getFloat();
+        q3 = in.getFloat();
+        for (int i = 0; i < 3; i++) {
+            accel[i] = in.getFloat();
+            gyro[i] = in.getFloat();
+        }
+        initCount = in.getInt();
+        initSumX = in.getFloat();
+        initSumY = in.getFloat();
+        initSumZ = in.getFloat();
+        warmupElapsed = in.getFloat();
+        invalidate();
+    }
+
+    public void reset() {
+        q0 = 1.0f;
+        q1 = q2 = q3 = 0.0f;
+        initCount = 0;
+        initSumX = initSumY = initSumZ = 0;
+        warmupElapsed = 0;
+        Arrays.fill(accel, 0.0f);
+        Arrays.fill(gyro, 0.0f);
+        invalidate();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.example.madgwick_filter;
+
+// フィルタ内で使う逆平方根の実装。MathKernels の定義済み実装から選ぶ
+public interface MathKernel {
+    float invSqrt(float x);
+}
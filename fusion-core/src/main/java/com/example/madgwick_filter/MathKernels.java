@@ -0,0 +1,54 @@
+package com.example.madgwick_filter;
+
+// 逆平方根カーネルの定義済み実装。精度と速度は :benchmark の MathKernelBenchmark / KernelAccuracyReport で比較する
+public final class MathKernels {
+    // 正しく丸めた float の sqrt による 1/sqrt(x)
+    public static final MathKernel EXACT = new MathKernel() {
+        @Override
+        public float invSqrt(float x) {
+            return 1.0f / (float) Math.sqrt(x);
+        }
+
+        @Override
+        public String toString() {
+            return "exact";
+        }
+    };
+
+    // 0x5f3759df の近似 + Newton 法 1 回（従来の MadgwickFilter.invSqrt と同じ）
+    public static final MathKernel FAST = fast(1);
+
+    private MathKernels() {
+    }
+
+    // 0x5f3759df の近似に Newton 法を iterations 回（1 以上）適用する
+    public static MathKernel fast(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1: " + iterations);
+        }
+        return new FastInvSqrt(iterations);
+    }
+
+    private static final class FastInvSqrt implements MathKernel {
+        private final int iterations;
+
+        FastInvSqrt(int iterations) {
+            this.iterations = iterations;
+        }
+
+        @Override
+        public float invSqrt(float x) {
+            float halfx = 0.5f * x;
+            float y = Float.intBitsToFloat(0x5f3759df - (Float.floatToIntBits(x) >> 1));
+            for (int i = 0; i < iterations; i++) {
+                y = y * (1.5f - halfx * y * y);
+            }
+            return y;
+        }
+
+        @Override
+        public String toString() {
+            return "fast" + iterations;
+        }
+    }
+}
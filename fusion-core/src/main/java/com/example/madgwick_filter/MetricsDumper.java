@@ -0,0 +1,64 @@
+package com.example.madgwick_filter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// FusionMetrics のスナップショットを一定間隔でファイルに追記する（専用のデーモンスレッド）。
+// 各ブロックの先頭は "# <経過秒>"、レートは前回の書き出しからの値
+public class MetricsDumper {
+    private final FusionMetrics metrics;
+    private final Writer writer;
+    private final ScheduledExecutorService executor;
+    private MetricsSnapshot previous;
+    private IOException failure;
+
+    public MetricsDumper(FusionMetrics metrics, File file, long periodMs) throws IOException {
+        this.metrics = metrics;
+        this.writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MetricsDumper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::dump, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void dump() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            MetricsSnapshot snapshot = metrics.snapshot();
+            writer.write("# " + snapshot.getElapsedNs() / 1_000_000_000L + "\n");
+            snapshot.format(writer, previous);
+            writer.flush();
+            previous = snapshot;
+        } catch (IOException e) {
+            failure = e; // 以降の書き出しは止める。close で報告する
+        }
+    }
+
+    // 最後のスナップショットを書き出してから閉じる
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            dump();
+            writer.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.madgwick_filter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// FusionMetrics のある時点の値。ヒストグラムは件数・平均・パーセンタイル・最大に要約して持つ
+public final class MetricsSnapshot {
+    public static final class Summary {
+        public final long count;
+        public final double mean;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long max;
+
+        Summary(LatencyHistogram histogram) {
+            count = histogram.getCount();
+            mean = histogram.getMean();
+            p50 = histogram.getPercentile(0.50);
+            p90 = histogram.getPercentile(0.90);
+            p99 = histogram.getPercentile(0.99);
+            max = histogram.getMax();
+        }
+    }
+
+    private final long elapsedNs;
+    private final Map<String, Summary> histograms = new LinkedHashMap<>();
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    MetricsSnapshot(long elapsedNs, Map<String, LatencyHistogram> histograms,
+                    Map<String, FusionMetrics.Counter> counters, Map<String, FusionMetrics.Gauge> gauges) {
+        this.elapsedNs = elapsedNs;
+        for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+            this.histograms.put(e.getKey(), new Summary(e.getValue()));
+        }
+        for (Map.Entry<String, FusionMetrics.Counter> e : counters.entrySet()) {
+            this.counters.put(e.getKey(), e.getValue().get());
+        }
+        for (Map.Entry<String, FusionMetrics.Gauge> e : gauges.entrySet()) {
+            this.counters.put(e.getKey(), e.getValue().get());
+        }
+    }
+
+    // FusionMetrics を作ってからの経過時間
+    public long getElapsedNs() {
+        return elapsedNs;
+    }
+
+    public Map<String, Summary> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    // カウンタとゲージの値。無ければ 0
+    public long getCount(String name) {
+        Long value = counters.get(name);
+        return value != null ? value : 0;
+    }
+
+    public Summary getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    // previous からの増分を毎秒の値にする（previous が null なら開始時から）
+    public double rate(String name, MetricsSnapshot previous) {
+        long delta = getCount(name) - (previous != null ? previous.getCount(name) : 0);
+        long interval = elapsedNs - (previous != null ? previous.elapsedNs : 0);
+        return interval > 0 ? delta * 1e9 / interval : 0;
+    }
+
+    // 1 行 1 項目のテキスト。ヒストグラムの値はマイクロ秒
+    public void format(Appendable out, MetricsSnapshot previous) throws IOException {
+        out.append(String.format(Locale.ROOT, "elapsed_s=%.1f%n", elapsedNs / 1e9));
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            out.append(String.format(Locale.ROOT, "%s=%d rate=%.1f/s%n",
+                    e.getKey(), e.getValue(), rate(e.getKey(), previous)));
+        }
+        for (Map.Entry<String, Summary> e : histograms.entrySet()) {
+            Summary s = e.getValue();
+            out.append(String.format(Locale.ROOT,
+                    "%s count=%d mean_us=%.1f p50_us=%.1f p90_us=%.1f p99_us=%.1f max_us=%.1f%n",
+                    e.getKey(), s.count, s.mean / 1e3, s.p50 / 1e3, s.p90 / 1e3, s.p99 / 1e3, s.max / 1e3));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        try {
+            format(builder, null);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// 距離積分の段: worldAccel / moving → motion
+public class MotionStage implements PipelineStage {
+    private final DistanceCalculator calculator;
+    // 間隔・間引きが設定されていれば、その間の worldAccel を平均して区間の中央の時刻で 1 回だけ積分する。
+    // 積分しないサンプルには直前の結果を入れる
+    private final SampleAverager averager = new SampleAverager();
+    private final float[] sample = new float[3];
+    private final float[] last = new float[7];
+
+    public MotionStage(DistanceCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    // 積分の最短間隔（サンプルの時刻で測る）。0 なら毎サンプル
+    public void setIntervalNs(long intervalNs) {
+        averager.setIntervalNs(intervalNs);
+        averager.clear();
+    }
+
+    // 過負荷時の間引き。間隔が設定されていればそれを n 倍に、なければ n サンプルに 1 回にする
+    public void setDecimation(int decimation) {
+        averager.setDecimation(decimation);
+        averager.clear();
+    }
+
+    @Override
+    public void process(SessionRecord record) {
+        if (averager.isPassThrough()) {
+            calculator.calculateMotion(record.worldAccel, record.moving, record.timestamp, record.motion);
+            return;
+        }
+        update(record.timestamp, record.worldAccel, 0, record.moving);
+        System.arraycopy(last, 0, record.motion, 0, 7);
+    }
+
+    @Override
+    public void processBatch(SampleBatch batch) {
+        if (averager.isPassThrough()) {
+            calculator.calculateMotionBatch(batch.worldAccel, batch.moving, batch.timestamps, batch.size(),
+                    batch.motion);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            update(batch.timestamps[i], batch.worldAccel, i * 3, batch.moving[i]);
+            System.arraycopy(last, 0, batch.motion, i * 7, 7);
+        }
+    }
+
+    private void update(long timestamp, float[] worldAccel, int offset, boolean moving) {
+        if (averager.add(timestamp, worldAccel, offset)) {
+            sample[0] = averager.x();
+            sample[1] = averager.y();
+            sample[2] = averager.z();
+            calculator.calculateMotion(sample, moving, averager.time(), last);
+        }
+    }
+
+    public DistanceCalculator getCalculator() {
+        return calculator;
+    }
+
+    @Override
+    public void reset() {
+        calculator.reset();
+        averager.clear();
+        Arrays.fill(last, 0);
+    }
+
+    // 平均の途中経過と、積分しないサンプルに入れる直前の結果も保存する
+    @Override
+    public void saveState(ByteBuffer out) {
+        calculator.saveState(out);
+        averager.saveState(out);
+        for (float v : last) {
+            out.putFloat(v);
+        }
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        calculator.restoreState(in);
+        averager.restoreState(in);
+        for (int i = 0; i < last.length; i++) {
+            last[i] = in.getFloat();
+        }
+    }
+
+    // 位置と距離を 0 に戻す（速度・積分窓はそのまま。DistanceCalculator.resetDistance と同じ範囲）
+    public void resetDistance() {
+        calculator.resetDistance();
+        Arrays.fill(last, 3, 7, 0);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+public class MovementDetector {
+    private static final String TAG = "MovementDetector";
+    public static final int DEFAULT_WINDOW_SIZE = 5; // 0.05秒 * 100Hz
+    public static final float DEFAULT_STD_DEV_THRESHOLD = 0.2f;
+    public static final float DEFAULT_MEAN_THRESHOLD = 0.2f;
+    public static final int DEFAULT_STATIC_COUNT_THRESHOLD = 5; // 即座に静止状態を検出
+
+    // トレースは数値のまま記録し、文字列にするのは FusionTrace.dump() のときだけ
+    private static final FusionTrace.Event TRACE_STATS = FusionTrace.event(TAG, FusionTrace.DEBUG,
+            (mean, stdDev, moving, d, staticCount) -> String.format(
+                    "Mean: %.4f, StdDev: %.4f, StaticCount: %d, IsMoving: %b", mean, stdDev, staticCount, moving != 0));
+    private static final FusionTrace.Event TRACE_STATE_CHANGED = FusionTrace.event(TAG, FusionTrace.INFO,
+            (a, b, c, d, moving) -> "Movement state changed: " + (moving != 0 ? "Moving" : "Static"));
+    private static final FusionTrace.Event TRACE_RESET = FusionTrace.event(TAG, FusionTrace.INFO,
+            (a, b, c, d, n) -> "MovementDetector reset");
+
+    private final float stdDevThreshold;
+    private final float meanThreshold;
+    private final int staticCountThreshold;
+
+    // 加速度の大きさの窓統計（窓サイズによらず 1 サンプル O(1)）
+    private final RunningStatistics magnitudeStats;
+    private boolean isMoving = false;
+    private int staticCount = 0;
+    private boolean debugLogging = true;
+
+    public MovementDetector() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_STD_DEV_THRESHOLD, DEFAULT_MEAN_THRESHOLD, DEFAULT_STATIC_COUNT_THRESHOLD);
+    }
+
+    public MovementDetector(int windowSize, float stdDevThreshold, float meanThreshold, int staticCountThreshold) {
+        if (windowSize <= 0 || staticCountThreshold <= 0) {
+            throw new IllegalArgumentException("windowSize and staticCountThreshold must be positive");
+        }
+        this.magnitudeStats = new RunningStatistics(windowSize);
+        this.stdDevThreshold = stdDevThreshold;
+        this.meanThreshold = meanThreshold;
+        this.staticCountThreshold = staticCountThreshold;
+    }
+
+    public boolean update(float[] worldAccel) {
+        return update(worldAccel[0], worldAccel[1], worldAccel[2]);
+    }
+
+    // N サンプル分の世界座標加速度（[x0, y0, z0, x1, ...]）をまとめて判定し、各サンプルの結果を movingOut に書き込む。
+    // 戻り値は最後のサンプルの状態
+    public boolean updateBatch(float[] worldAccel, int count, boolean[] movingOut) {
+        for (int i = 0; i < count; i++) {
+            int v = i * 3;
+            boolean moving = update(worldAccel[v], worldAccel[v + 1], worldAccel[v + 2]);
+            if (movingOut != null) {
+                movingOut[i] = moving;
+            }
+        }
+        return isMoving;
+    }
+
+    private boolean update(float x, float y, float z) {
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+
+        magnitudeStats.add(magnitude);
+
+        if (magnitudeStats.isFull()) {
+            float mean = magnitudeStats.mean();
+            float stdDev = magnitudeStats.stdDev();
+
+            boolean previousState = isMoving;
+
+            if (stdDev > stdDevThreshold || mean > meanThreshold) {
+                isMoving = true;
+                staticCount = 0;
+            } else {
+                staticCount++;
+                if (staticCount >= staticCountThreshold) {
+                    isMoving = false;
+                }
+            }
+
+            if (debugLogging) {
+                FusionTrace.record(TRACE_STATS, mean, stdDev, isMoving ? 1f : 0f, staticCount);
+                if (isMoving != previousState) {
+                    FusionTrace.record(TRACE_STATE_CHANGED, isMoving ? 1 : 0);
+                }
+            }
+        }
+
+        return isMoving;
+    }
+
+    public boolean isMoving() {
+        return isMoving;
+    }
+
+    public int getWindowSize() {
+        return magnitudeStats.windowSize();
+    }
+
+    // この検出器のトレース記録を止める（FusionTrace のレベルとは別に、インスタンス単位で止めたいとき用）
+    public void setDebugLogging(boolean enabled) {
+        debugLogging = enabled;
+    }
+
+    // 窓統計と判定状態を保存する（閾値などの設定は含まない）
+    public void saveState(ByteBuffer out) {
+        magnitudeStats.saveState(out);
+        out.put((byte) (isMoving ? 1 : 0));
+        out.putInt(staticCount);
+    }
+
+    public void restoreState(ByteBuffer in) {
+        magnitudeStats.restoreState(in);
+        isMoving = in.get() != 0;
+        staticCount = in.getInt();
+    }
+
+    public void reset() {
+        magnitudeStats.clear();
+        isMoving = false;
+        staticCount = 0;
+        if (debugLogging) {
+            FusionTrace.record(TRACE_RESET);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 移動検出の段: worldAccel → moving
+public class MovementStage implements PipelineStage {
+    private final MovementDetector detector;
+    // 間隔・間引きが設定されていれば、その間の worldAccel を平均して 1 回だけ判定する。
+    // 判定しないサンプルには直前の判定を入れる
+    private final SampleAverager averager = new SampleAverager();
+    private final float[] sample = new float[3];
+
+    public MovementStage(MovementDetector detector) {
+        this.detector = detector;
+    }
+
+    // 判定の最短間隔（サンプルの時刻で測る）。0 なら毎サンプル
+    public void setIntervalNs(long intervalNs) {
+        averager.setIntervalNs(intervalNs);
+        averager.clear();
+    }
+
+    // 過負荷時の間引き。間隔が設定されていればそれを n 倍に、なければ n サンプルに 1 回にする
+    public void setDecimation(int decimation) {
+        averager.setDecimation(decimation);
+        averager.clear();
+    }
+
+    @Override
+    public void process(SessionRecord record) {
+        if (averager.isPassThrough()) {
+            record.moving = detector.update(record.worldAccel);
+            return;
+        }
+        update(record.timestamp, record.worldAccel, 0);
+        record.moving = detector.isMoving();
+    }
+
+    @Override
+    public void processBatch(SampleBatch batch) {
+        if (averager.isPassThrough()) {
+            detector.updateBatch(batch.worldAccel, batch.size(), batch.moving);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            update(batch.timestamps[i], batch.worldAccel, i * 3);
+            batch.moving[i] = detector.isMoving();
+        }
+    }
+
+    private void update(long timestamp, float[] worldAccel, int offset) {
+        if (averager.add(timestamp, worldAccel, offset)) {
+            sample[0] = averager.x();
+            sample[1] = averager.y();
+            sample[2] = averager.z();
+            detector.update(sample);
+        }
+    }
+
+    public MovementDetector getDetector() {
+        return detector;
+    }
+
+    @Override
+    public void reset() {
+        detector.reset();
+        averager.clear();
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        detector.saveState(out);
+        averager.saveState(out);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        detector.restoreState(in);
+        averager.restoreState(in);
+    }
+}
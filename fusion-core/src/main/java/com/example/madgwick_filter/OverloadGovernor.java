@@ -0,0 +1,122 @@
+package com.example.madgwick_filter;
+
+// 処理待ちのサンプル数（バックログ）を見て、追いつけないときに段階的に処理を間引く。
+// 先に出力（UI・記録）を間引き、それでも足りなければ移動検出・距離積分の頻度を下げる。
+// 姿勢フィルタは全サンプルを処理し続ける（間引く対象に含めない）。
+// バックログが高水位を超えたら 1 段上げ、低水位以下が RECOVER_NS 続いたら 1 段戻す。処理スレッドから呼ぶ
+public class OverloadGovernor {
+    // 段階ごとの {出力の間引き, 検出・積分の間引き}
+    private static final int[][] LEVELS = {
+            {1, 1},
+            {2, 1},
+            {4, 1},
+            {8, 1},
+            {8, 2},
+            {8, 4},
+    };
+    public static final int MAX_LEVEL = LEVELS.length - 1;
+
+    // 段階を上げた直後は効果が出るまで次の引き上げを待つ
+    public static final long ESCALATE_HOLD_NS = 500_000_000L; // 500ms
+    public static final long RECOVER_NS = 5_000_000_000L; // 5s
+
+    public interface Listener {
+        void onLevelChanged(int from, int to, int backlog);
+    }
+
+    private static final FusionTrace.Event TRACE_LEVEL = FusionTrace.event("OverloadGovernor", FusionTrace.INFO,
+            (from, to, out, analysis, backlog) -> String.format(
+                    "Overload level %d -> %d (backlog %d, outputs 1/%d, analysis 1/%d)",
+                    (int) from, (int) to, backlog, (int) out, (int) analysis));
+
+    private final int highWatermark;
+    private final int lowWatermark;
+    private Listener listener;
+    private FusionMetrics.Counter transitions;
+
+    private int level = 0;
+    private long lastEscalation;
+    private long calmSince;
+    private boolean calm = false;
+
+    // capacity: 受け渡しリングの容量。高水位はその 1/4、低水位は 1/16
+    public OverloadGovernor(int capacity) {
+        this(capacity / 4, capacity / 16);
+    }
+
+    public OverloadGovernor(int highWatermark, int lowWatermark) {
+        if (lowWatermark < 0 || highWatermark <= lowWatermark) {
+            throw new IllegalArgumentException("need 0 <= low < high: " + lowWatermark + ", " + highWatermark);
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // overload.level（ゲージ）と overload.transitions を記録する
+    public void setMetrics(FusionMetrics metrics) {
+        transitions = metrics.counter("overload.transitions");
+        metrics.gauge("overload.level", () -> level);
+    }
+
+    // 処理ループの 1 周ごとに、取り出し後に残っているサンプル数を渡す。段階が変わったら true
+    public boolean observe(int backlog, long nowNs) {
+        if (backlog > highWatermark) {
+            calm = false;
+            if (level < MAX_LEVEL && (level == 0 || nowNs - lastEscalation >= ESCALATE_HOLD_NS)) {
+                lastEscalation = nowNs;
+                return change(level + 1, backlog);
+            }
+            return false;
+        }
+        if (backlog > lowWatermark || level == 0) {
+            calm = false;
+            return false;
+        }
+        if (!calm) {
+            calm = true;
+            calmSince = nowNs;
+            return false;
+        }
+        if (nowNs - calmSince >= RECOVER_NS) {
+            calmSince = nowNs;
+            return change(level - 1, backlog);
+        }
+        return false;
+    }
+
+    private boolean change(int to, int backlog) {
+        int from = level;
+        level = to;
+        if (transitions != null) {
+            transitions.increment();
+        }
+        FusionTrace.record(TRACE_LEVEL, from, to, getOutputDecimation(), getAnalysisDecimation(), backlog);
+        if (listener != null) {
+            listener.onLevelChanged(from, to, backlog);
+        }
+        return true;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    // 出力先へ n サンプルに 1 つだけ渡す
+    public int getOutputDecimation() {
+        return LEVELS[level][0];
+    }
+
+    // 移動検出・距離積分の頻度を 1/n にする（FusionProcessor.setAnalysisDecimation に渡す）
+    public int getAnalysisDecimation() {
+        return LEVELS[level][1];
+    }
+
+    public void reset() {
+        level = 0;
+        calm = false;
+    }
+}
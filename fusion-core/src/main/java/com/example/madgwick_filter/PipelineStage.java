@@ -0,0 +1,18 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// パイプラインの 1 段。SessionRecord の入力欄と前段の出力を読み、自分の出力欄を埋める。
+// 同じ段の process と processBatch は同じ結果になるように実装する
+public interface PipelineStage {
+    void process(SessionRecord record);
+
+    void processBatch(SampleBatch batch);
+
+    void reset();
+
+    // 一時停止・再開をまたいで状態を引き継ぐためのスナップショット（設定は含まない）
+    void saveState(ByteBuffer out);
+
+    void restoreState(ByteBuffer in);
+}
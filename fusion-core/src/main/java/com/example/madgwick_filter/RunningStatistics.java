@@ -0,0 +1,76 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 直近 windowSize 個の値の平均・分散を O(1) で更新するスライディング窓統計。
+// E[x²]-E[x]² ではなく Welford 法（窓から外れる値の寄与を差し引く形）で double 精度に保つ
+public class RunningStatistics {
+    private final FloatRingBuffer window;
+    private double mean = 0;
+    private double m2 = 0; // 平均からの偏差の二乗和
+
+    public RunningStatistics(int windowSize) {
+        window = new FloatRingBuffer(windowSize);
+    }
+
+    public void add(float value) {
+        if (window.isFull()) {
+            float evicted = window.oldest();
+            window.add(value);
+            double previousMean = mean;
+            mean += (value - evicted) / (double) window.size();
+            m2 += (value - evicted) * (value - mean + evicted - previousMean);
+            if (m2 < 0) {
+                m2 = 0; // 丸め誤差で負にならないようにする
+            }
+        } else {
+            window.add(value);
+            double delta = value - mean;
+            mean += delta / window.size();
+            m2 += delta * (value - mean);
+        }
+    }
+
+    public float mean() {
+        return (float) mean;
+    }
+
+    // 母分散（窓内の全サンプルで割る）
+    public float variance() {
+        return window.size() == 0 ? 0 : (float) (m2 / window.size());
+    }
+
+    public float stdDev() {
+        return (float) Math.sqrt(variance());
+    }
+
+    public int size() {
+        return window.size();
+    }
+
+    public int windowSize() {
+        return window.capacity();
+    }
+
+    public boolean isFull() {
+        return window.isFull();
+    }
+
+    public void clear() {
+        window.clear();
+        mean = 0;
+        m2 = 0;
+    }
+
+    public void saveState(ByteBuffer out) {
+        window.saveState(out);
+        out.putDouble(mean);
+        out.putDouble(m2);
+    }
+
+    public void restoreState(ByteBuffer in) {
+        window.restoreState(in);
+        mean = in.getDouble();
+        m2 = in.getDouble();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.madgwick_filter;
+
+// 加速度とジャイロのイベントをタイムスタンプで 1 組にまとめる。
+// 両方がそろったときだけ true を返すので、フィルタは実サンプル 1 組につき 1 回だけ更新される。
+// FIFO のバッチ配信では同じ種類のイベントがまとまって届くので、種類ごとに少し貯めておき、
+// 古い方から順に、時刻が最も近い相手と組にする。相手が maxSkewNs より離れている・より近い同種がいる値は捨てる
+public class SampleAligner {
+    // SENSOR_DELAY_FASTEST は端末により 200〜500Hz。遅い端末の 1 周期までは組にする
+    public static final long DEFAULT_MAX_SKEW_NS = 5_000_000L; // 5ms
+    // 種類ごとに貯める数。FIFO の最大遅延 100ms × 500Hz の 1 回分が入る
+    public static final int DEFAULT_BUFFER_SIZE = 64;
+
+    private final long maxSkewNs;
+    private final Queue accelQueue;
+    private final Queue gyroQueue;
+
+    private final float[] pairedAccel = new float[3];
+    private final float[] pairedGyro = new float[3];
+    private long pairedTimestamp;
+
+    private long pairCount = 0;
+    private long discardedCount = 0;
+
+    public SampleAligner() {
+        this(DEFAULT_MAX_SKEW_NS);
+    }
+
+    public SampleAligner(long maxSkewNs) {
+        this(maxSkewNs, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SampleAligner(long maxSkewNs, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.maxSkewNs = maxSkewNs;
+        this.accelQueue = new Queue(bufferSize);
+        this.gyroQueue = new Queue(bufferSize);
+    }
+
+    public boolean offer(SensorSample sample) {
+        return offer(sample.type, sample.timestamp, sample.x, sample.y, sample.z);
+    }
+
+    // 1 イベントを受け取る。組がそろったら true（値は accel() / gyro() / timestamp() で取得）。
+    // 種類ごとの到着順はタイムスタンプ順である前提
+    public boolean offer(int type, long timestamp, float x, float y, float z) {
+        Queue queue;
+        if (type == SensorSample.TYPE_ACCELEROMETER) {
+            queue = accelQueue;
+        } else if (type == SensorSample.TYPE_GYROSCOPE) {
+            queue = gyroQueue;
+        } else {
+            return false;
+        }
+        if (queue.isFull()) {
+            queue.removeFirst(); // 相手が来ないまま溜まりすぎた
+            discardedCount++;
+        }
+        queue.add(timestamp, x, y, z);
+        return pair();
+    }
+
+    // 両方の先頭のうち古い方を、相手側の先頭（最も近い候補）と組にする。
+    // 古い方の次の値の方が相手に近ければ、古い方は捨てて次を試す
+    private boolean pair() {
+        while (!accelQueue.isEmpty() && !gyroQueue.isEmpty()) {
+            boolean accelOlder = accelQueue.firstTime() <= gyroQueue.firstTime();
+            Queue older = accelOlder ? accelQueue : gyroQueue;
+            Queue other = accelOlder ? gyroQueue : accelQueue;
+            long target = other.firstTime();
+            long distance = target - older.firstTime();
+            if (distance > maxSkewNs
+                    || (older.size() > 1 && Math.abs(older.time(1) - target) < distance)) {
+                older.removeFirst();
+                discardedCount++;
+                continue;
+            }
+
+            pairedTimestamp = target; // 新しい方のイベント時刻
+            accelQueue.first(pairedAccel);
+            gyroQueue.first(pairedGyro);
+            accelQueue.removeFirst();
+            gyroQueue.removeFirst();
+            pairCount++;
+            return true;
+        }
+        return false;
+    }
+
+    public float[] accel() {
+        return pairedAccel;
+    }
+
+    public float[] gyro() {
+        return pairedGyro;
+    }
+
+    // 組のタイムスタンプ（新しい方のイベント時刻）
+    public long timestamp() {
+        return pairedTimestamp;
+    }
+
+    public long getPairCount() {
+        return pairCount;
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    public void reset() {
+        accelQueue.clear();
+        gyroQueue.clear();
+    }
+
+    // 1 種類分の固定長リング（確保なし）
+    private static final class Queue {
+        private final long[] times;
+        private final float[] values;
+        private int head = 0;
+        private int size = 0;
+
+        Queue(int capacity) {
+            times = new long[capacity];
+            values = new float[capacity * 3];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean isFull() {
+            return size == times.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(long timestamp, float x, float y, float z) {
+            int index = (head + size) % times.length;
+            times[index] = timestamp;
+            values[index * 3] = x;
+            values[index * 3 + 1] = y;
+            values[index * 3 + 2] = z;
+            size++;
+        }
+
+        long firstTime() {
+            return times[head];
+        }
+
+        long time(int i) {
+            return times[(head + i) % times.length];
+        }
+
+        void first(float[] out) {
+            System.arraycopy(values, head * 3, out, 0, 3);
+        }
+
+        void removeFirst() {
+            head = (head + 1) % times.length;
+            size--;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 全レートで届く 3 軸の値を貯め、一定間隔ごとに平均して 1 回分にまとめる（低レートで動かす段の入力用）。
+// 間隔（ナノ秒、サンプルの時刻で判定）が設定されていれば、間引き数 n は間隔を n 倍にする。
+// 間隔が 0 なら n サンプルごとに出す。どちらも既定は毎サンプル
+public class SampleAverager {
+    private long intervalNs = 0;
+    private int decimation = 1;
+
+    private double sumX, sumY, sumZ;
+    private int count = 0;
+    private long firstTime;
+    private long lastEmit;
+    private boolean hasEmitted = false;
+
+    private float x, y, z;
+    private long time;
+
+    public void setIntervalNs(long intervalNs) {
+        if (intervalNs < 0) {
+            throw new IllegalArgumentException("intervalNs must not be negative: " + intervalNs);
+        }
+        this.intervalNs = intervalNs;
+    }
+
+    public long getIntervalNs() {
+        return intervalNs;
+    }
+
+    public void setDecimation(int decimation) {
+        if (decimation <= 0) {
+            throw new IllegalArgumentException("decimation must be positive: " + decimation);
+        }
+        this.decimation = decimation;
+    }
+
+    // 平均が出たら true。値は x() / y() / z()、時刻は time()（まとめた区間の中央）
+    public boolean add(long timestamp, float[] values, int offset) {
+        if (count == 0) {
+            firstTime = timestamp;
+        }
+        sumX += values[offset];
+        sumY += values[offset + 1];
+        sumZ += values[offset + 2];
+        count++;
+        if (count < decimation || (hasEmitted && timestamp - lastEmit < intervalNs * decimation)) {
+            return false;
+        }
+        x = (float) (sumX / count);
+        y = (float) (sumY / count);
+        z = (float) (sumZ / count);
+        time = firstTime + (timestamp - firstTime) / 2;
+        lastEmit = timestamp;
+        hasEmitted = true;
+        sumX = sumY = sumZ = 0;
+        count = 0;
+        return true;
+    }
+
+    // 間隔・間引きなしなら値をそのまま通す（平均の計算を省く）
+    public boolean isPassThrough() {
+        return intervalNs == 0 && decimation == 1;
+    }
+
+    public float x() {
+        return x;
+    }
+
+    public float y() {
+        return y;
+    }
+
+    public float z() {
+        return z;
+    }
+
+    public long time() {
+        return time;
+    }
+
+    // 途中まで貯めた和と区間の位置を保存する（間隔・間引きの設定は含まない）
+    public void saveState(ByteBuffer out) {
+        out.putDouble(sumX);
+        out.putDouble(sumY);
+        out.putDouble(sumZ);
+        out.putInt(count);
+        out.putLong(firstTime);
+        out.putLong(lastEmit);
+        out.put((byte) (hasEmitted ? 1 : 0));
+    }
+
+    public void restoreState(ByteBuffer in) {
+        sumX = in.getDouble();
+        sumY = in.getDouble();
+        sumZ = in.getDouble();
+        count = in.getInt();
+        firstTime = in.getLong();
+        lastEmit = in.getLong();
+        hasEmitted = in.get() != 0;
+    }
+
+    public void clear() {
+        sumX = sumY = sumZ = 0;
+        count = 0;
+        hasEmitted = false;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.madgwick_filter;
+
+// FusionProcessor.processBatch に渡す N サンプル分の入力と出力（再利用前提）。
+// ベクトルは [x0, y0, z0, x1, ...] と詰めて並べる
+public final class SampleBatch {
+    public final long[] timestamps;
+    public final float[] accel;
+    public final float[] gyro;
+    public final float[] sampleFrequency; // 実測間隔から求めた更新周波数（processBatch が書き込む）
+    public final float[] quaternion;
+    public final float[] worldAccel;
+    public final boolean[] moving;
+    public final float[] motion; // サンプルごとに 7 要素（DistanceCalculator の出力と同じ並び）
+
+    private int size = 0;
+
+    public SampleBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        timestamps = new long[capacity];
+        accel = new float[capacity * 3];
+        gyro = new float[capacity * 3];
+        sampleFrequency = new float[capacity];
+        quaternion = new float[capacity * 4];
+        worldAccel = new float[capacity * 3];
+        moving = new boolean[capacity];
+        motion = new float[capacity * 7];
+    }
+
+    // 1 サンプル追加する。満杯なら false
+    public boolean add(long timestamp, float[] accel, float[] gyro) {
+        if (size == timestamps.length) {
+            return false;
+        }
+        timestamps[size] = timestamp;
+        System.arraycopy(accel, 0, this.accel, size * 3, 3);
+        System.arraycopy(gyro, 0, this.gyro, size * 3, 3);
+        size++;
+        return true;
+    }
+
+    // i 番目の入力と結果を 1 レコードとして取り出す
+    public SessionRecord read(int i, SessionRecord out) {
+        out.timestamp = timestamps[i];
+        System.arraycopy(accel, i * 3, out.accel, 0, 3);
+        System.arraycopy(gyro, i * 3, out.gyro, 0, 3);
+        System.arraycopy(quaternion, i * 4, out.quaternion, 0, 4);
+        System.arraycopy(worldAccel, i * 3, out.worldAccel, 0, 3);
+        System.arraycopy(motion, i * 7, out.motion, 0, 7);
+        out.moving = moving[i];
+        return out;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
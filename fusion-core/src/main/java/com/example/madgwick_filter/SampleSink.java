@@ -0,0 +1,11 @@
+package com.example.madgwick_filter;
+
+import java.io.IOException;
+
+// パイプラインの出力先（UI・記録・送信など）。SinkBuffer の専用スレッドから呼ばれる
+public interface SampleSink {
+    void accept(SessionRecord record) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
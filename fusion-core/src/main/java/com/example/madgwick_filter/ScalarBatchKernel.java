@@ -0,0 +1,37 @@
+package com.example.madgwick_filter;
+
+// 1 ストリームずつ処理するスカラー実装。計算は MadgwickFilter.gradientStep をそのまま使うので、
+// 同じ MathKernel の MadgwickFilter.update とビット単位で一致する
+public class ScalarBatchKernel implements BatchKernel {
+    private final MathKernel math;
+
+    public ScalarBatchKernel(MathKernel math) {
+        this.math = math;
+    }
+
+    @Override
+    public void update(float[] q0, float[] q1, float[] q2, float[] q3,
+                       float[] ax, float[] ay, float[] az,
+                       float[] gx, float[] gy, float[] gz,
+                       boolean[] pending, int from, int to, float beta, float sampleFreq) {
+        MathKernel math = this.math;
+        float[] q = new float[4]; // 分割した範囲ごとに並列で呼ばれるので呼び出しごとに持つ
+        for (int i = from; i < to; i++) {
+            if (!pending[i]) {
+                continue;
+            }
+            pending[i] = false;
+            MadgwickFilter.gradientStep(math, q0[i], q1[i], q2[i], q3[i], ax[i], ay[i], az[i], gx[i], gy[i], gz[i],
+                    beta, sampleFreq, q);
+            q0[i] = q[0];
+            q1[i] = q[1];
+            q2[i] = q[2];
+            q3[i] = q[3];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "scalar-" + math;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.madgwick_filter;
+
+// センサースレッドから処理スレッドへ受け渡す 1 イベント分の値（再利用前提の可変レコード）
+public final class SensorSample {
+    public static final int TYPE_ACCELEROMETER = 1;
+    public static final int TYPE_GYROSCOPE = 2;
+
+    public int type;
+    public long timestamp; // ナノ秒（SensorEvent.timestamp）
+    public float x, y, z;
+
+    public void set(int type, long timestamp, float x, float y, float z) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.madgwick_filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 単一プロデューサ・単一コンシューマのロックフリーリング。
+// 領域は生成時に確保済みのプリミティブ配列で、offer/poll は値のコピーのみ行う
+public class SensorSampleRing {
+    private final int mask;
+    private final int[] types;
+    private final long[] timestamps;
+    private final float[] values;
+
+    private final AtomicLong head = new AtomicLong(); // 次に読む位置（コンシューマのみ更新）
+    private final AtomicLong tail = new AtomicLong(); // 次に書く位置（プロデューサのみ更新）
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    private long cachedHead = 0; // プロデューサ側のキャッシュ
+    private long cachedTail = 0; // コンシューマ側のキャッシュ
+
+    public SensorSampleRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        types = new int[capacity];
+        timestamps = new long[capacity];
+        values = new float[capacity * 3];
+    }
+
+    // プロデューサスレッドから呼ぶ。満杯なら破棄して false（dropped を加算）
+    public boolean offer(int type, long timestamp, float x, float y, float z) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                dropped.lazySet(dropped.get() + 1);
+                return false;
+            }
+        }
+
+        int slot = (int) t & mask;
+        types[slot] = type;
+        timestamps[slot] = timestamp;
+        values[slot * 3] = x;
+        values[slot * 3 + 1] = y;
+        values[slot * 3 + 2] = z;
+        tail.lazySet(t + 1);
+
+        long depth = t + 1 - cachedHead;
+        if (depth > maxDepth.get()) {
+            maxDepth.lazySet(depth);
+        }
+        return true;
+    }
+
+    // コンシューマスレッドから呼ぶ。空なら false
+    public boolean poll(SensorSample out) {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return false;
+            }
+        }
+
+        int slot = (int) h & mask;
+        out.set(types[slot], timestamps[slot], values[slot * 3], values[slot * 3 + 1], values[slot * 3 + 2]);
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    // 現在のキュー深さ（どのスレッドからも読めるが、並行更新中は概算値）
+    public int depth() {
+        long depth = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(depth, mask + 1));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    // 生成後に観測した最大のキュー深さ（プロデューサ側から見た概算）
+    public long maxDepth() {
+        return maxDepth.get();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.madgwick_filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// バイナリセッションファイルをメモリマップして読む。レコードはマップ領域から直接読み出し、
+// 時刻インデックスで任意のタイムスタンプへシークできる（SessionFormat 参照）
+public class SessionFileReader implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+    private final int recordCount;
+    private final float sampleFrequency;
+    private final int indexCount;
+    private final long[] indexTimestamps;
+    private final int[] indexRecords;
+
+    public SessionFileReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Session file too large to map: " + size + " bytes");
+            }
+            if (size < SessionFormat.HEADER_SIZE) {
+                throw new IOException("Not a session file (too short): " + path);
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(SessionFormat.BYTE_ORDER);
+
+            if (map.getInt(0) != SessionFormat.MAGIC) {
+                throw new IOException("Not a session file (bad magic): " + path);
+            }
+            short version = map.getShort(4);
+            short recordSize = map.getShort(6);
+            if (version != SessionFormat.VERSION || recordSize != SessionFormat.RECORD_SIZE) {
+                throw new IOException("Unsupported session file version " + version + ", record size " + recordSize);
+            }
+            long records = map.getLong(SessionFormat.OFFSET_RECORD_COUNT);
+            long indexOffset = map.getLong(SessionFormat.OFFSET_INDEX_OFFSET);
+            indexCount = map.getInt(SessionFormat.OFFSET_INDEX_COUNT);
+            if (records < 0 || SessionFormat.HEADER_SIZE + records * SessionFormat.RECORD_SIZE > size
+                    || (records > 0 && indexOffset + (long) indexCount * SessionFormat.INDEX_ENTRY_SIZE > size)) {
+                throw new IOException("Corrupt session file header: " + path);
+            }
+            recordCount = (int) records;
+            sampleFrequency = map.getFloat(SessionFormat.OFFSET_SAMPLE_FREQUENCY);
+
+            // インデックスは小さいのでヒープに展開して二分探索する
+            indexTimestamps = new long[indexCount];
+            indexRecords = new int[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                int offset = (int) indexOffset + i * SessionFormat.INDEX_ENTRY_SIZE;
+                indexTimestamps[i] = map.getLong(offset);
+                indexRecords[i] = (int) map.getLong(offset + 8);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    // 記録時の登録サンプリング周波数。記録されていなければ 0
+    public float getSampleFrequency() {
+        return sampleFrequency;
+    }
+
+    public long getFirstTimestamp() {
+        return indexCount > 0 ? indexTimestamps[0] : 0;
+    }
+
+    // timestamp 以上となる最初のレコード番号を返す（なければ getRecordCount()）。
+    // タイムスタンプが単調非減少であることを前提とする
+    public int seek(long timestamp) {
+        if (indexCount == 0 || timestamp <= indexTimestamps[0]) {
+            return 0;
+        }
+        int lo = 0, hi = indexCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (indexTimestamps[mid] <= timestamp) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        Cursor cursor = cursor(indexRecords[lo]);
+        while (cursor.next()) {
+            if (cursor.timestamp() >= timestamp) {
+                return cursor.position();
+            }
+        }
+        return recordCount;
+    }
+
+    // 指定レコードから順に読むカーソル
+    public Cursor cursor(int startRecord) {
+        if (startRecord < 0 || startRecord > recordCount) {
+            throw new IndexOutOfBoundsException("record " + startRecord + ", count " + recordCount);
+        }
+        return new Cursor(startRecord);
+    }
+
+    public void read(int record, SessionRecord out) {
+        Cursor cursor = cursor(record);
+        cursor.next();
+        cursor.read(out);
+    }
+
+    private int indexEntryAtOrBefore(int record) {
+        int lo = 0, hi = indexCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (indexRecords[mid] <= record) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // マップ領域上を進むフライウェイト。値はコピーせず、要求された列だけを読む
+    public final class Cursor {
+        private final ByteBuffer buffer = map.duplicate().order(SessionFormat.BYTE_ORDER);
+        private int record;          // 現在のレコード番号（next() 前は開始位置 - 1）
+        private int recordOffset;
+        private long timestamp;
+        private long startTimestamp;
+        private boolean started = false;
+        private int nextIndexEntry;
+
+        private Cursor(int startRecord) {
+            record = startRecord - 1;
+            if (startRecord < recordCount) {
+                // 開始位置を含むインデックス区間の先頭から時刻を積み上げる
+                int entry = indexEntryAtOrBefore(startRecord);
+                long start = indexTimestamps[entry];
+                for (int r = indexRecords[entry] + 1; r <= startRecord; r++) {
+                    start += buffer.getInt(offsetOf(r));
+                }
+                startTimestamp = start;
+                nextIndexEntry = entry + 1;
+            }
+        }
+
+        private int offsetOf(int r) {
+            return SessionFormat.HEADER_SIZE + r * SessionFormat.RECORD_SIZE;
+        }
+
+        public boolean next() {
+            if (record + 1 >= recordCount) {
+                return false;
+            }
+            record++;
+            recordOffset = offsetOf(record);
+            if (!started) {
+                started = true;
+                timestamp = startTimestamp;
+            } else if (nextIndexEntry < indexCount && indexRecords[nextIndexEntry] == record) {
+                timestamp = indexTimestamps[nextIndexEntry++];
+            } else {
+                timestamp += buffer.getInt(recordOffset);
+            }
+            return true;
+        }
+
+        public int position() {
+            return record;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        // column は SessionFormat.COL_* からのオフセット（例: COL_ACCEL_X + 2 で AccelZ）
+        public float value(int column) {
+            return buffer.getFloat(recordOffset + 4 + column * 4);
+        }
+
+        public void read(SessionRecord out) {
+            out.timestamp = timestamp;
+            readValues(SessionFormat.COL_ACCEL_X, out.accel, 3);
+            readValues(SessionFormat.COL_GYRO_X, out.gyro, 3);
+            readValues(SessionFormat.COL_QUAT_W, out.quaternion, 4);
+            readValues(SessionFormat.COL_WORLD_ACCEL_X, out.worldAccel, 3);
+            readValues(SessionFormat.COL_VELOCITY_X, out.motion, 7);
+        }
+
+        private void readValues(int column, float[] out, int count) {
+            for (int i = 0; i < count; i++) {
+                out[i] = value(column + i);
+            }
+        }
+    }
+}
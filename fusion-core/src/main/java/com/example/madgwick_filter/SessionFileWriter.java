@@ -0,0 +1,159 @@
+package com.example.madgwick_filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// バイナリセッションファイルの書き込み。レコードはバッファにまとめてから書き出し、
+// close() で時刻インデックスを末尾に追加してヘッダーを確定する（SessionFormat 参照）
+public class SessionFileWriter implements Closeable, SampleSink {
+    private static final int BUFFER_RECORDS = 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private long recordCount = 0;
+    private long lastTimestamp = 0;
+    private long[] indexTimestamps = new long[64];
+    private long[] indexRecords = new long[64];
+    private int indexCount = 0;
+    private float sampleFrequency = 0f;
+    private boolean closed = false;
+
+    public SessionFileWriter(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        buffer = ByteBuffer.allocateDirect(Math.max(SessionFormat.HEADER_SIZE, SessionFormat.RECORD_SIZE * BUFFER_RECORDS))
+                .order(SessionFormat.BYTE_ORDER);
+
+        // ヘッダーは close() で書き直す。途中で異常終了した場合はレコード数 0 のファイルとして読める
+        writeHeader(0, 0);
+        buffer.flip();
+        writeFully(buffer, 0);
+        buffer.clear();
+        channel.position(SessionFormat.HEADER_SIZE);
+    }
+
+    // 記録時の登録サンプリング周波数（SessionFormat 参照）。close() でヘッダーに書く
+    public void setSampleFrequency(float sampleFrequency) {
+        this.sampleFrequency = sampleFrequency;
+    }
+
+    // パイプラインの出力先として使う場合
+    @Override
+    public void accept(SessionRecord record) throws IOException {
+        append(record);
+    }
+
+    public void append(SessionRecord record) throws IOException {
+        append(record.timestamp, record.accel, record.gyro, record.quaternion, record.worldAccel, record.motion);
+    }
+
+    public void append(long timestamp, float[] accel, float[] gyro, float[] quaternion,
+                       float[] worldAccel, float[] motion) throws IOException {
+        if (closed) {
+            throw new IOException("SessionFileWriter is closed");
+        }
+        if (buffer.remaining() < SessionFormat.RECORD_SIZE) {
+            flushBuffer();
+        }
+
+        long delta = timestamp - lastTimestamp;
+        int storedDelta = (int) delta;
+        if (recordCount % SessionFormat.INDEX_INTERVAL == 0 || delta < 0 || delta > Integer.MAX_VALUE) {
+            addIndexEntry(timestamp, recordCount);
+            storedDelta = 0;
+        }
+        lastTimestamp = timestamp;
+
+        buffer.putInt(storedDelta);
+        putValues(accel, 3);
+        putValues(gyro, 3);
+        putValues(quaternion, 4);
+        putValues(worldAccel, 3);
+        putValues(motion, 7);
+        recordCount++;
+    }
+
+    private void putValues(float[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat(values[i]);
+        }
+    }
+
+    private void addIndexEntry(long timestamp, long record) {
+        if (indexCount == indexTimestamps.length) {
+            indexTimestamps = Arrays.copyOf(indexTimestamps, indexCount * 2);
+            indexRecords = Arrays.copyOf(indexRecords, indexCount * 2);
+        }
+        indexTimestamps[indexCount] = timestamp;
+        indexRecords[indexCount] = record;
+        indexCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader(long indexOffset, long records) {
+        buffer.clear();
+        buffer.putInt(SessionFormat.MAGIC);
+        buffer.putShort(SessionFormat.VERSION);
+        buffer.putShort((short) SessionFormat.RECORD_SIZE);
+        buffer.putLong(records);
+        buffer.putLong(indexOffset);
+        buffer.putInt(indexCount);
+        buffer.putInt(SessionFormat.INDEX_INTERVAL);
+        buffer.putFloat(sampleFrequency);
+        buffer.putInt(0);
+    }
+
+    private void writeFully(ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushBuffer();
+            long indexOffset = SessionFormat.HEADER_SIZE + recordCount * SessionFormat.RECORD_SIZE;
+            channel.position(indexOffset);
+            for (int i = 0; i < indexCount; i++) {
+                if (buffer.remaining() < SessionFormat.INDEX_ENTRY_SIZE) {
+                    flushBuffer();
+                }
+                buffer.putLong(indexTimestamps[i]);
+                buffer.putLong(indexRecords[i]);
+            }
+            flushBuffer();
+
+            writeHeader(indexOffset, recordCount);
+            buffer.flip();
+            writeFully(buffer, 0);
+            buffer.clear();
+            channel.force(false);
+        } finally {
+            file.close();
+        }
+    }
+}
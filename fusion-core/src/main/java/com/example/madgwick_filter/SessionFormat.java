@@ -0,0 +1,45 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteOrder;
+
+// バイナリセッションファイル（.mgs）のレイアウト定義。すべてリトルエンディアン。
+//
+// ヘッダー (HEADER_SIZE バイト):
+//   int magic, short version, short recordSize, long recordCount,
+//   long indexOffset, int indexCount, int indexInterval, float sampleFrequency, int reserved
+//   sampleFrequency は記録時の登録サンプリング周波数 [Hz]（タイムスタンプの間隔が使えないときの dt。0 なら不明）
+// レコード (RECORD_SIZE バイトの固定長、ヘッダー直後から recordCount 個):
+//   int 前レコードからの経過時間 [ns], float × VALUE_COUNT（列順は COL_* 定数）
+// 時刻インデックス (indexOffset から indexCount 個):
+//   long 絶対タイムスタンプ [ns], long レコード番号
+//
+// インデックスは INDEX_INTERVAL レコードごと、および差分が int に収まらない（または負の）
+// レコードで作られる。インデックス先頭のレコードはインデックスの絶対時刻を使い、差分は参照しない
+public final class SessionFormat {
+    public static final int MAGIC = 0x4E53474D; // "MGSN"
+    public static final short VERSION = 1;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int COL_ACCEL_X = 0;
+    public static final int COL_GYRO_X = 3;
+    public static final int COL_QUAT_W = 6;
+    public static final int COL_WORLD_ACCEL_X = 10;
+    public static final int COL_VELOCITY_X = 13;
+    public static final int COL_POSITION_X = 16;
+    public static final int COL_DISTANCE = 19;
+    public static final int VALUE_COUNT = 20;
+
+    public static final int HEADER_SIZE = 40;
+    public static final int RECORD_SIZE = 4 + VALUE_COUNT * 4;
+    public static final int INDEX_ENTRY_SIZE = 16;
+    public static final int INDEX_INTERVAL = 256;
+
+    static final int OFFSET_RECORD_COUNT = 8;
+    static final int OFFSET_INDEX_OFFSET = 16;
+    static final int OFFSET_INDEX_COUNT = 24;
+    static final int OFFSET_INDEX_INTERVAL = 28;
+    static final int OFFSET_SAMPLE_FREQUENCY = 32;
+
+    private SessionFormat() {
+    }
+}
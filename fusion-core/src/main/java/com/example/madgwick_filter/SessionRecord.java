@@ -0,0 +1,22 @@
+package com.example.madgwick_filter;
+
+// セッションファイルの 1 レコード（再利用前提の可変レコード）。motion は DistanceCalculator の出力と同じ並び
+public final class SessionRecord {
+    public long timestamp;
+    public final float[] accel = new float[3];
+    public final float[] gyro = new float[3];
+    public final float[] quaternion = new float[4];
+    public final float[] worldAccel = new float[3];
+    public final float[] motion = new float[7]; // [vx, vy, vz, px, py, pz, totalDistance]
+    public boolean moving; // MovementDetector の判定（ファイルには保存しない）
+
+    public void set(SessionRecord other) {
+        timestamp = other.timestamp;
+        System.arraycopy(other.accel, 0, accel, 0, 3);
+        System.arraycopy(other.gyro, 0, gyro, 0, 3);
+        System.arraycopy(other.quaternion, 0, quaternion, 0, 4);
+        System.arraycopy(other.worldAccel, 0, worldAccel, 0, 3);
+        System.arraycopy(other.motion, 0, motion, 0, 7);
+        moving = other.moving;
+    }
+}
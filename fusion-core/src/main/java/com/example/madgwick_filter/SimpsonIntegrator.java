@@ -0,0 +1,79 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 3 軸の値を直近 4 点の窓でシンプソン則により積分する。1 サンプルあたり O(1)、確保なし
+public class SimpsonIntegrator {
+    private static final int POINTS = 4;
+
+    private final FloatRingBuffer valuesX = new FloatRingBuffer(POINTS);
+    private final FloatRingBuffer valuesY = new FloatRingBuffer(POINTS);
+    private final FloatRingBuffer valuesZ = new FloatRingBuffer(POINTS);
+    private final LongRingBuffer times = new LongRingBuffer(POINTS);
+
+    private float resultX, resultY, resultZ;
+
+    // 窓が 4 点揃った時点で true を返し、getX/Y/Z で窓全体の積分値を取得できる
+    public boolean add(long timeNanos, float x, float y, float z) {
+        valuesX.add(x);
+        valuesY.add(y);
+        valuesZ.add(z);
+        times.add(timeNanos);
+
+        if (!times.isFull()) {
+            return false;
+        }
+
+        // ナノ秒を秒に変換
+        float totalTimeInSeconds = (times.newest() - times.oldest()) / 1e9f;
+        float h = totalTimeInSeconds / 3f; // 3等分
+
+        resultX = simpson4point(valuesX, h);
+        resultY = simpson4point(valuesY, h);
+        resultZ = simpson4point(valuesZ, h);
+        return true;
+    }
+
+    private static float simpson4point(FloatRingBuffer y, float h) {
+        return (h / 3f) * (y.get(0) + 4*y.get(1) + 2*y.get(2) + y.get(3));
+    }
+
+    public float getX() {
+        return resultX;
+    }
+
+    public float getY() {
+        return resultY;
+    }
+
+    public float getZ() {
+        return resultZ;
+    }
+
+    public void clear() {
+        valuesX.clear();
+        valuesY.clear();
+        valuesZ.clear();
+        times.clear();
+    }
+
+    public void saveState(ByteBuffer out) {
+        valuesX.saveState(out);
+        valuesY.saveState(out);
+        valuesZ.saveState(out);
+        times.saveState(out);
+        out.putFloat(resultX);
+        out.putFloat(resultY);
+        out.putFloat(resultZ);
+    }
+
+    public void restoreState(ByteBuffer in) {
+        valuesX.restoreState(in);
+        valuesY.restoreState(in);
+        valuesZ.restoreState(in);
+        times.restoreState(in);
+        resultX = in.getFloat();
+        resultY = in.getFloat();
+        resultZ = in.getFloat();
+    }
+}
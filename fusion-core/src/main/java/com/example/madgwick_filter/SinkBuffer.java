@@ -0,0 +1,174 @@
+package com.example.madgwick_filter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 1 つの SampleSink 専用の有界バッファと配信スレッド。
+// offer は満杯でも待たずにポリシーに従って捨てるので、遅い出力先がフュージョン処理を止めることはない
+public class SinkBuffer {
+    private static final String TAG = "SinkBuffer";
+    private static final long IDLE_PARK_NS = 5_000_000L; // 5ms
+
+    public enum Policy {
+        DROP_NEWEST, // 満杯なら新しいレコードを捨てる（記録向け: 欠落はあっても順序は保つ）
+        DROP_OLDEST  // 満杯なら最も古いレコードを捨てる（表示向け: 常に最新値を届ける）
+    }
+
+    private final String name;
+    private final SampleSink sink;
+    private final Policy policy;
+    private final int mask;
+    private final SessionRecord[] slots;
+
+    // DROP_OLDEST ではプロデューサも head を進めるため、コンシューマはコピー後に CAS で取り出しを確定する
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    // 配信スレッドが読む。null なら計測しない
+    private volatile FusionMetrics metrics;
+    private volatile LatencyHistogram latency;
+    private volatile LatencyHistogram acceptTime;
+
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean waiting = false;
+
+    public SinkBuffer(String name, SampleSink sink, int capacity, Policy policy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.name = name;
+        this.sink = sink;
+        this.policy = policy;
+        this.mask = capacity - 1;
+        this.slots = new SessionRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new SessionRecord();
+        }
+        worker = new Thread(this::runWorker, "Sink-" + name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // パイプライン（単一スレッド）から呼ぶ。捨てた場合は false
+    public boolean offer(SessionRecord record) {
+        long t = tail.get();
+        while (t - head.get() > mask) {
+            if (policy == Policy.DROP_NEWEST) {
+                dropped.lazySet(dropped.get() + 1);
+                return false;
+            }
+            long h = head.get();
+            if (t - h > mask && head.compareAndSet(h, h + 1)) {
+                dropped.lazySet(dropped.get() + 1);
+            }
+        }
+        slots[(int) t & mask].set(record);
+        tail.lazySet(t + 1);
+        if (waiting) {
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+
+    private boolean poll(SessionRecord out) {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                return false;
+            }
+            out.set(slots[(int) h & mask]);
+            if (head.compareAndSet(h, h + 1)) {
+                return true;
+            }
+            // コピー中にプロデューサが上書きした: 読み直す
+        }
+    }
+
+    private void runWorker() {
+        SessionRecord record = new SessionRecord();
+        while (true) {
+            if (poll(record)) {
+                deliver(record);
+            } else if (!running) {
+                break;
+            } else {
+                waiting = true;
+                if (head.get() >= tail.get()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NS);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    // sink.<name>.latency: センサー時刻から出力先へ渡し終えるまで、sink.<name>.accept: accept の処理時間
+    public void setMetrics(FusionMetrics metrics) {
+        if (metrics != null) {
+            acceptTime = metrics.histogram("sink." + name + ".accept");
+            latency = metrics.histogram("sink." + name + ".latency");
+            metrics.gauge("sink." + name + ".dropped", this::getDroppedCount);
+            metrics.gauge("sink." + name + ".delivered", this::getDeliveredCount);
+        }
+        this.metrics = metrics;
+    }
+
+    private void deliver(SessionRecord record) {
+        try {
+            FusionMetrics m = metrics;
+            if (m != null && m.isEnabled()) {
+                long start = System.nanoTime();
+                sink.accept(record);
+                acceptTime.record(System.nanoTime() - start);
+                latency.record(m.now() - record.timestamp);
+            } else {
+                sink.accept(record);
+            }
+            delivered.lazySet(delivered.get() + 1);
+        } catch (IOException | RuntimeException e) {
+            if (errors.getAndIncrement() == 0 && FusionLog.isEnabled()) {
+                FusionLog.d(TAG, name + ": " + e);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int depth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    // 残りを配信し終えてから出力先を閉じる
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.madgwick_filter;
+
+import java.nio.ByteBuffer;
+
+// 不等間隔で届く 3 軸の値を、一定周期の時間格子へ線形補間で載せ替える。
+// シンプソン則は等間隔を前提にしているため、積分の前段に置く。
+// 格子点は挟む 2 サンプルがそろった時点で出すので、遅れは最大でも入力 1 間隔分。出力バッファは事前確保
+public class UniformResampler {
+    public static final long DEFAULT_MAX_GAP_NS = 200_000_000L; // 200ms
+
+    private final long periodNs;
+    private final long maxGapNs;
+
+    private long lastTime;
+    private float lastX, lastY, lastZ;
+    private boolean hasLast = false;
+    private long nextGridTime;
+
+    // add の出力（最大で maxGapNs / periodNs + 1 点）
+    private final long[] outTimes;
+    private final float[] outX;
+    private final float[] outY;
+    private final float[] outZ;
+
+    public UniformResampler(float rateHz) {
+        this(rateHz, DEFAULT_MAX_GAP_NS);
+    }
+
+    // maxGapNs より間隔が空いたら補間せず、その時刻から格子を張り直す
+    public UniformResampler(float rateHz, long maxGapNs) {
+        if (rateHz <= 0 || maxGapNs <= 0) {
+            throw new IllegalArgumentException("rateHz and maxGapNs must be positive");
+        }
+        this.periodNs = Math.round(1e9 / rateHz);
+        this.maxGapNs = maxGapNs;
+        int capacity = (int) (maxGapNs / periodNs) + 1;
+        outTimes = new long[capacity];
+        outX = new float[capacity];
+        outY = new float[capacity];
+        outZ = new float[capacity];
+    }
+
+    // 1 サンプルを追加し、新たに確定した格子点の数を返す（time(i) / x(i) / y(i) / z(i) で取得）。
+    // 時刻がわずかに戻ったサンプルは捨てる（大きく戻った場合は再起動後などとみなして格子を張り直す）
+    public int add(long timeNanos, float x, float y, float z) {
+        int count = 0;
+        if (!hasLast || Math.abs(timeNanos - lastTime) > maxGapNs) {
+            // 最初のサンプル、または中断後: このサンプルを格子の起点にする
+            outTimes[0] = timeNanos;
+            outX[0] = x;
+            outY[0] = y;
+            outZ[0] = z;
+            count = 1;
+            nextGridTime = timeNanos + periodNs;
+        } else if (timeNanos <= lastTime) {
+            return 0;
+        } else {
+            float span = timeNanos - lastTime;
+            while (nextGridTime <= timeNanos) {
+                float w = (nextGridTime - lastTime) / span;
+                outTimes[count] = nextGridTime;
+                outX[count] = lastX + (x - lastX) * w;
+                outY[count] = lastY + (y - lastY) * w;
+                outZ[count] = lastZ + (z - lastZ) * w;
+                count++;
+                nextGridTime += periodNs;
+            }
+        }
+
+        lastTime = timeNanos;
+        lastX = x;
+        lastY = y;
+        lastZ = z;
+        hasLast = true;
+        return count;
+    }
+
+    public long time(int i) {
+        return outTimes[i];
+    }
+
+    public float x(int i) {
+        return outX[i];
+    }
+
+    public float y(int i) {
+        return outY[i];
+    }
+
+    public float z(int i) {
+        return outZ[i];
+    }
+
+    public long getPeriodNs() {
+        return periodNs;
+    }
+
+    public void clear() {
+        hasLast = false;
+    }
+
+    public void saveState(ByteBuffer out) {
+        out.putLong(periodNs);
+        out.put((byte) (hasLast ? 1 : 0));
+        out.putLong(lastTime);
+        out.putFloat(lastX);
+        out.putFloat(lastY);
+        out.putFloat(lastZ);
+        out.putLong(nextGridTime);
+    }
+
+    public void restoreState(ByteBuffer in) {
+        long period = in.getLong();
+        if (period != periodNs) {
+            throw new IllegalArgumentException("resampler period " + period + " ns does not match " + periodNs + " ns");
+        }
+        hasLast = in.get() != 0;
+        lastTime = in.getLong();
+        lastX = in.getFloat();
+        lastY = in.getFloat();
+        lastZ = in.getFloat();
+        nextGridTime = in.getLong();
+    }
+}
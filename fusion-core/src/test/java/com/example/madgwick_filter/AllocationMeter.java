@@ -0,0 +1,46 @@
+package com.example.madgwick_filter;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+
+// 確保なしのテスト用: 現在のスレッドで task が確保したバイト数を ThreadMXBean で測る。
+// 使えない JVM ではテストをスキップする
+final class AllocationMeter {
+    // JIT の再コンパイル等で測定外の確保が紛れることがあるので、0 になるまで数回測り直す。
+    // サンプルごとに確保していれば毎回 0 にならないので見逃さない
+    private static final int ATTEMPTS = 3;
+
+    private AllocationMeter() {
+    }
+
+    // ウォームアップの前に呼ぶ（使えないなら以降を実行しない）
+    static void assumeSupported() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        Assume.assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    // task を実行して確保されたバイト数（計測自体の分は除く）。測り直すので task は何度呼ばれてもよいこと
+    static long allocatedBytes(Runnable task) {
+        assumeSupported();
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS && least != 0; attempt++) {
+            long calibrationStart = threads.getThreadAllocatedBytes(threadId);
+            long overhead = threads.getThreadAllocatedBytes(threadId) - calibrationStart;
+            long before = threads.getThreadAllocatedBytes(threadId);
+            task.run();
+            long after = threads.getThreadAllocatedBytes(threadId);
+            least = Math.min(least, after - before - overhead);
+        }
+        return least;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * センサースレッドのホットパス（フィルタ更新 → 移動検出 → 距離計算）が
+ * サンプルごとにヒープ確保を行わないことを確認する。
+ */
+public class AllocationTest {
+    private static final int WARMUP_SAMPLES = 200_000;
+    private static final int MEASURED_SAMPLES = 10_000;
+
+    private final MadgwickFilter filter = new MadgwickFilter();
+    private final MovementDetector detector = new MovementDetector();
+    private final DistanceCalculator calculator = new DistanceCalculator();
+
+    private final float[] accel = new float[3];
+    private final float[] gyro = new float[3];
+    private final float[] quaternion = new float[4];
+    private final float[] worldAccel = new float[3];
+    private final float[] motion = new float[7];
+    private long timestamp = 1;
+
+    @Test
+    public void hotPath_doesNotAllocatePerSample() {
+        AllocationMeter.assumeSupported();
+        detector.setDebugLogging(false);
+
+        // JIT コンパイル後の定常状態を測定する
+        runSamples(WARMUP_SAMPLES);
+
+        assertEquals("bytes allocated over " + MEASURED_SAMPLES + " samples",
+                0, AllocationMeter.allocatedBytes(() -> runSamples(MEASURED_SAMPLES)));
+    }
+
+    private void runSamples(int count) {
+        for (int i = 0; i < count; i++) {
+            // 静止区間と移動区間を交互に流し、両方の分岐を通す
+            boolean moving = (i / 500) % 2 == 1;
+            float wave = moving ? (float) Math.sin(i * 0.05) * 3f : 0f;
+            accel[0] = wave;
+            accel[1] = 0.5f * wave;
+            accel[2] = 9.81f;
+            gyro[0] = 0.1f * wave;
+            gyro[1] = 0f;
+            gyro[2] = 0.2f * wave;
+            timestamp += 10_000_000L;
+
+            filter.update(accel, gyro, 100f);
+            filter.getQuaternion(quaternion);
+            filter.getWorldAcceleration(worldAccel);
+            boolean isMoving = detector.update(worldAccel);
+            calculator.calculateMotion(worldAccel, isMoving, timestamp, motion);
+        }
+    }
+}
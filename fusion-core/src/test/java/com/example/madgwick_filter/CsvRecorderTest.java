@@ -0,0 +1,84 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CsvRecorderTest {
+
+    @Test
+    public void record_writesEveryRowInOrder() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsvRecorder recorder = new CsvRecorder(bytes, 4096);
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+        float[] quaternion = new float[4];
+        float[] worldAccel = new float[3];
+        float[] motion = new float[7];
+
+        int rows = 10_000;
+        for (int i = 0; i < rows; i++) {
+            accel[0] = i * 0.001f;
+            gyro[2] = -i * 0.5f;
+            quaternion[0] = 1f;
+            motion[6] = i;
+            // 書き込みスレッドが追いつくまで待つ（このテストでは破棄させない）
+            while (!recorder.record(i * 10_000_000L, accel, gyro, quaternion, worldAccel, motion)) {
+                Thread.yield();
+            }
+        }
+        recorder.close();
+
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals(rows + 1, lines.length);
+        assertEquals(CsvRecorder.HEADER.trim(), lines[0]);
+        for (int i = 0; i < rows; i++) {
+            String[] columns = lines[i + 1].split(",");
+            assertEquals(21, columns.length);
+            assertEquals(i * 10_000_000L, Long.parseLong(columns[0]));
+            assertEquals(i * 0.001f, Float.parseFloat(columns[1]), 1e-6f);
+            assertEquals(-i * 0.5f, Float.parseFloat(columns[6]), 1e-6f);
+            assertEquals(i, Float.parseFloat(columns[20]), 1e-6f);
+        }
+    }
+
+    @Test
+    public void record_dropsInsteadOfBlockingWhenWriterIsBehind() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                bytes.write(b, off, len);
+            }
+        };
+        CsvRecorder recorder = new CsvRecorder(slow, 4096);
+        float[] values = new float[7];
+
+        int attempts = 5_000;
+        for (int i = 0; i < attempts; i++) {
+            recorder.record(i, values, values, values, values, values);
+        }
+        recorder.close();
+
+        assertTrue(recorder.getDroppedRows() > 0);
+        assertEquals(attempts, recorder.getRecordedRows() + recorder.getDroppedRows());
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals(recorder.getRecordedRows() + 1, lines.length);
+    }
+}
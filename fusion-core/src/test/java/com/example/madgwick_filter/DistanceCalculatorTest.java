@@ -0,0 +1,130 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DistanceCalculatorTest {
+    private static final float TOLERANCE = 1e-6f;
+
+    @Test
+    public void calculateMotion_matchesQueueReference() {
+        DistanceCalculator calculator = new DistanceCalculator();
+        ReferenceCalculator reference = new ReferenceCalculator();
+        float[] worldAccel = new float[3];
+        float[] out = new float[7];
+
+        long timestamp = 123_456_789L;
+        for (int i = 0; i < 5_000; i++) {
+            // 静止・移動区間を不規則に切り替え、タイムスタンプにも揺らぎを入れる
+            boolean moving = (i % 700) > 150;
+            worldAccel[0] = (float) Math.sin(i * 0.07) * 2f;
+            worldAccel[1] = (float) Math.cos(i * 0.05) * 1.5f;
+            worldAccel[2] = (float) Math.sin(i * 0.11) * 0.3f;
+            timestamp += 20_000_000L + (i * 7919L) % 3_000_000L;
+
+            calculator.calculateMotion(worldAccel, moving, timestamp, out);
+            float[] expected = reference.calculateMotion(worldAccel, moving, timestamp);
+            assertArrayEquals("sample " + i, expected, out, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void calculateMotion_staticResetsVelocityButKeepsDistance() {
+        DistanceCalculator calculator = new DistanceCalculator();
+        float[] accel = {1f, 0f, 0f};
+        float[] out = new float[7];
+        long timestamp = 1;
+        for (int i = 0; i < 20; i++) {
+            timestamp += 10_000_000L;
+            calculator.calculateMotion(accel, true, timestamp, out);
+        }
+        float distance = out[6];
+
+        calculator.calculateMotion(accel, false, timestamp + 10_000_000L, out);
+        assertEquals(0f, out[0], 0f);
+        assertEquals(distance, out[6], 0f);
+    }
+
+    @Test
+    public void ringBuffer_overwritesOldest() {
+        FloatRingBuffer ring = new FloatRingBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            ring.add(i);
+        }
+        assertEquals(3, ring.size());
+        assertEquals(3f, ring.oldest(), 0f);
+        assertEquals(4f, ring.get(1), 0f);
+        assertEquals(5f, ring.newest(), 0f);
+    }
+
+    // キューを毎回配列へコピーしていた実装と同じ計算を行う参照実装
+    private static class ReferenceCalculator {
+        private final ArrayDeque<float[]> accelQueue = new ArrayDeque<>();
+        private final ArrayDeque<Long> accelTimes = new ArrayDeque<>();
+        private final ArrayDeque<float[]> veloQueue = new ArrayDeque<>();
+        private final ArrayDeque<Long> veloTimes = new ArrayDeque<>();
+        private final float[] velo = new float[3];
+        private final float[] dist = new float[3];
+        private float total;
+        private long initTime;
+
+        float[] calculateMotion(float[] a, boolean moving, long timestamp) {
+            if (initTime == 0) {
+                initTime = timestamp;
+            }
+            long t = timestamp - initTime;
+            if (!moving) {
+                velo[0] = velo[1] = velo[2] = 0;
+                accelQueue.clear();
+                accelTimes.clear();
+                veloQueue.clear();
+                veloTimes.clear();
+                return result();
+            }
+            accelQueue.add(a.clone());
+            accelTimes.add(t);
+            if (accelQueue.size() == 4) {
+                for (int axis = 0; axis < 3; axis++) {
+                    velo[axis] = simpson(accelQueue, accelTimes, axis);
+                }
+                veloQueue.add(velo.clone());
+                veloTimes.add(t);
+                accelQueue.remove();
+                accelTimes.remove();
+            }
+            if (veloQueue.size() == 4) {
+                float[] d = new float[3];
+                for (int axis = 0; axis < 3; axis++) {
+                    d[axis] = simpson(veloQueue, veloTimes, axis);
+                    dist[axis] += d[axis];
+                }
+                total += (float) Math.sqrt(d[0] * d[0] + d[1] * d[1]);
+                veloQueue.remove();
+                veloTimes.remove();
+            }
+            return result();
+        }
+
+        private float[] result() {
+            return new float[]{velo[0], velo[1], velo[2], dist[0], dist[1], dist[2], total};
+        }
+
+        private static float simpson(ArrayDeque<float[]> values, ArrayDeque<Long> times, int axis) {
+            float[] y = new float[4];
+            long[] t = new long[4];
+            Iterator<float[]> vi = values.iterator();
+            Iterator<Long> ti = times.iterator();
+            for (int i = 0; i < 4; i++) {
+                y[i] = vi.next()[axis];
+                t[i] = ti.next();
+            }
+            float h = ((t[3] - t[0]) / 1e9f) / 3f;
+            return (h / 3f) * (y[0] + 4 * y[1] + 2 * y[2] + y[3]);
+        }
+    }
+}
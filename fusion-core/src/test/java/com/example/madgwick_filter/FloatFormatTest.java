@@ -0,0 +1,96 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FloatFormatTest {
+
+    private static String format(float value, int decimals) {
+        char[] buf = new char[FloatFormat.MAX_LENGTH];
+        int end = FloatFormat.format(value, decimals, buf, 0);
+        return new String(buf, 0, end);
+    }
+
+    private static String formatBytes(float value, int decimals, boolean preserveSmall) {
+        byte[] buf = new byte[FloatFormat.MAX_LENGTH];
+        int end = preserveSmall
+                ? FloatFormat.formatPreservingSmall(value, decimals, buf, 0)
+                : FloatFormat.format(value, decimals, buf, 0);
+        return new String(buf, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void format_matchesStringFormat() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            float value = (float) ((random.nextDouble() - 0.5) * 200);
+            for (int decimals = 0; decimals <= 4; decimals++) {
+                String expected = String.format(Locale.ROOT, "%." + decimals + "f", value);
+                if (expected.equals("-0" + (decimals > 0 ? "." + "0000".substring(0, decimals) : ""))) {
+                    expected = expected.substring(1); // 負のゼロは符号なしで出す
+                }
+                assertEquals(expected, format(value, decimals));
+            }
+        }
+    }
+
+    @Test
+    public void format_handlesSpecialValues() {
+        assertEquals("0.00", format(-0.001f, 2));
+        assertEquals("9.81", format(9.81f, 2));
+        assertEquals("-1.50", format(-1.5f, 2));
+        assertEquals("NaN", format(Float.NaN, 2));
+        assertEquals("-Infinity", format(Float.NEGATIVE_INFINITY, 2));
+    }
+
+    @Test
+    public void format_bytesMatchChars() {
+        Random random = new Random(2);
+        for (int i = 0; i < 10_000; i++) {
+            float value = Float.intBitsToFloat(random.nextInt());
+            for (int decimals = 0; decimals <= FloatFormat.MAX_DECIMALS; decimals++) {
+                assertEquals(format(value, decimals), formatBytes(value, decimals, false));
+            }
+        }
+    }
+
+    @Test
+    public void format_usesScientificNotationBeyondLongRange() {
+        // 6 桁では 9.2e12 を超えると long に収まらない（以前は Long.MAX_VALUE で飽和していた）
+        for (float value : new float[]{1e13f, -3.5e20f, Float.MAX_VALUE, 9.99999999e15f}) {
+            String text = format(value, 6);
+            assertTrue(text, text.contains("E"));
+            assertTrue(text, text.length() <= FloatFormat.MAX_LENGTH);
+            assertEquals(value, Float.parseFloat(text), Math.abs(value) * 1e-6f);
+        }
+        assertEquals("1.000000E13", format(1e13f, 6));
+        assertEquals("-3.50E20", format(-3.5e20f, 2));
+        assertEquals("1234567.000000", format(1234567f, 6));
+    }
+
+    @Test
+    public void formatPreservingSmall_keepsValuesBelowResolution() {
+        assertEquals("4.000000E-7", formatBytes(4e-7f, 6, true));
+        assertEquals("-1.234568E-9", formatBytes(-1.2345678e-9f, 6, true));
+        assertEquals("1.401298E-45", formatBytes(Float.MIN_VALUE, 6, true));
+        assertEquals("0.000001", formatBytes(6e-7f, 6, true));
+        assertEquals("0.000000", formatBytes(0f, 6, true));
+        assertEquals("0.000000", formatBytes(-0f, 6, true));
+        // 表示用は従来どおり桁に丸める
+        assertEquals("0.000000", formatBytes(4e-7f, 6, false));
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            float value = (float) ((random.nextDouble() - 0.5) * Math.pow(10, -random.nextInt(30)));
+            String text = formatBytes(value, 6, true);
+            float parsed = Float.parseFloat(text);
+            assertEquals(text, value, parsed, Math.max(Math.abs(value) * 1e-6f, 6e-7f));
+            assertTrue(text, value == 0 || parsed != 0);
+        }
+    }
+}
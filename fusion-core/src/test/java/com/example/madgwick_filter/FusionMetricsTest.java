@@ -0,0 +1,103 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class FusionMetricsTest {
+    private static final long PERIOD_NS = 10_000_000L;
+
+    @Test
+    public void pipeline_recordsStagesLatencyAndSinks() throws IOException {
+        // バッチの最後のサンプルから 3ms 後に処理される時計
+        long[] now = {0};
+        FusionMetrics metrics = new FusionMetrics(() -> now[0]);
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        processor.setMetrics(metrics);
+        FusionPipeline pipeline = new FusionPipeline(processor);
+        pipeline.setMetrics(metrics);
+        SinkBuffer sink = pipeline.addSink("out", record -> { }, 1024, SinkBuffer.Policy.DROP_NEWEST);
+
+        SampleBatch batch = new SampleBatch(10);
+        float[] accel = {0f, 0f, 9.81f};
+        float[] gyro = new float[3];
+        for (int i = 0; i < 100; i++) {
+            long t = i * PERIOD_NS;
+            batch.add(t, accel, gyro);
+            if (batch.isFull()) {
+                now[0] = t + 3_000_000L;
+                pipeline.processBatch(batch);
+                batch.clear();
+            }
+        }
+        pipeline.removeSink(sink);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(100, snapshot.getCount(FusionMetrics.SAMPLES));
+        assertEquals(100, snapshot.getCount("sink.out.delivered"));
+        assertEquals(0, snapshot.getCount("sink.out.dropped"));
+        for (String stage : new String[]{FusionMetrics.STAGE_FILTER, FusionMetrics.STAGE_DETECTOR,
+                FusionMetrics.STAGE_INTEGRATOR}) {
+            assertEquals(stage, 10, snapshot.getHistogram(stage).count);
+        }
+        MetricsSnapshot.Summary interval = snapshot.getHistogram(FusionMetrics.SAMPLE_INTERVAL);
+        assertEquals(99, interval.count);
+        assertEquals(PERIOD_NS, interval.max);
+        // バッチの先頭ほど遅延が大きい: 3ms 〜 93ms
+        MetricsSnapshot.Summary fused = snapshot.getHistogram(FusionMetrics.LATENCY_FUSED);
+        assertEquals(93_000_000L, fused.max);
+        assertEquals(48_000_000, fused.mean, 1);
+        assertEquals(100, snapshot.getHistogram("sink.out.latency").count);
+        assertNotNull(snapshot.getHistogram("sink.out.accept"));
+        assertTrue(snapshot.toString(), snapshot.toString().contains("latency.fused count=100"));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        FusionMetrics metrics = new FusionMetrics();
+        metrics.setEnabled(false);
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        processor.setMetrics(metrics);
+        SessionRecord record = new SessionRecord();
+        for (int i = 0; i < 10; i++) {
+            processor.process(new float[]{0f, 0f, 9.81f}, new float[3], i * PERIOD_NS, record);
+        }
+        assertEquals(0, metrics.snapshot().getCount(FusionMetrics.SAMPLES));
+
+        metrics.setEnabled(true);
+        processor.process(new float[]{0f, 0f, 9.81f}, new float[3], 10 * PERIOD_NS, record);
+        assertEquals(1, metrics.snapshot().getCount(FusionMetrics.SAMPLES));
+    }
+
+    @Test
+    public void enabled_doesNotAllocatePerSample() {
+        AllocationMeter.assumeSupported();
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        processor.setMetrics(new FusionMetrics());
+        SessionRecord record = new SessionRecord();
+        record.accel[2] = 9.81f;
+        runSamples(processor, record, 0, 200_000);
+
+        // 測り直しても時刻が戻らないよう続きから流す
+        int[] next = {200_000};
+        assertEquals(0, AllocationMeter.allocatedBytes(() -> {
+            runSamples(processor, record, next[0], 10_000);
+            next[0] += 10_000;
+        }));
+    }
+
+    private static void runSamples(FusionProcessor processor, SessionRecord record, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            record.timestamp = i * PERIOD_NS;
+            record.accel[0] = (i / 500) % 2 == 1 ? (float) Math.sin(i * 0.05) * 3f : 0f;
+            processor.process(record);
+        }
+    }
+}
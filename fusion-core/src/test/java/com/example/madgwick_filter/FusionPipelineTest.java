@@ -0,0 +1,197 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+public class FusionPipelineTest {
+
+    @Test
+    public void slowSink_doesNotStallOtherSinks() throws IOException, InterruptedException {
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        FusionPipeline pipeline = new FusionPipeline(processor);
+
+        CountDownLatch release = new CountDownLatch(1);
+        SinkBuffer slow = pipeline.addSink("slow", record -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 16, SinkBuffer.Policy.DROP_NEWEST);
+        List<Long> timestamps = new ArrayList<>();
+        SinkBuffer recorder = pipeline.addSink("recorder", record -> timestamps.add(record.timestamp),
+                4096, SinkBuffer.Policy.DROP_NEWEST);
+
+        SessionRecord record = new SessionRecord();
+        for (int i = 0; i < 1000; i++) {
+            record.timestamp = i * 20_000_000L;
+            record.accel[2] = 9.81f;
+            pipeline.process(record);
+        }
+        // 遅い出力先は止まったままでも、処理はすべて終わっている
+        assertTrue(slow.getDroppedCount() > 0);
+
+        pipeline.removeSink(recorder);
+        assertEquals(1000, timestamps.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 20_000_000L, (long) timestamps.get(i));
+        }
+
+        release.countDown();
+        pipeline.close();
+        assertEquals(1000, slow.getDeliveredCount() + slow.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldest_keepsLatestRecords() throws IOException, InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> timestamps = new ArrayList<>();
+        SinkBuffer buffer = new SinkBuffer("ui", record -> {
+            timestamps.add(record.timestamp);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 4, SinkBuffer.Policy.DROP_OLDEST);
+
+        SessionRecord record = new SessionRecord();
+        record.timestamp = 0;
+        buffer.offer(record);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            record.timestamp = i;
+            assertTrue(buffer.offer(record));
+        }
+        release.countDown();
+        buffer.close();
+
+        // 配信中だった 1 件の後に、最新の 4 件だけが届く
+        assertEquals(5, timestamps.size());
+        assertEquals(97L, (long) timestamps.get(1));
+        assertEquals(100L, (long) timestamps.get(4));
+        assertEquals(96, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void restoreState_continuesBitIdentically() throws IOException {
+        FusionPipeline original = newPipeline();
+        SessionRecord a = new SessionRecord();
+        SessionRecord b = new SessionRecord();
+        for (int i = 0; i < 1500; i++) {
+            feed(original, a, i);
+        }
+
+        ByteBuffer state = ByteBuffer.allocate(4096);
+        original.saveState(state);
+        state.flip();
+        FusionPipeline restored = newPipeline();
+        restored.restoreState(state);
+        assertEquals(0, state.remaining());
+
+        for (int i = 1500; i < 3000; i++) {
+            feed(original, a, i);
+            feed(restored, b, i);
+            assertArrayEquals(a.quaternion, b.quaternion, 0f);
+            assertArrayEquals(a.motion, b.motion, 0f);
+            assertEquals(a.moving, b.moving);
+        }
+    }
+
+    @Test
+    public void restoreState_continuesAveragedStagesBitIdentically() throws IOException {
+        // 移動検出・距離積分の区間の途中で保存しても、続きが同じになる
+        FusionPipeline original = newPipeline(200_000_000L, 60_000_000L);
+        SessionRecord a = new SessionRecord();
+        SessionRecord b = new SessionRecord();
+        for (int i = 0; i < 1501; i++) {
+            feed(original, a, i);
+        }
+
+        ByteBuffer state = ByteBuffer.allocate(4096);
+        original.saveState(state);
+        state.flip();
+        FusionPipeline restored = newPipeline(200_000_000L, 60_000_000L);
+        restored.restoreState(state);
+        assertEquals(0, state.remaining());
+
+        for (int i = 1501; i < 3000; i++) {
+            feed(original, a, i);
+            feed(restored, b, i);
+            assertArrayEquals(a.motion, b.motion, 0f);
+            assertEquals(a.moving, b.moving);
+        }
+    }
+
+    @Test
+    public void resetDistance_clearsPositionBeforeNextIntegration() {
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        processor.setIntegrationIntervalNs(1_000_000_000L);
+        FusionPipeline pipeline = new FusionPipeline(processor);
+        SessionRecord record = new SessionRecord();
+        int i = 0;
+        while (i < 1000 || record.motion[6] == 0f) {
+            feed(pipeline, record, i++);
+        }
+        processor.resetDistance();
+        // 次の積分（1 秒後）までの出力も 0 の位置・距離になる
+        feed(pipeline, record, i);
+        assertArrayEquals(new float[]{0f, 0f, 0f, 0f}, Arrays.copyOfRange(record.motion, 3, 7), 0f);
+    }
+
+    @Test
+    public void restoreState_rejectsIncompatibleSnapshot() {
+        FusionPipeline source = new FusionPipeline(new FusionProcessor(new MadgwickFilter(), new MovementDetector(),
+                new DistanceCalculator(), FusionProcessor.DEFAULT_SAMPLE_FREQUENCY));
+        ByteBuffer state = ByteBuffer.allocate(4096);
+        source.saveState(state);
+        state.flip();
+
+        // リサンプラの有無が違う
+        try {
+            newPipeline().restoreState(state);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // OK
+        }
+    }
+
+    private static FusionPipeline newPipeline() {
+        return newPipeline(0, 0);
+    }
+
+    private static FusionPipeline newPipeline(long detectionIntervalNs, long integrationIntervalNs) {
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        processor.setDetectionIntervalNs(detectionIntervalNs);
+        processor.setIntegrationIntervalNs(integrationIntervalNs);
+        return new FusionPipeline(processor);
+    }
+
+    private static void feed(FusionPipeline pipeline, SessionRecord record, int i) {
+        boolean walking = (i / 400) % 2 == 1;
+        double t = i * 0.02;
+        record.timestamp = i * 20_000_000L + (i % 5) * 700_000L;
+        record.accel[0] = walking ? (float) Math.sin(t * 12) * 2f : 0.01f;
+        record.accel[1] = walking ? (float) Math.cos(t * 12) : -0.02f;
+        record.accel[2] = 9.81f;
+        record.gyro[2] = walking ? (float) Math.sin(t) * 5f : 0f;
+        pipeline.process(record);
+    }
+}
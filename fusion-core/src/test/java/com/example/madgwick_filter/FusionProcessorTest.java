@@ -0,0 +1,118 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FusionProcessorTest {
+
+    @Test
+    public void processBatch_matchesPerSampleProcessing() {
+        FusionProcessor single = new FusionProcessor();
+        FusionProcessor batched = new FusionProcessor();
+        single.getDetector().setDebugLogging(false);
+        batched.getDetector().setDebugLogging(false);
+        SampleBatch batch = new SampleBatch(16);
+        SessionRecord expected = new SessionRecord();
+        SessionRecord actual = new SessionRecord();
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+
+        for (int i = 0; i < 3000; i++) {
+            boolean walking = (i / 300) % 2 == 1;
+            double t = i * 0.02;
+            accel[0] = walking ? (float) Math.sin(t * 12) * 2f : 0.01f;
+            accel[1] = walking ? (float) Math.cos(t * 12) : -0.02f;
+            accel[2] = 9.81f;
+            gyro[2] = walking ? (float) Math.sin(t) * 5f : 0f;
+            long timestamp = i * 20_000_000L + (i % 3) * 500_000L; // 間隔の揺らぎ
+
+            single.process(accel, gyro, timestamp, expected);
+            batch.add(timestamp, accel, gyro);
+            // バッチの長さは FIFO の配信と同じく一定にならない
+            if (batch.isFull() || i % 7 == 0) {
+                batched.processBatch(batch);
+                batch.read(batch.size() - 1, actual);
+                assertEquals(expected.timestamp, actual.timestamp);
+                assertArrayEquals(expected.quaternion, actual.quaternion, 0f);
+                assertArrayEquals(expected.worldAccel, actual.worldAccel, 0f);
+                assertArrayEquals(expected.motion, actual.motion, 0f);
+                batch.clear();
+            }
+        }
+    }
+
+    @Test
+    public void fallbackSampleFrequency_usedForFirstSampleAndAfterGaps() {
+        FusionProcessor processor = newProcessor();
+        processor.setFallbackSampleFrequency(400f);
+        MadgwickFilter reference = FusionProcessor.newDefaultFilter();
+        SessionRecord record = new SessionRecord();
+        float[] accel = {0.3f, -0.2f, 9.81f};
+        float[] gyro = {0.1f, 0.4f, -0.3f};
+        float[] expected = new float[4];
+
+        long timestamp = 0;
+        for (int i = 0; i < 60; i++) {
+            // 30 番目の前で最大間隔を超えて途切れる
+            long dt = i == 0 ? 0 : i == 30 ? FusionProcessor.MAX_SAMPLE_INTERVAL_NS + 1 : 2_500_000L;
+            timestamp += dt;
+            processor.process(accel, gyro, timestamp, record);
+            reference.update(accel, gyro, i == 0 || i == 30 ? 400f : 1e9f / dt);
+            reference.getQuaternion(expected);
+            assertArrayEquals(expected, record.quaternion, 0f);
+        }
+    }
+
+    @Test
+    public void lowerRates_keepFilterAtFullRate() {
+        ImuTraceGenerator generator = new ImuTraceGenerator(400f, 9);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 3f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 15f);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 3f);
+        generator.setNoise(0.03f, 0.1f);
+        FusionProcessor full = newProcessor();
+        FusionProcessor single = newProcessor();
+        FusionProcessor batched = newProcessor();
+        for (FusionProcessor p : new FusionProcessor[]{single, batched}) {
+            p.setDetectionIntervalNs(50_000_000L);
+            p.setIntegrationIntervalNs(20_000_000L);
+        }
+
+        SessionRecord measured = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        SessionRecord expected = new SessionRecord();
+        SessionRecord actual = new SessionRecord();
+        SessionRecord fromBatch = new SessionRecord();
+        SampleBatch batch = new SampleBatch(32);
+        int agree = 0;
+        int count = 0;
+        while (generator.next(measured, truth)) {
+            full.process(measured.accel, measured.gyro, measured.timestamp, expected);
+            single.process(measured.accel, measured.gyro, measured.timestamp, actual);
+            batch.add(measured.timestamp, measured.accel, measured.gyro);
+            if (batch.isFull()) {
+                batched.processBatch(batch);
+                batch.read(batch.size() - 1, fromBatch);
+                assertArrayEquals(actual.motion, fromBatch.motion, 0f);
+                assertEquals(actual.moving, fromBatch.moving);
+                batch.clear();
+            }
+            assertArrayEquals(expected.quaternion, actual.quaternion, 0f);
+            if (actual.moving == truth.moving) {
+                agree++;
+            }
+            count++;
+        }
+        assertTrue("agreement " + agree + "/" + count, agree > count * 0.9);
+        assertEquals(expected.motion[6], actual.motion[6], expected.motion[6] * 0.05f);
+    }
+
+    private static FusionProcessor newProcessor() {
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        return processor;
+    }
+}
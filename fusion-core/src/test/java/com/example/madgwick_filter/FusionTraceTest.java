@@ -0,0 +1,87 @@
+package com.example.madgwick_filter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FusionTraceTest {
+    private static final int[] FORMATTED = new int[1];
+    private static final FusionTrace.Event SAMPLE = FusionTrace.event("Test", FusionTrace.DEBUG,
+            (a, b, c, d, n) -> {
+                FORMATTED[0]++;
+                return "sample " + n + " " + a;
+            });
+
+    @After
+    public void tearDown() {
+        FusionTrace.setLevel(FusionTrace.OFF);
+        FusionTrace.setCapacity(FusionTrace.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void record_formatsOnlyOnDump() {
+        FusionTrace.setCapacity(16);
+        FusionTrace.setLevel(FusionTrace.DEBUG);
+        FORMATTED[0] = 0;
+        for (int i = 0; i < 5; i++) {
+            FusionTrace.record(SAMPLE, i * 0.5f, 0f, 0f, i);
+        }
+        assertEquals(0, FORMATTED[0]);
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(5, FusionTrace.dump((tag, message) -> lines.add(tag + ": " + message)));
+        assertEquals(5, FORMATTED[0]);
+        assertTrue(lines.get(0), lines.get(0).startsWith("Test: ") && lines.get(0).endsWith("sample 0 0.0"));
+        assertTrue(lines.get(4), lines.get(4).endsWith("sample 4 2.0"));
+        // dump 済みの記録は 2 度出さない
+        assertEquals(0, FusionTrace.dump((tag, message) -> lines.add(message)));
+    }
+
+    @Test
+    public void record_isGatedByLevel() {
+        FusionTrace.setCapacity(16);
+        FusionTrace.setLevel(FusionTrace.INFO);
+        FusionTrace.record(SAMPLE, 1);
+        assertEquals(0, FusionTrace.dump((tag, message) -> { }));
+        FusionTrace.setLevel(FusionTrace.VERBOSE);
+        FusionTrace.record(SAMPLE, 1);
+        assertEquals(1, FusionTrace.dump((tag, message) -> { }));
+    }
+
+    @Test
+    public void ring_keepsNewestRecords() {
+        FusionTrace.setCapacity(8);
+        FusionTrace.setLevel(FusionTrace.DEBUG);
+        for (int i = 0; i < 20; i++) {
+            FusionTrace.record(SAMPLE, i);
+        }
+        List<String> lines = new ArrayList<>();
+        assertEquals(8, FusionTrace.dump((tag, message) -> lines.add(message)));
+        assertTrue(lines.get(0), lines.get(0).endsWith("sample 12 0.0"));
+        assertEquals(12, FusionTrace.getOverwrittenCount());
+    }
+
+    @Test
+    public void movementDetector_tracesWithoutAllocating() {
+        AllocationMeter.assumeSupported();
+        FusionTrace.setLevel(FusionTrace.DEBUG);
+        MovementDetector detector = new MovementDetector();
+        float[] accel = new float[3];
+        runSamples(detector, accel, 200_000);
+
+        assertEquals(0, AllocationMeter.allocatedBytes(() -> runSamples(detector, accel, 10_000)));
+        assertTrue(FusionTrace.dump((tag, message) -> { }) > 0);
+    }
+
+    private static void runSamples(MovementDetector detector, float[] accel, int count) {
+        for (int i = 0; i < count; i++) {
+            accel[0] = (i / 500) % 2 == 1 ? (float) Math.sin(i * 0.05) * 3f : 0f;
+            detector.update(accel);
+        }
+    }
+}
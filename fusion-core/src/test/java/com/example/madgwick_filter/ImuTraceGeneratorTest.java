@@ -0,0 +1,161 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ImuTraceGeneratorTest {
+
+    private static ImuTraceGenerator script(float rateHz, long seed) {
+        ImuTraceGenerator generator = new ImuTraceGenerator(rateHz, seed);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 2f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 10f);
+        generator.addSegment(ImuTraceGenerator.Motion.ROTATING, 4f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 6f);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 2f);
+        return generator;
+    }
+
+    @Test
+    public void sameSeed_producesSameTrace() {
+        ImuTraceGenerator a = script(100f, 7);
+        ImuTraceGenerator b = script(100f, 7);
+        ImuTraceGenerator other = script(100f, 8);
+        for (ImuTraceGenerator g : new ImuTraceGenerator[]{a, b, other}) {
+            g.setNoise(0.05f, 0.2f);
+            g.setTimestampJitter(2_000_000L);
+        }
+        SessionRecord ra = new SessionRecord(), rb = new SessionRecord(), ro = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        boolean differs = false;
+        long[] head = new long[10];
+        int n = 0;
+        while (a.next(ra, truth)) {
+            if (n < head.length) {
+                head[n++] = ra.timestamp;
+            }
+            assertTrue(b.next(rb, truth));
+            assertTrue(other.next(ro, truth));
+            assertEquals(ra.timestamp, rb.timestamp);
+            assertArrayEquals(ra.accel, rb.accel, 0f);
+            assertArrayEquals(ra.gyro, rb.gyro, 0f);
+            differs |= ra.accel[0] != ro.accel[0];
+        }
+        assertFalse(b.next(rb, truth));
+        assertTrue(differs);
+
+        // restart() で最初から同じ列になる
+        a.restart();
+        for (long expected : head) {
+            assertTrue(a.next(ra, truth));
+            assertEquals(expected, ra.timestamp);
+        }
+    }
+
+    @Test
+    public void still_measuresGravityInSensorFrame() {
+        ImuTraceGenerator generator = new ImuTraceGenerator(50f, 1);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 1f);
+        float roll = (float) Math.toRadians(30), pitch = (float) Math.toRadians(-20);
+        generator.setInitialOrientation(roll, pitch, 0.5f);
+        generator.setAccelBias(0.1f, 0f, 0f);
+        SessionRecord measured = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        assertTrue(generator.next(measured, truth));
+
+        float[] expected = {
+                (float) -Math.sin(pitch) * ImuTraceGenerator.GRAVITY,
+                (float) (Math.cos(pitch) * Math.sin(roll)) * ImuTraceGenerator.GRAVITY,
+                (float) (Math.cos(pitch) * Math.cos(roll)) * ImuTraceGenerator.GRAVITY};
+        assertArrayEquals(expected, truth.accel, 1e-4f);
+        assertEquals(expected[0] + 0.1f, measured.accel[0], 1e-4f);
+        assertArrayEquals(new float[3], measured.gyro, 0f);
+        assertFalse(truth.moving);
+
+        // 同じ加速度から初期化したフィルタは真値と同じ重力方向になる
+        MadgwickFilter filter = new MadgwickFilter(MathKernels.EXACT);
+        filter.initializeFromAccelerometer(truth.accel[0], truth.accel[1], truth.accel[2]);
+        float[] g = filter.getGravityVector();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected[i] / ImuTraceGenerator.GRAVITY, g[i], 1e-5f);
+        }
+    }
+
+    @Test
+    public void truth_isKinematicallyConsistent() {
+        ImuTraceGenerator generator = script(200f, 3);
+        generator.setTimestampJitter(1_000_000L);
+        SessionRecord measured = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        float[] velocity = new float[3];
+        float[] lastAccel = new float[3];
+        long lastTime = 0;
+        long count = 0;
+        while (generator.next(measured, truth)) {
+            if (count > 0) {
+                assertTrue(truth.timestamp > lastTime);
+                float dt = (truth.timestamp - lastTime) / 1e9f;
+                for (int i = 0; i < 3; i++) {
+                    velocity[i] += (lastAccel[i] + truth.worldAccel[i]) / 2 * dt;
+                }
+            }
+            // 加速度の積分が速度の真値と一致する
+            assertArrayEquals(new float[]{truth.motion[0], truth.motion[1], truth.motion[2]}, velocity, 0.01f);
+            System.arraycopy(truth.worldAccel, 0, lastAccel, 0, 3);
+            lastTime = truth.timestamp;
+            count++;
+        }
+        assertEquals(generator.getSampleCount(), count);
+        // 歩行 16 秒 × 平均 1.4 m/s から立ち上がり・立ち下がりの分を引いた距離。最後は静止している
+        assertEquals(1.4f * (16f - 2f), truth.motion[6], 0.1f);
+        assertEquals(0f, truth.motion[0], 1e-4f);
+        float horizontal = (float) Math.hypot(truth.motion[3], truth.motion[4]);
+        assertTrue(horizontal < truth.motion[6]);
+    }
+
+    @Test
+    public void filter_tracksTruthAtAnyRate() {
+        for (float rate : new float[]{ImuTraceGenerator.MIN_RATE_HZ, 100f, 1000f, ImuTraceGenerator.MAX_RATE_HZ}) {
+            ImuTraceGenerator generator = script(rate, 11);
+            generator.setInitialOrientation((float) Math.toRadians(10), 0f, 0f);
+            SessionRecord measured = new SessionRecord();
+            SessionRecord truth = new SessionRecord();
+            MadgwickFilter filter = new MadgwickFilter(MathKernels.EXACT);
+            filter.setAccelerometerInitialization(1);
+            float[] q = new float[4];
+            double worst = 0;
+            while (generator.next(measured, truth)) {
+                filter.update(measured.accel, measured.gyro, rate);
+                filter.getQuaternion(q);
+                double dot = Math.abs(q[0] * truth.quaternion[0] + q[1] * truth.quaternion[1]
+                        + q[2] * truth.quaternion[2] + q[3] * truth.quaternion[3]);
+                worst = Math.max(worst, Math.toDegrees(2 * Math.acos(Math.min(1.0, dot))));
+            }
+            // 歩行中の加速度は重力と区別できないので数度の誤差は残る。10Hz では積分の刻みの分が上乗せされる
+            assertTrue(rate + " Hz: " + worst + " deg", worst < (rate < 100f ? 8 : 5));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rate_outOfRange() {
+        new ImuTraceGenerator(20_000f, 1);
+    }
+
+    @Test
+    public void differentSeeds_differOnlyInNoise() {
+        ImuTraceGenerator a = script(50f, 1);
+        ImuTraceGenerator b = script(50f, 2);
+        SessionRecord ma = new SessionRecord(), mb = new SessionRecord();
+        SessionRecord ta = new SessionRecord(), tb = new SessionRecord();
+        while (a.next(ma, ta)) {
+            b.next(mb, tb);
+            // ノイズ・揺らぎなしなら計測値は乱数に依らない
+            assertArrayEquals(ma.accel, mb.accel, 0f);
+            assertArrayEquals(ta.quaternion, tb.quaternion, 0f);
+        }
+        assertTrue(ta.motion[6] > 0);
+    }
+}
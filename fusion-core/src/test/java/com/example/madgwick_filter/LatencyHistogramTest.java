@@ -0,0 +1,56 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueInOrder() {
+        int previous = 0;
+        for (long v = 0; v < 1_000_000L; v += 7) {
+            int index = LatencyHistogram.bucketOf(v);
+            assertTrue(index >= previous);
+            assertTrue(LatencyHistogram.lowerBound(index) <= v);
+            assertTrue(v < LatencyHistogram.lowerBound(index + 1));
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_areWithinBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L); // 1µs 〜 1ms
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 1e-6);
+        assertEquals(500_000, histogram.getPercentile(0.5), 500_000 * 0.25);
+        assertEquals(990_000, histogram.getPercentile(0.99), 990_000 * 0.25);
+        assertEquals(1_000_000L, histogram.getPercentile(1.0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+
+    @Test
+    public void add_mergesCountsAndMax() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            a.record(i * 1000L);
+            b.record(i * 100_000L);
+        }
+        a.add(b);
+        assertEquals(200, a.getCount());
+        assertEquals(10_000_000L, a.getMax());
+        assertEquals((50_500 + 5_050_000) / 2.0, a.getMean(), 1e-6);
+        assertEquals(100_000, a.getPercentile(0.5), 100_000 * 0.25);
+        assertEquals(100, b.getCount());
+    }
+}
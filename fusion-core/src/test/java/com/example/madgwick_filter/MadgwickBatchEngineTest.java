@@ -0,0 +1,114 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MadgwickBatchEngineTest {
+
+    @Test
+    public void update_matchesScalarFilterPerStream() {
+        int streams = 300;
+        // 閾値を小さくして fork/join の分割経路も通す
+        MadgwickBatchEngine engine = new MadgwickBatchEngine(ForkJoinPool.commonPool(), 32);
+        MadgwickFilter[] filters = new MadgwickFilter[streams];
+        int[] ids = new int[streams];
+        for (int s = 0; s < streams; s++) {
+            ids[s] = engine.addStream();
+            filters[s] = new MadgwickFilter();
+        }
+
+        Random random = new Random(7);
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+        float[] expected = new float[4];
+        float[] actual = new float[4];
+        for (int tick = 0; tick < 500; tick++) {
+            for (int s = 0; s < streams; s++) {
+                // 一部のストリームはこの tick のサンプルなし、一部は加速度 0（補正なし分岐）
+                if ((s + tick) % 7 == 0) {
+                    continue;
+                }
+                boolean zeroAccel = (s + tick) % 11 == 0;
+                for (int k = 0; k < 3; k++) {
+                    accel[k] = zeroAccel ? 0f : (float) random.nextGaussian() * 3f + (k == 2 ? 9.81f : 0f);
+                    gyro[k] = (float) random.nextGaussian() * 30f;
+                }
+                engine.setSample(ids[s], accel, gyro);
+                filters[s].update(accel, gyro, 100f);
+            }
+            engine.update(100f);
+        }
+
+        for (int s = 0; s < streams; s++) {
+            assertArrayEquals(filters[s].getQuaternion(expected), engine.getQuaternion(ids[s], actual), 0f);
+        }
+    }
+
+    @Test
+    public void scalarKernel_matchesFilterBitForBitForEveryMathKernel() {
+        int streams = 5;
+        for (MathKernel math : new MathKernel[]{MathKernels.EXACT, MathKernels.FAST, MathKernels.fast(2)}) {
+            ScalarBatchKernel kernel = new ScalarBatchKernel(math);
+            MadgwickFilter[] filters = new MadgwickFilter[streams];
+            float[][] q = new float[4][streams];
+            float[][] a = new float[3][streams];
+            float[][] g = new float[3][streams];
+            boolean[] pending = new boolean[streams];
+            for (int s = 0; s < streams; s++) {
+                filters[s] = new MadgwickFilter(math);
+                q[0][s] = 1f;
+            }
+
+            Random random = new Random(11);
+            float[] accel = new float[3];
+            float[] gyro = new float[3];
+            float[] expected = new float[4];
+            for (int tick = 0; tick < 1000; tick++) {
+                for (int s = 0; s < streams; s++) {
+                    boolean zeroAccel = (s + tick) % 13 == 0;
+                    for (int k = 0; k < 3; k++) {
+                        accel[k] = zeroAccel ? 0f : (float) random.nextGaussian() * 3f + (k == 2 ? 9.81f : 0f);
+                        gyro[k] = (float) random.nextGaussian() * 30f;
+                        a[k][s] = accel[k];
+                        g[k][s] = gyro[k];
+                    }
+                    pending[s] = true;
+                    filters[s].update(accel, gyro, 200f);
+                }
+                kernel.update(q[0], q[1], q[2], q[3], a[0], a[1], a[2], g[0], g[1], g[2],
+                        pending, 0, streams, 0.04f, 200f);
+                for (int s = 0; s < streams; s++) {
+                    filters[s].getQuaternion(expected);
+                    for (int k = 0; k < 4; k++) {
+                        assertEquals(math + " stream " + s, Float.floatToIntBits(expected[k]),
+                                Float.floatToIntBits(q[k][s]));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removedIdsAreReusedWithFreshState() {
+        MadgwickBatchEngine engine = new MadgwickBatchEngine();
+        int a = engine.addStream();
+        int b = engine.addStream();
+        engine.setSample(a, new float[]{1f, 2f, 9f}, new float[]{10f, 0f, 0f});
+        engine.update(50f);
+
+        engine.removeStream(a);
+        assertFalse(engine.isActive(a));
+        assertEquals(1, engine.getStreamCount());
+
+        int c = engine.addStream();
+        assertEquals(a, c);
+        assertArrayEquals(new float[]{1f, 0f, 0f, 0f}, engine.getQuaternion(c, new float[4]), 0f);
+        assertArrayEquals(new float[]{1f, 0f, 0f, 0f}, engine.getQuaternion(b, new float[4]), 0f);
+    }
+}
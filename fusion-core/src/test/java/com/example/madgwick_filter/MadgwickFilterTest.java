@@ -0,0 +1,132 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MadgwickFilterTest {
+    private static final float RATE_HZ = 50f;
+    private static final double USABLE_DEGREES = 1.0;
+
+    @Test
+    public void initializeFromAccelerometer_alignsGravity() {
+        MadgwickFilter filter = new MadgwickFilter();
+        filter.initializeFromAccelerometer(3f, -4f, 8f);
+        float norm = (float) Math.sqrt(9 + 16 + 64);
+        assertArrayEquals(new float[]{3f / norm, -4f / norm, 8f / norm}, filter.getGravityVector(), 1e-5f);
+    }
+
+    @Test
+    public void derivedOutputs_areConsistentAndRefreshedAfterUpdate() {
+        MadgwickFilter filter = new MadgwickFilter(MathKernels.EXACT);
+        double roll = Math.toRadians(25);
+        double pitch = Math.toRadians(-10);
+        filter.initializeFromAccelerometer((float) Math.sin(-pitch) * 9.81f,
+                (float) (Math.cos(pitch) * Math.sin(roll)) * 9.81f, (float) (Math.cos(pitch) * Math.cos(roll)) * 9.81f);
+
+        float[] euler = filter.getEulerAngles();
+        assertEquals(roll, euler[0], 1e-5);
+        assertEquals(pitch, euler[1], 1e-5);
+        assertEquals(0, euler[2], 1e-5);
+
+        // 重力方向は回転行列の 3 行目
+        float[] r = filter.getRotationMatrix();
+        assertArrayEquals(new float[]{r[6], r[7], r[8]}, filter.getGravityVector(), 1e-6f);
+
+        float[] accel = {1f, 2f, 9.81f};
+        float[] gyro = {0f, 0f, 20f};
+        filter.update(accel, gyro, 50f);
+        float[] after = filter.getEulerAngles();
+        assertTrue("yaw follows the gyro", after[2] > 0);
+
+        // 線形加速度 = 入力 - 重力、世界座標加速度 = R * 線形加速度
+        float[] g = filter.getGravityVector();
+        float[] linear = filter.getLinearAcceleration();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(accel[i] - g[i] * 9.81f, linear[i], 1e-5f);
+        }
+        r = filter.getRotationMatrix(r);
+        float[] world = filter.getWorldAcceleration();
+        for (int i = 0; i < 3; i++) {
+            float expected = r[i * 3] * linear[0] + r[i * 3 + 1] * linear[1] + r[i * 3 + 2] * linear[2];
+            assertEquals(Math.abs(expected) < 0.01f ? 0f : expected, world[i], 1e-5f);
+        }
+    }
+
+    @Test
+    public void zeroAccelDuringInitialization_refreshesDerivedOutputs() {
+        MadgwickFilter filter = new MadgwickFilter();
+        filter.setAccelerometerInitialization(10);
+        float[] gyro = new float[3];
+        filter.update(new float[]{0f, 0f, 9.81f}, gyro, RATE_HZ);
+        assertArrayEquals(new float[]{0f, 0f, 0f}, filter.getWorldAcceleration(), 1e-5f);
+
+        // 初期化中の 0 のサンプルは姿勢を変えないが、派生値は新しい入力から計算し直す
+        filter.update(new float[]{0f, 0f, 0f}, gyro, RATE_HZ);
+        assertArrayEquals(new float[]{0f, 0f, -9.81f}, filter.getLinearAcceleration(), 1e-5f);
+        assertArrayEquals(new float[]{0f, 0f, -9.81f}, filter.getWorldAcceleration(), 1e-5f);
+    }
+
+    @Test
+    public void timeToUsableOrientation() {
+        // 静止したまま傾けた端末（ロール 30°、ピッチ -20°）
+        float seconds = timeToUsable(new MadgwickFilter(), false);
+        float initialized = timeToUsable(FusionProcessor.newDefaultFilter(), false);
+        // 初期化中に揺れていた場合はウォームアップで詰める
+        float shaken = timeToUsable(FusionProcessor.newDefaultFilter(), true);
+
+        assertTrue("identity start: " + seconds + " s", seconds > 5f);
+        assertEquals("accelerometer init", 0f, initialized, 0f);
+        assertTrue("shaken init: " + shaken + " s", shaken < 1f);
+    }
+
+    @Test
+    public void reset_rearmsInitialization() {
+        MadgwickFilter filter = FusionProcessor.newDefaultFilter();
+        float[] accel = {0f, 0f, 9.81f};
+        float[] gyro = new float[3];
+        for (int i = 0; i < 200; i++) {
+            filter.update(accel, gyro, RATE_HZ);
+        }
+        assertFalse(filter.isConverging());
+        filter.reset();
+        assertTrue(filter.isConverging());
+    }
+
+    // 重力方向の誤差が最後に USABLE_DEGREES を超えた時刻（秒）。60 秒間測る
+    private static float timeToUsable(MadgwickFilter filter, boolean shakeDuringInit) {
+        double roll = Math.toRadians(30);
+        double pitch = Math.toRadians(-20);
+        float gx = (float) -Math.sin(pitch);
+        float gy = (float) (Math.cos(pitch) * Math.sin(roll));
+        float gz = (float) (Math.cos(pitch) * Math.cos(roll));
+        Random random = new Random(1);
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+        float[] gravity = new float[3];
+
+        int lastBad = -1;
+        for (int i = 0; i < (int) (60 * RATE_HZ); i++) {
+            float shake = shakeDuringInit && i < 5 ? 3f : 0f;
+            accel[0] = 9.81f * gx + (float) random.nextGaussian() * 0.05f + shake;
+            accel[1] = 9.81f * gy + (float) random.nextGaussian() * 0.05f;
+            accel[2] = 9.81f * gz + (float) random.nextGaussian() * 0.05f;
+            for (int k = 0; k < 3; k++) {
+                gyro[k] = (float) random.nextGaussian() * 0.2f;
+            }
+            filter.update(accel, gyro, RATE_HZ);
+            filter.getGravityVector(gravity);
+            double norm = Math.sqrt(gravity[0] * gravity[0] + gravity[1] * gravity[1] + gravity[2] * gravity[2]);
+            double cos = (gravity[0] * gx + gravity[1] * gy + gravity[2] * gz) / norm;
+            if (Math.toDegrees(Math.acos(Math.min(1.0, cos))) > USABLE_DEGREES) {
+                lastBad = i;
+            }
+        }
+        return (lastBad + 1) / RATE_HZ;
+    }
+}
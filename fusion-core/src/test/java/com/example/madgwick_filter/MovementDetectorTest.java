@@ -0,0 +1,71 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MovementDetectorTest {
+
+    @Test
+    public void runningStatistics_matchesTwoPassOverSlidingWindow() {
+        int windowSize = 400;
+        RunningStatistics stats = new RunningStatistics(windowSize);
+        float[] history = new float[100_000];
+        for (int i = 0; i < history.length; i++) {
+            // 大きなオフセットに小さな揺らぎ: E[x²]-E[x]² では桁落ちする条件
+            history[i] = 9.81f + (float) Math.sin(i * 0.013) * 0.01f + (i % 17) * 1e-4f;
+            stats.add(history[i]);
+
+            if (i >= windowSize - 1 && i % 997 == 0) {
+                double sum = 0;
+                for (int j = i - windowSize + 1; j <= i; j++) {
+                    sum += history[j];
+                }
+                double mean = sum / windowSize;
+                double m2 = 0;
+                for (int j = i - windowSize + 1; j <= i; j++) {
+                    m2 += (history[j] - mean) * (history[j] - mean);
+                }
+                assertEquals(mean, stats.mean(), 1e-5);
+                assertEquals(Math.sqrt(m2 / windowSize), stats.stdDev(), 1e-5);
+            }
+        }
+    }
+
+    @Test
+    public void update_detectsMovementAndReturnsToStatic() {
+        MovementDetector detector = new MovementDetector(400, 0.2f, 0.2f, 5);
+        detector.setDebugLogging(false);
+        float[] accel = new float[3];
+
+        for (int i = 0; i < 400; i++) {
+            detector.update(accel);
+        }
+        assertFalse(detector.isMoving());
+
+        for (int i = 0; i < 400; i++) {
+            accel[0] = (float) Math.sin(i * 0.1) * 2f;
+            detector.update(accel);
+        }
+        assertTrue(detector.isMoving());
+
+        accel[0] = 0;
+        for (int i = 0; i < 400 + 5; i++) {
+            detector.update(accel);
+        }
+        assertFalse(detector.isMoving());
+    }
+
+    @Test
+    public void update_waitsForFullWindow() {
+        MovementDetector detector = new MovementDetector();
+        detector.setDebugLogging(false);
+        float[] accel = {5f, 0f, 0f};
+        for (int i = 0; i < MovementDetector.DEFAULT_WINDOW_SIZE - 1; i++) {
+            assertFalse(detector.update(accel));
+        }
+        assertTrue(detector.update(accel));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OverloadGovernorTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void observe_escalatesWithHoldAndRecoversSlowly() {
+        OverloadGovernor governor = new OverloadGovernor(1024);
+        List<String> transitions = new ArrayList<>();
+        governor.setListener((from, to, backlog) -> transitions.add(from + "->" + to));
+
+        assertFalse(governor.observe(100, 0));
+        assertTrue(governor.observe(300, 10 * MS));
+        assertEquals(2, governor.getOutputDecimation());
+        // 引き上げ直後は待つ
+        assertFalse(governor.observe(300, 200 * MS));
+        assertTrue(governor.observe(300, 600 * MS));
+        for (long t = 1200; governor.getLevel() < OverloadGovernor.MAX_LEVEL; t += 600) {
+            governor.observe(400, t * MS);
+        }
+        assertEquals(8, governor.getOutputDecimation());
+        assertEquals(4, governor.getAnalysisDecimation());
+
+        // 低水位以下が 5 秒続くごとに 1 段戻る。中間の値ではそのまま
+        long t = 10_000 * MS;
+        governor.observe(30, t);
+        assertFalse(governor.observe(100, t + 3_000 * MS));
+        assertFalse(governor.observe(30, t + 4_000 * MS));
+        assertFalse(governor.observe(30, t + 8_000 * MS));
+        assertTrue(governor.observe(30, t + 9_000 * MS));
+        assertEquals(OverloadGovernor.MAX_LEVEL - 1, governor.getLevel());
+        assertEquals("0->1", transitions.get(0));
+        assertEquals(OverloadGovernor.MAX_LEVEL + "->" + (OverloadGovernor.MAX_LEVEL - 1),
+                transitions.get(transitions.size() - 1));
+    }
+
+    @Test
+    public void analysisDecimation_keepsEverySampleInTheFilter() {
+        ImuTraceGenerator generator = new ImuTraceGenerator(400f, 5);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 2f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 10f);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 2f);
+        FusionProcessor full = newProcessor();
+        FusionProcessor single = newProcessor();
+        FusionProcessor batched = newProcessor();
+        single.setAnalysisDecimation(4);
+        batched.setAnalysisDecimation(4);
+
+        SessionRecord measured = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        SessionRecord expected = new SessionRecord();
+        SessionRecord actual = new SessionRecord();
+        SessionRecord fromBatch = new SessionRecord();
+        SampleBatch batch = new SampleBatch(1);
+        while (generator.next(measured, truth)) {
+            full.process(measured.accel, measured.gyro, measured.timestamp, expected);
+            single.process(measured.accel, measured.gyro, measured.timestamp, actual);
+            batch.clear();
+            batch.add(measured.timestamp, measured.accel, measured.gyro);
+            batched.processBatch(batch);
+            batch.read(0, fromBatch);
+
+            assertArrayEquals(expected.quaternion, actual.quaternion, 0f);
+            assertArrayEquals(actual.motion, fromBatch.motion, 0f);
+            assertEquals(actual.moving, fromBatch.moving);
+        }
+        // 積分は実際のタイムスタンプで行うので、間引いても距離は大きく変わらない
+        assertTrue(expected.motion[6] > 1f);
+        assertEquals(expected.motion[6], actual.motion[6], expected.motion[6] * 0.2f);
+    }
+
+    @Test
+    public void analysisDecimation_stretchesConfiguredInterval() {
+        // 400Hz で 20ms 間隔なら 1 回に 8 サンプルまとまるので、サンプル数での間引きでは何も変わらない。
+        // 間隔が設定されていれば間引き数ぶん間隔を延ばす
+        int[] updates = new int[2];
+        int[] decimations = {1, 4};
+        for (int k = 0; k < 2; k++) {
+            ImuTraceGenerator generator = new ImuTraceGenerator(400f, 5);
+            generator.addSegment(ImuTraceGenerator.Motion.WALKING, 10f);
+            FusionProcessor processor = newProcessor();
+            processor.setIntegrationIntervalNs(20 * MS);
+            processor.setDetectionIntervalNs(20 * MS);
+            processor.setAnalysisDecimation(decimations[k]);
+            SessionRecord measured = new SessionRecord();
+            SessionRecord truth = new SessionRecord();
+            SessionRecord out = new SessionRecord();
+            float[] previous = new float[7];
+            while (generator.next(measured, truth)) {
+                processor.process(measured.accel, measured.gyro, measured.timestamp, out);
+                if (!Arrays.equals(previous, out.motion)) {
+                    updates[k]++;
+                    System.arraycopy(out.motion, 0, previous, 0, 7);
+                }
+            }
+        }
+        // 10 秒で 20ms ごと ≒ 500 回、80ms ごと ≒ 125 回
+        assertTrue("updates " + updates[0], updates[0] > 450 && updates[0] <= 500);
+        assertEquals(updates[0] / 4f, updates[1], 5f);
+    }
+
+    @Test
+    public void outputDecimation_offersEveryNthRecord() throws IOException {
+        FusionPipeline pipeline = new FusionPipeline(newProcessor());
+        List<Long> timestamps = new ArrayList<>();
+        SinkBuffer sink = pipeline.addSink("out", record -> timestamps.add(record.timestamp), 64,
+                SinkBuffer.Policy.DROP_NEWEST);
+        pipeline.setOutputDecimation(4);
+        SampleBatch batch = new SampleBatch(8);
+        float[] accel = {0f, 0f, 9.81f};
+        for (int i = 0; i < 16; i++) {
+            batch.add(i, accel, new float[3]);
+            if (batch.isFull()) {
+                pipeline.processBatch(batch);
+                batch.clear();
+            }
+        }
+        pipeline.removeSink(sink);
+        assertEquals(4, timestamps.size());
+        assertEquals(12L, (long) timestamps.get(3));
+    }
+
+    private static FusionProcessor newProcessor() {
+        FusionProcessor processor = new FusionProcessor();
+        processor.getDetector().setDebugLogging(false);
+        return processor;
+    }
+}
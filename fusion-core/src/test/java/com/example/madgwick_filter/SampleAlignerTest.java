@@ -0,0 +1,100 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SampleAlignerTest {
+    private static final int ACCEL = SensorSample.TYPE_ACCELEROMETER;
+    private static final int GYRO = SensorSample.TYPE_GYROSCOPE;
+
+    @Test
+    public void offer_emitsOncePerPair() {
+        SampleAligner aligner = new SampleAligner(5_000_000L);
+        int pairs = 0;
+        for (int i = 0; i < 100; i++) {
+            long t = i * 20_000_000L;
+            if (aligner.offer(ACCEL, t, i, 0, 9.8f)) {
+                pairs++;
+            }
+            if (aligner.offer(GYRO, t + 1_000_000L, 0, 0, i)) {
+                pairs++;
+                assertEquals(t + 1_000_000L, aligner.timestamp());
+                assertArrayEquals(new float[]{i, 0, 9.8f}, aligner.accel(), 0f);
+                assertArrayEquals(new float[]{0, 0, i}, aligner.gyro(), 0f);
+            }
+        }
+        assertEquals(100, pairs);
+        assertEquals(100, aligner.getPairCount());
+        assertEquals(0, aligner.getDiscardedCount());
+    }
+
+    @Test
+    public void offer_discardsStaleCounterpart() {
+        SampleAligner aligner = new SampleAligner(5_000_000L);
+        assertFalse(aligner.offer(GYRO, 0, 1, 1, 1));
+        // 20ms 離れたジャイロとは組にしない
+        assertFalse(aligner.offer(ACCEL, 20_000_000L, 0, 0, 9.8f));
+        assertEquals(1, aligner.getDiscardedCount());
+        assertTrue(aligner.offer(GYRO, 21_000_000L, 2, 2, 2));
+        assertArrayEquals(new float[]{2, 2, 2}, aligner.gyro(), 0f);
+    }
+
+    @Test
+    public void offer_pairsNonInterleavedBursts() {
+        // FIFO のバッチ配信: 100ms 分（400Hz × 40）の加速度がまとめて届いてからジャイロが届く。次の回は逆順
+        SampleAligner aligner = new SampleAligner();
+        long period = 2_500_000L;
+        int pairs = 0;
+        for (int burst = 0; burst < 2; burst++) {
+            int first = burst == 0 ? ACCEL : GYRO;
+            int second = burst == 0 ? GYRO : ACCEL;
+            long base = burst * 40 * period;
+            for (int i = 0; i < 40; i++) {
+                assertFalse(aligner.offer(first, base + i * period, i, 0, 9.8f));
+            }
+            for (int i = 0; i < 40; i++) {
+                // 相手は 0.3ms ずれて届く
+                assertTrue(aligner.offer(second, base + i * period + 300_000L, 0, 0, i));
+                assertEquals(base + i * period + 300_000L, aligner.timestamp());
+                float[] firstValue = burst == 0 ? aligner.accel() : aligner.gyro();
+                assertEquals(i, firstValue[0], 0f);
+                pairs++;
+            }
+        }
+        assertEquals(80, pairs);
+        assertEquals(0, aligner.getDiscardedCount());
+    }
+
+    @Test
+    public void offer_pairsWithNearestTimestamp() {
+        SampleAligner aligner = new SampleAligner(5_000_000L);
+        assertFalse(aligner.offer(ACCEL, 0, 0, 0, 0));
+        assertFalse(aligner.offer(ACCEL, 2_500_000L, 1, 0, 0));
+        assertFalse(aligner.offer(ACCEL, 5_000_000L, 2, 0, 0));
+        // 4.8ms のジャイロは 5ms の加速度と組にし、それより古い 2 つは捨てる
+        assertTrue(aligner.offer(GYRO, 4_800_000L, 0, 0, 0));
+        assertEquals(2, aligner.accel()[0], 0f);
+        assertEquals(5_000_000L, aligner.timestamp());
+        assertEquals(2, aligner.getDiscardedCount());
+    }
+
+    @Test
+    public void process_usesMeasuredInterval() {
+        // 10ms 間隔で与えると、最初の 1 回以外は 100Hz で更新される
+        FusionProcessor measured = new FusionProcessor();
+        MadgwickFilter fixed = FusionProcessor.newDefaultFilter();
+        SessionRecord out = new SessionRecord();
+        float[] accel = {0, 0, 9.8f};
+        float[] gyro = {0, 0, 1f};
+        float[] q = new float[4];
+        for (int i = 0; i < 100; i++) {
+            measured.process(accel, gyro, i * 10_000_000L, out);
+            fixed.update(accel, gyro, i == 0 ? FusionProcessor.DEFAULT_SAMPLE_FREQUENCY : 100f);
+        }
+        assertArrayEquals(fixed.getQuaternion(q), out.quaternion, 0f);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SensorSampleRingTest {
+
+    @Test
+    public void offer_dropsWhenFullAndCountsIt() {
+        SensorSampleRing ring = new SensorSampleRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(SensorSample.TYPE_ACCELEROMETER, i, i, 0, 0));
+        }
+        assertFalse(ring.offer(SensorSample.TYPE_GYROSCOPE, 4, 0, 0, 0));
+        assertEquals(4, ring.depth());
+        assertEquals(1, ring.droppedCount());
+
+        SensorSample sample = new SensorSample();
+        assertTrue(ring.poll(sample));
+        assertEquals(0L, sample.timestamp);
+        assertEquals(3, ring.depth());
+        assertTrue(ring.offer(SensorSample.TYPE_GYROSCOPE, 5, 1, 2, 3));
+    }
+
+    @Test
+    public void poll_preservesOrderAcrossThreads() throws InterruptedException {
+        final int total = 2_000_000;
+        final SensorSampleRing ring = new SensorSampleRing(1024);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                ring.offer(SensorSample.TYPE_ACCELEROMETER, i, i, -i, 0.5f);
+            }
+        });
+        producer.start();
+
+        SensorSample sample = new SensorSample();
+        long received = 0;
+        long lastTimestamp = -1;
+        while (producer.isAlive() || ring.depth() > 0) {
+            if (!ring.poll(sample)) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(sample.timestamp > lastTimestamp);
+            assertEquals((float) sample.timestamp, sample.x, 0f);
+            assertEquals(-(float) sample.timestamp, sample.y, 0f);
+            lastTimestamp = sample.timestamp;
+            received++;
+        }
+        producer.join();
+
+        assertEquals(total, received + ring.droppedCount());
+    }
+}
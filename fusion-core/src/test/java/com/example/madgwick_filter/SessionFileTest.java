@@ -0,0 +1,163 @@
+package com.example.madgwick_filter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionFileTest {
+    private static final int RECORDS = 5_000;
+
+    private final File csvFile = tempFile(".csv");
+    private final File sessionFile = tempFile(".mgs");
+
+    @After
+    public void tearDown() {
+        csvFile.delete();
+        sessionFile.delete();
+    }
+
+    private static File tempFile(String suffix) {
+        try {
+            File file = File.createTempFile("session", suffix);
+            file.deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // 揺らぎのある間隔と、int に収まらない大きな空白区間を含む時刻列
+    private static long timestampOf(int i) {
+        long t = i * 20_000_000L + (i * 7919L) % 1_000_000L;
+        return i >= RECORDS / 2 ? t + 5_000_000_000L : t;
+    }
+
+    private static void fill(SessionRecord record, int i) {
+        record.timestamp = timestampOf(i);
+        for (int axis = 0; axis < 3; axis++) {
+            record.accel[axis] = i + axis * 0.25f;
+            record.gyro[axis] = -i - axis;
+            record.worldAccel[axis] = i * 0.5f + axis;
+        }
+        for (int k = 0; k < 4; k++) {
+            record.quaternion[k] = k * 0.1f + i;
+        }
+        for (int k = 0; k < 7; k++) {
+            record.motion[k] = i * 2f + k;
+        }
+    }
+
+    private void writeSession() throws IOException {
+        SessionRecord record = new SessionRecord();
+        try (SessionFileWriter writer = new SessionFileWriter(sessionFile)) {
+            for (int i = 0; i < RECORDS; i++) {
+                fill(record, i);
+                writer.append(record);
+            }
+        }
+    }
+
+    @Test
+    public void cursor_readsBackEveryRecord() throws IOException {
+        writeSession();
+        assertTrue(sessionFile.length() > SessionFormat.HEADER_SIZE + (long) RECORDS * SessionFormat.RECORD_SIZE);
+
+        SessionRecord expected = new SessionRecord();
+        SessionRecord actual = new SessionRecord();
+        try (SessionFileReader reader = new SessionFileReader(sessionFile)) {
+            assertEquals(RECORDS, reader.getRecordCount());
+            SessionFileReader.Cursor cursor = reader.cursor(0);
+            int i = 0;
+            while (cursor.next()) {
+                fill(expected, i);
+                cursor.read(actual);
+                assertRecordEquals(expected, actual);
+                i++;
+            }
+            assertEquals(RECORDS, i);
+        }
+    }
+
+    @Test
+    public void seek_findsFirstRecordAtOrAfterTimestamp() throws IOException {
+        writeSession();
+        SessionRecord record = new SessionRecord();
+        try (SessionFileReader reader = new SessionFileReader(sessionFile)) {
+            for (int i = 0; i < RECORDS; i += 37) {
+                assertEquals(i, reader.seek(timestampOf(i)));
+                assertEquals(i + 1, reader.seek(timestampOf(i) + 1));
+                reader.read(i, record);
+                assertEquals(timestampOf(i), record.timestamp);
+                assertEquals(i * 2f + 6, record.motion[6], 0f);
+            }
+            assertEquals(RECORDS, reader.seek(Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void convert_roundTripsRecorderCsv() throws IOException {
+        SessionRecord record = new SessionRecord();
+        try (CsvRecorder recorder = new CsvRecorder(new FileOutputStream(csvFile))) {
+            for (int i = 0; i < RECORDS; i++) {
+                fill(record, i);
+                while (!recorder.record(record.timestamp, record.accel, record.gyro, record.quaternion,
+                        record.worldAccel, record.motion)) {
+                    Thread.yield();
+                }
+            }
+        }
+
+        assertEquals(RECORDS, CsvSessionConverter.convert(csvFile, sessionFile));
+
+        SessionRecord expected = new SessionRecord();
+        try (SessionFileReader reader = new SessionFileReader(sessionFile)) {
+            SessionFileReader.Cursor cursor = reader.cursor(RECORDS - 10);
+            for (int i = RECORDS - 10; cursor.next(); i++) {
+                fill(expected, i);
+                cursor.read(record);
+                assertRecordEquals(expected, record);
+            }
+        }
+    }
+
+    @Test
+    public void sampleFrequency_carriedThroughHeaderAndCsv() throws IOException {
+        writeSession();
+        try (SessionFileReader reader = new SessionFileReader(sessionFile)) {
+            assertEquals(0f, reader.getSampleFrequency(), 0f); // 記録していなければ不明
+        }
+
+        SessionRecord record = new SessionRecord();
+        try (CsvRecorder recorder = new CsvRecorder(new FileOutputStream(csvFile), CsvRecorder.DEFAULT_BUFFER_SIZE,
+                416.66666f)) {
+            fill(record, 0);
+            recorder.record(record.timestamp, record.accel, record.gyro, record.quaternion,
+                    record.worldAccel, record.motion);
+        }
+        assertEquals(1, CsvSessionConverter.convert(csvFile, sessionFile));
+        try (SessionFileReader reader = new SessionFileReader(sessionFile)) {
+            assertEquals(416.66666f, reader.getSampleFrequency(), 0f);
+            reader.read(0, record);
+            assertEquals(timestampOf(0), record.timestamp);
+        }
+    }
+
+    private static void assertRecordEquals(SessionRecord expected, SessionRecord actual) {
+        assertEquals(expected.timestamp, actual.timestamp);
+        assertArrayEquals(expected.accel, actual.accel);
+        assertArrayEquals(expected.gyro, actual.gyro);
+        assertArrayEquals(expected.quaternion, actual.quaternion);
+        assertArrayEquals(expected.worldAccel, actual.worldAccel);
+        assertArrayEquals(expected.motion, actual.motion);
+    }
+
+    private static void assertArrayEquals(float[] expected, float[] actual) {
+        org.junit.Assert.assertArrayEquals(expected, actual, 1e-5f * Math.max(1f, Math.abs(expected[0])));
+    }
+}
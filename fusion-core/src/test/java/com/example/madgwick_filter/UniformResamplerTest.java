@@ -0,0 +1,69 @@
+package com.example.madgwick_filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UniformResamplerTest {
+    private static final long PERIOD_NS = 20_000_000L;
+
+    @Test
+    public void add_interpolatesOntoUniformGrid() {
+        UniformResampler resampler = new UniformResampler(50f);
+        long expectedTime = 1_000_000L;
+        for (int i = 0; i < 500; i++) {
+            // 一次関数なら線形補間は厳密に一致する
+            long t = 1_000_000L + i * 13_000_000L + (i % 2) * 4_000_000L;
+            int count = resampler.add(t, t * 1e-9f, 2f, -t * 2e-9f);
+            for (int k = 0; k < count; k++) {
+                assertEquals(expectedTime, resampler.time(k));
+                assertEquals(expectedTime * 1e-9f, resampler.x(k), 1e-5f);
+                assertEquals(-expectedTime * 2e-9f, resampler.z(k), 1e-5f);
+                expectedTime += PERIOD_NS;
+            }
+            assertTrue(expectedTime > t);
+        }
+    }
+
+    @Test
+    public void add_restartsGridAfterGap() {
+        UniformResampler resampler = new UniformResampler(50f);
+        assertEquals(1, resampler.add(0, 1, 1, 1));
+        assertEquals(1, resampler.add(20_000_000L, 1, 1, 1));
+        assertEquals(1, resampler.add(1_000_000_000L, 5, 5, 5));
+        assertEquals(1_000_000_000L, resampler.time(0));
+        assertEquals(5f, resampler.x(0), 0f);
+    }
+
+    @Test
+    public void distanceCalculator_resamplingRemovesJitterError() {
+        DistanceCalculator uniform = new DistanceCalculator();
+        DistanceCalculator jittered = new DistanceCalculator();
+        DistanceCalculator resampled = new DistanceCalculator(50f);
+        float[] accel = new float[3];
+        float[] expected = new float[7];
+        float[] plain = new float[7];
+        float[] actual = new float[7];
+        double plainError = 0;
+        double resampledError = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            long t = i * PERIOD_NS;
+            accel[0] = (float) Math.sin(2 * Math.PI * t * 1e-9);
+            uniform.calculateMotion(accel, true, t, expected);
+
+            // ±4ms の揺らぎ。4 サンプルごとに揺らぎ 0 の点を入れ、そこで格子と時刻がそろう
+            long jitter = i % 4 == 0 ? 0 : ((i * 7919L) % 9 - 4) * 1_000_000L;
+            accel[0] = (float) Math.sin(2 * Math.PI * (t + jitter) * 1e-9);
+            jittered.calculateMotion(accel, true, t + jitter, plain);
+            resampled.calculateMotion(accel, true, t + jitter, actual);
+
+            if (jitter == 0 && i > 0) {
+                plainError += Math.abs(plain[0] - expected[0]);
+                resampledError += Math.abs(actual[0] - expected[0]);
+            }
+        }
+        assertTrue("plain=" + plainError + " resampled=" + resampledError, resampledError < plainError / 2);
+    }
+}
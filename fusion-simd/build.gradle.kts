@@ -0,0 +1,24 @@
+plugins {
+    `java-library`
+}
+
+// jdk.incubator.vector を使うため JVM（17 以降）専用。Android からは参照しない
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+val vectorModule = listOf("--add-modules", "jdk.incubator.vector")
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(vectorModule)
+}
+
+tasks.withType<Test>().configureEach {
+    jvmArgs(vectorModule)
+}
+
+dependencies {
+    api(project(":fusion-core"))
+    testImplementation(libs.junit)
+}
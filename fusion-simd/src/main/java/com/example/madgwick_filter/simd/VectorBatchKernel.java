@@ -0,0 +1,175 @@
+package com.example.madgwick_filter.simd;
+
+import com.example.madgwick_filter.BatchKernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * jdk.incubator.vector による SIMD 版のバッチカーネル。レーン数分のストリームをまとめて処理する。
+ * 演算順序はスカラー版と同じなので、同じ逆平方根（exact / fast(n)）の ScalarBatchKernel と一致する。
+ * 実行時は {@code --add-modules jdk.incubator.vector} が必要。
+ */
+public final class VectorBatchKernel implements BatchKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final float DEG_TO_RAD = 0.017453292f;
+
+    private final int newtonIterations; // 0 なら正確な 1/sqrt
+
+    private VectorBatchKernel(int newtonIterations) {
+        this.newtonIterations = newtonIterations;
+    }
+
+    /** MathKernels.EXACT 相当（sqrt + 除算） */
+    public static VectorBatchKernel exact() {
+        return new VectorBatchKernel(0);
+    }
+
+    /** MathKernels.fast(iterations) 相当（0x5f3759df + Newton 法） */
+    public static VectorBatchKernel fast(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1: " + iterations);
+        }
+        return new VectorBatchKernel(iterations);
+    }
+
+    public static int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void update(float[] q0, float[] q1, float[] q2, float[] q3,
+                       float[] ax, float[] ay, float[] az,
+                       float[] gx, float[] gy, float[] gz,
+                       boolean[] pending, int from, int to, float beta, float sampleFreq) {
+        float invFreq = 1.0f / sampleFreq;
+        for (int i = from; i < to; i += SPECIES.length()) {
+            VectorMask<Float> active = SPECIES.indexInRange(i, to).and(pendingMask(pending, i));
+            if (!active.anyTrue()) {
+                continue;
+            }
+            step(q0, q1, q2, q3, ax, ay, az, gx, gy, gz, i, active, beta, invFreq);
+            for (int lane = i; lane < Math.min(i + SPECIES.length(), to); lane++) {
+                pending[lane] = false;
+            }
+        }
+    }
+
+    // fromArray はマスクなしで読むので、配列の末尾にかかるブロックだけはスカラーで組み立てる
+    private static VectorMask<Float> pendingMask(boolean[] pending, int i) {
+        if (i + SPECIES.length() <= pending.length) {
+            return VectorMask.fromArray(SPECIES, pending, i);
+        }
+        long bits = 0;
+        for (int lane = 0; i + lane < pending.length; lane++) {
+            if (pending[i + lane]) {
+                bits |= 1L << lane;
+            }
+        }
+        return VectorMask.fromLong(SPECIES, bits);
+    }
+
+    private void step(float[] q0, float[] q1, float[] q2, float[] q3,
+                      float[] axs, float[] ays, float[] azs,
+                      float[] gxs, float[] gys, float[] gzs,
+                      int i, VectorMask<Float> active, float beta, float invFreq) {
+        FloatVector a0 = FloatVector.fromArray(SPECIES, q0, i, active);
+        FloatVector a1 = FloatVector.fromArray(SPECIES, q1, i, active);
+        FloatVector a2 = FloatVector.fromArray(SPECIES, q2, i, active);
+        FloatVector a3 = FloatVector.fromArray(SPECIES, q3, i, active);
+
+        // Convert gyroscope degrees/sec to radians/sec
+        FloatVector gx = FloatVector.fromArray(SPECIES, gxs, i, active).mul(DEG_TO_RAD);
+        FloatVector gy = FloatVector.fromArray(SPECIES, gys, i, active).mul(DEG_TO_RAD);
+        FloatVector gz = FloatVector.fromArray(SPECIES, gzs, i, active).mul(DEG_TO_RAD);
+        FloatVector ax = FloatVector.fromArray(SPECIES, axs, i, active);
+        FloatVector ay = FloatVector.fromArray(SPECIES, ays, i, active);
+        FloatVector az = FloatVector.fromArray(SPECIES, azs, i, active);
+
+        // Rate of change of quaternion from gyroscope
+        FloatVector qDot1 = a1.neg().mul(gx).sub(a2.mul(gy)).sub(a3.mul(gz)).mul(0.5f);
+        FloatVector qDot2 = a0.mul(gx).add(a2.mul(gz)).sub(a3.mul(gy)).mul(0.5f);
+        FloatVector qDot3 = a0.mul(gy).sub(a1.mul(gz)).add(a3.mul(gx)).mul(0.5f);
+        FloatVector qDot4 = a0.mul(gz).add(a1.mul(gy)).sub(a2.mul(gx)).mul(0.5f);
+
+        // 加速度が 0 のレーンは補正しない（スカラー版の分岐に相当）
+        VectorMask<Float> feedback = ax.compare(VectorOperators.NE, 0.0f)
+                .or(ay.compare(VectorOperators.NE, 0.0f))
+                .or(az.compare(VectorOperators.NE, 0.0f))
+                .and(active);
+        if (feedback.anyTrue()) {
+            FloatVector recipNorm = invSqrt(ax.mul(ax).add(ay.mul(ay)).add(az.mul(az)));
+            ax = ax.mul(recipNorm);
+            ay = ay.mul(recipNorm);
+            az = az.mul(recipNorm);
+
+            FloatVector _2q0 = a0.mul(2.0f);
+            FloatVector _2q1 = a1.mul(2.0f);
+            FloatVector _2q2 = a2.mul(2.0f);
+            FloatVector _2q3 = a3.mul(2.0f);
+            FloatVector _4q0 = a0.mul(4.0f);
+            FloatVector _4q1 = a1.mul(4.0f);
+            FloatVector _4q2 = a2.mul(4.0f);
+            FloatVector _8q1 = a1.mul(8.0f);
+            FloatVector _8q2 = a2.mul(8.0f);
+            FloatVector q0q0 = a0.mul(a0);
+            FloatVector q1q1 = a1.mul(a1);
+            FloatVector q2q2 = a2.mul(a2);
+            FloatVector q3q3 = a3.mul(a3);
+
+            // Gradient decent algorithm corrective step
+            FloatVector s0 = _4q0.mul(q2q2).add(_2q2.mul(ax)).add(_4q0.mul(q1q1)).sub(_2q1.mul(ay));
+            FloatVector s1 = _4q1.mul(q3q3).sub(_2q3.mul(ax)).add(q0q0.mul(4.0f).mul(a1)).sub(_2q0.mul(ay))
+                    .sub(_4q1).add(_8q1.mul(q1q1)).add(_8q1.mul(q2q2)).add(_4q1.mul(az));
+            FloatVector s2 = q0q0.mul(4.0f).mul(a2).add(_2q0.mul(ax)).add(_4q2.mul(q3q3)).sub(_2q3.mul(ay))
+                    .sub(_4q2).add(_8q2.mul(q1q1)).add(_8q2.mul(q2q2)).add(_4q2.mul(az));
+            FloatVector s3 = q1q1.mul(4.0f).mul(a3).sub(_2q1.mul(ax)).add(q2q2.mul(4.0f).mul(a3)).sub(_2q2.mul(ay));
+
+            recipNorm = invSqrt(s0.mul(s0).add(s1.mul(s1)).add(s2.mul(s2)).add(s3.mul(s3)));
+            s0 = s0.mul(recipNorm);
+            s1 = s1.mul(recipNorm);
+            s2 = s2.mul(recipNorm);
+            s3 = s3.mul(recipNorm);
+
+            // Apply feedback step
+            qDot1 = qDot1.sub(s0.mul(beta), feedback);
+            qDot2 = qDot2.sub(s1.mul(beta), feedback);
+            qDot3 = qDot3.sub(s2.mul(beta), feedback);
+            qDot4 = qDot4.sub(s3.mul(beta), feedback);
+        }
+
+        // Integrate rate of change of quaternion to yield quaternion
+        a0 = a0.add(qDot1.mul(invFreq));
+        a1 = a1.add(qDot2.mul(invFreq));
+        a2 = a2.add(qDot3.mul(invFreq));
+        a3 = a3.add(qDot4.mul(invFreq));
+
+        // Normalise quaternion
+        FloatVector recipNorm = invSqrt(a0.mul(a0).add(a1.mul(a1)).add(a2.mul(a2)).add(a3.mul(a3)));
+        a0.mul(recipNorm).intoArray(q0, i, active);
+        a1.mul(recipNorm).intoArray(q1, i, active);
+        a2.mul(recipNorm).intoArray(q2, i, active);
+        a3.mul(recipNorm).intoArray(q3, i, active);
+    }
+
+    private FloatVector invSqrt(FloatVector x) {
+        if (newtonIterations == 0) {
+            return FloatVector.broadcast(SPECIES, 1.0f).div(x.lanewise(VectorOperators.SQRT));
+        }
+        FloatVector halfx = x.mul(0.5f);
+        IntVector bits = x.reinterpretAsInts();
+        FloatVector y = bits.lanewise(VectorOperators.ASHR, 1).neg().add(0x5f3759df).reinterpretAsFloats();
+        for (int n = 0; n < newtonIterations; n++) {
+            y = y.mul(FloatVector.broadcast(SPECIES, 1.5f).sub(halfx.mul(y).mul(y)));
+        }
+        return y;
+    }
+
+    @Override
+    public String toString() {
+        return newtonIterations == 0 ? "vector-exact" : "vector-fast" + newtonIterations;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.madgwick_filter.simd;
+
+import com.example.madgwick_filter.BatchKernel;
+import com.example.madgwick_filter.MadgwickBatchEngine;
+import com.example.madgwick_filter.MathKernels;
+import com.example.madgwick_filter.ScalarBatchKernel;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class VectorBatchKernelTest {
+
+    @Test
+    public void exact_matchesScalarExactKernel() {
+        assertSameAsScalar(VectorBatchKernel.exact(), new ScalarBatchKernel(MathKernels.EXACT));
+    }
+
+    @Test
+    public void fast_matchesScalarFastKernel() {
+        assertSameAsScalar(VectorBatchKernel.fast(1), new ScalarBatchKernel(MathKernels.FAST));
+        assertSameAsScalar(VectorBatchKernel.fast(2), new ScalarBatchKernel(MathKernels.fast(2)));
+    }
+
+    @Test
+    public void unalignedShards_matchScalarKernel() {
+        // 分割の境界がレーン境界にそろわず、最後のブロックが配列の末尾を越える（配列の容量 = 64）
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertSameAsScalar(VectorBatchKernel.fast(1), new ScalarBatchKernel(MathKernels.FAST), pool, 3, 64);
+            assertSameAsScalar(VectorBatchKernel.exact(), new ScalarBatchKernel(MathKernels.EXACT), pool, 5, 61);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameAsScalar(BatchKernel vector, BatchKernel scalar) {
+        // レーン数で割り切れないストリーム数で端数処理も確認する
+        assertSameAsScalar(vector, scalar, ForkJoinPool.commonPool(), Integer.MAX_VALUE,
+                VectorBatchKernel.lanes() * 9 + 3);
+    }
+
+    private static void assertSameAsScalar(BatchKernel vector, BatchKernel scalar, ForkJoinPool pool,
+                                           int parallelThreshold, int streams) {
+        MadgwickBatchEngine expected = new MadgwickBatchEngine(pool, parallelThreshold, scalar);
+        MadgwickBatchEngine actual = new MadgwickBatchEngine(pool, parallelThreshold, vector);
+        for (int s = 0; s < streams; s++) {
+            expected.addStream();
+            actual.addStream();
+        }
+
+        Random random = new Random(3);
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+        for (int tick = 0; tick < 300; tick++) {
+            for (int s = 0; s < streams; s++) {
+                if ((s * 31 + tick) % 5 == 0) {
+                    continue; // この tick はサンプルなし
+                }
+                boolean zeroAccel = (s + tick) % 13 == 0;
+                for (int k = 0; k < 3; k++) {
+                    accel[k] = zeroAccel ? 0f : (float) random.nextGaussian() * 2f + (k == 2 ? 9.81f : 0f);
+                    gyro[k] = (float) random.nextGaussian() * 40f;
+                }
+                expected.setSample(s, accel, gyro);
+                actual.setSample(s, accel, gyro);
+            }
+            expected.update(100f);
+            actual.update(100f);
+        }
+
+        float[] e = new float[4];
+        float[] a = new float[4];
+        for (int s = 0; s < streams; s++) {
+            assertArrayEquals(vector + " stream " + s, expected.getQuaternion(s, e), actual.getQuaternion(s, a), 0f);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+plugins {
+    application
+}
+
+// 接続ごとの仮想スレッドを使うため Java 21
+java {
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
+}
+
+dependencies {
+    implementation(project(":fusion-core"))
+    testImplementation(libs.junit)
+}
+
+application {
+    mainClass.set("com.example.madgwick_filter.ingest.IngestServerMain")
+}
+
+// 同梱の負荷クライアント: ./gradlew :ingest-server:loadGenerator -PloadArgs="--devices 2000 --rate 100"
+tasks.register<JavaExec>("loadGenerator") {
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.madgwick_filter.ingest.LoadGenerator")
+    (project.findProperty("loadArgs") as String?)?.let { args(it.split(" ")) }
+}
@@ -0,0 +1,56 @@
+package com.example.madgwick_filter.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 接続ごとの送受信バッファ（リトルエンディアンの direct バッファ）を使い回す。
+// 接続が数千あっても、同時に使われている数＋ maxPooled 個しか確保しない。任意のスレッドから呼べる
+public final class BufferPool {
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0 || maxPooled <= 0) {
+            throw new IllegalArgumentException("bufferSize and maxPooled must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    // 空（position 0、limit = 容量）のバッファを返す。プールが空なら新しく確保する
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    // プールが満杯なら捨てる（GC に任せる）
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (!free.offer(buffer)) {
+            allocated.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    // 確保済みで捨てていないバッファの数（貸し出し中＋プール内）
+    public int getAllocatedCount() {
+        return allocated.get();
+    }
+
+    public int getPooledCount() {
+        return free.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.madgwick_filter.ingest;
+
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.SessionRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// 1 端末分の融合処理（姿勢フィルタ・移動検出・距離計算は FusionProcessor ごとに独立）。
+// TCP では接続のスレッド、UDP では受信ループのスレッドだけが触る
+final class DeviceSession {
+    final long deviceId;
+    private final FusionProcessor processor;
+    private final SessionRecord record = new SessionRecord();
+    private final float[] accel = new float[3];
+    private final float[] gyro = new float[3];
+
+    private int expectedSequence;
+    private boolean hasSequence = false;
+    long frames;
+    long samples;
+    long lostFrames;
+    // 最後にフレームを受け取った時刻（System.nanoTime）。UDP の放置セッションの掃除用
+    volatile long lastSeenNs;
+
+    DeviceSession(long deviceId, FusionProcessor processor) {
+        this.deviceId = deviceId;
+        this.processor = processor;
+    }
+
+    // in の offset から始まる SAMPLES を処理し、最後のサンプルの結果を out に RESULT として書く。
+    // 戻り値は処理したサンプル数
+    int process(ByteBuffer in, int offset, ByteBuffer out, long nowNs) throws IOException {
+        int sequence = IngestProtocol.sequence(in, offset);
+        int count = IngestProtocol.sampleCount(in, offset);
+        // 飛んだ番号は欠落として数える（UDP の取りこぼし）。巻き戻りは送り直しとみなして数えない
+        if (hasSequence && sequence - expectedSequence > 0) {
+            lostFrames += sequence - expectedSequence;
+        }
+        expectedSequence = sequence + 1;
+        hasSequence = true;
+
+        for (int i = 0; i < count; i++) {
+            long timestamp = IngestProtocol.readSample(in, IngestProtocol.sampleOffset(offset, i), accel, gyro);
+            processor.process(accel, gyro, timestamp, record);
+        }
+        frames++;
+        samples += count;
+        lastSeenNs = nowNs;
+        IngestProtocol.writeResult(out, deviceId, sequence, record);
+        return count;
+    }
+
+    SessionRecord latest() {
+        return record;
+    }
+}
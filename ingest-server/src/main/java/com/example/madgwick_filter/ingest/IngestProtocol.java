@@ -0,0 +1,168 @@
+package com.example.madgwick_filter.ingest;
+
+import com.example.madgwick_filter.SessionRecord;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * 端末とサーバーの間のバイナリフレーム。すべてリトルエンディアン。
+ * <pre>
+ * ヘッダー（8 バイト）: magic u16 ("IM"), version u8, type u8, payloadLength u32
+ * SAMPLES : deviceId i64, sequence i32, count u16, reserved u16, サンプル × count
+ *           サンプル（32 バイト）: timestamp i64, accel f32 × 3 (m/s²), gyro f32 × 3 (deg/s)
+ * RESULT  : deviceId i64, sequence i32, moving u8, reserved u8 × 3, timestamp i64,
+ *           quaternion f32 × 4, position f32 × 3, totalDistance f32
+ * BYE     : deviceId i64
+ * </pre>
+ * TCP ではフレームを続けて流し、UDP では 1 データグラムに 1 フレームを入れる。
+ * SAMPLES ごとに、その最後のサンプルを処理した結果を RESULT で返す。
+ */
+public final class IngestProtocol {
+    public static final int MAGIC = 0x4D49; // "IM"
+    public static final int VERSION = 1;
+
+    public static final int TYPE_SAMPLES = 1;
+    public static final int TYPE_RESULT = 2;
+    public static final int TYPE_BYE = 3;
+
+    public static final int HEADER_BYTES = 8;
+    public static final int SAMPLES_HEADER_BYTES = 16;
+    public static final int SAMPLE_BYTES = 32;
+    public static final int RESULT_BYTES = 56;
+    public static final int BYE_BYTES = 8;
+    // UDP の 1 データグラム（64KB 未満）に収まる数
+    public static final int MAX_SAMPLES_PER_FRAME = 1024;
+    public static final int MAX_FRAME_BYTES = HEADER_BYTES + SAMPLES_HEADER_BYTES
+            + MAX_SAMPLES_PER_FRAME * SAMPLE_BYTES;
+
+    private IngestProtocol() {
+    }
+
+    public static void writeHeader(ByteBuffer out, int type, int payloadLength) {
+        out.putShort((short) MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) type);
+        out.putInt(payloadLength);
+    }
+
+    // buffer の offset から始まるヘッダー（HEADER_BYTES）を検査し、フレーム全体の長さを返す
+    public static int frameLength(ByteBuffer buffer, int offset) throws IOException {
+        int magic = buffer.getShort(offset) & 0xFFFF;
+        int version = buffer.get(offset + 2) & 0xFF;
+        if (magic != MAGIC || version != VERSION) {
+            throw new ProtocolException(String.format("Bad frame header: magic 0x%04X, version %d", magic, version));
+        }
+        int type = type(buffer, offset);
+        int length = buffer.getInt(offset + 4);
+        boolean valid;
+        switch (type) {
+            case TYPE_SAMPLES:
+                valid = length >= SAMPLES_HEADER_BYTES && length <= MAX_FRAME_BYTES - HEADER_BYTES
+                        && (length - SAMPLES_HEADER_BYTES) % SAMPLE_BYTES == 0;
+                break;
+            case TYPE_RESULT:
+                valid = length == RESULT_BYTES;
+                break;
+            case TYPE_BYE:
+                valid = length == BYE_BYTES;
+                break;
+            default:
+                throw new ProtocolException("Unknown frame type " + type);
+        }
+        if (!valid) {
+            throw new ProtocolException("Frame type " + type + " has invalid length " + length);
+        }
+        return HEADER_BYTES + length;
+    }
+
+    public static int type(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + 3) & 0xFF;
+    }
+
+    // ヘッダーの直後から読める値（どの種類もペイロードの先頭は deviceId）
+    public static long deviceId(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + HEADER_BYTES);
+    }
+
+    public static int sequence(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + HEADER_BYTES + 8);
+    }
+
+    // SAMPLES のサンプル数。ペイロード長と食い違えば ProtocolException
+    public static int sampleCount(ByteBuffer buffer, int offset) throws IOException {
+        int count = buffer.getShort(offset + HEADER_BYTES + 12) & 0xFFFF;
+        int length = buffer.getInt(offset + 4);
+        if (SAMPLES_HEADER_BYTES + count * SAMPLE_BYTES != length) {
+            throw new ProtocolException("SAMPLES count " + count + " does not match length " + length);
+        }
+        return count;
+    }
+
+    // i 番目のサンプルの位置
+    public static int sampleOffset(int offset, int i) {
+        return offset + HEADER_BYTES + SAMPLES_HEADER_BYTES + i * SAMPLE_BYTES;
+    }
+
+    public static void writeSamplesHeader(ByteBuffer out, long deviceId, int sequence, int count) {
+        if (count < 0 || count > MAX_SAMPLES_PER_FRAME) {
+            throw new IllegalArgumentException("count must be 0.." + MAX_SAMPLES_PER_FRAME + ": " + count);
+        }
+        writeHeader(out, TYPE_SAMPLES, SAMPLES_HEADER_BYTES + count * SAMPLE_BYTES);
+        out.putLong(deviceId);
+        out.putInt(sequence);
+        out.putShort((short) count);
+        out.putShort((short) 0);
+    }
+
+    public static void writeSample(ByteBuffer out, long timestamp, float[] accel, float[] gyro) {
+        out.putLong(timestamp);
+        out.putFloat(accel[0]).putFloat(accel[1]).putFloat(accel[2]);
+        out.putFloat(gyro[0]).putFloat(gyro[1]).putFloat(gyro[2]);
+    }
+
+    // position（sampleOffset）にあるサンプルを読み、タイムスタンプを返す
+    public static long readSample(ByteBuffer in, int position, float[] accel, float[] gyro) {
+        long timestamp = in.getLong(position);
+        for (int i = 0; i < 3; i++) {
+            accel[i] = in.getFloat(position + 8 + i * 4);
+            gyro[i] = in.getFloat(position + 20 + i * 4);
+        }
+        return timestamp;
+    }
+
+    public static void writeResult(ByteBuffer out, long deviceId, int sequence, SessionRecord record) {
+        writeHeader(out, TYPE_RESULT, RESULT_BYTES);
+        out.putLong(deviceId);
+        out.putInt(sequence);
+        out.put((byte) (record.moving ? 1 : 0));
+        out.put((byte) 0).put((byte) 0).put((byte) 0);
+        out.putLong(record.timestamp);
+        for (int i = 0; i < 4; i++) {
+            out.putFloat(record.quaternion[i]);
+        }
+        for (int i = 3; i < 7; i++) {
+            out.putFloat(record.motion[i]);
+        }
+    }
+
+    // RESULT を record に読み込み、sequence を返す（位置・距離は motion[3..6]、ほかの値は変えない）
+    public static int readResult(ByteBuffer in, int offset, SessionRecord record) {
+        int base = offset + HEADER_BYTES;
+        record.moving = in.get(base + 12) != 0;
+        record.timestamp = in.getLong(base + 16);
+        for (int i = 0; i < 4; i++) {
+            record.quaternion[i] = in.getFloat(base + 24 + i * 4);
+        }
+        for (int i = 0; i < 4; i++) {
+            record.motion[3 + i] = in.getFloat(base + 40 + i * 4);
+        }
+        return in.getInt(base + 8);
+    }
+
+    public static void writeBye(ByteBuffer out, long deviceId) {
+        writeHeader(out, TYPE_BYE, BYE_BYTES);
+        out.putLong(deviceId);
+    }
+}
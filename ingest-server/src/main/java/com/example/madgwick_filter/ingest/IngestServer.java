@@ -0,0 +1,339 @@
+package com.example.madgwick_filter.ingest;
+
+import com.example.madgwick_filter.FusionProcessor;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 複数の端末から生の加速度・ジャイロを受け取り、端末ごとに独立した {@link FusionProcessor} で処理するサーバー。
+ * フレームの形式は {@link IngestProtocol}。
+ * <p>
+ * TCP は 1 接続 = 1 セッションで、接続ごとに仮想スレッドを 1 本使いブロッキングで読み書きする。
+ * 待機中の接続はヘッダー用の小さなバッファしか持たず、フレーム本体はプールのバッファに読んで処理後すぐ返す。
+ * UDP は 1 本の受信ループで処理し、セッションは deviceId で引く（BYE か一定時間受信がなければ破棄）。
+ */
+public class IngestServer implements Closeable {
+    // この間 UDP のフレームが来なければセッションを捨てる
+    public static final long UDP_SESSION_TIMEOUT_NS = 30_000_000_000L; // 30s
+    private static final long SWEEP_INTERVAL_MS = 5_000;
+    private static final int POOLED_BUFFERS = 256;
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    private final Supplier<FusionProcessor> processorFactory;
+    private final BufferPool pool = new BufferPool(IngestProtocol.MAX_FRAME_BYTES, POOLED_BUFFERS);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Map<Long, DeviceSession> udpSessions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder sessionsOpened = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder lostFrames = new LongAdder();
+    private final LongAdder badFrames = new LongAdder();
+
+    private ServerSocketChannel tcp;
+    private DatagramChannel udp;
+    private volatile boolean closed = false;
+
+    public IngestServer() {
+        this(() -> {
+            FusionProcessor processor = new FusionProcessor();
+            // 数千セッション分のログは追えないので出さない
+            processor.getDetector().setDebugLogging(false);
+            return processor;
+        });
+    }
+
+    // セッションごとに呼ばれる。チューニング値を変える場合はファクトリを差し替える
+    public IngestServer(Supplier<FusionProcessor> processorFactory) {
+        this.processorFactory = processorFactory;
+    }
+
+    // 受け付けを始める。どちらかが null ならその経路は開かない（ポート 0 なら空いている番号）
+    public void start(InetSocketAddress tcpAddress, InetSocketAddress udpAddress) throws IOException {
+        if (tcpAddress != null) {
+            tcp = ServerSocketChannel.open();
+            tcp.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            tcp.bind(tcpAddress, ACCEPT_BACKLOG);
+            executor.execute(this::acceptLoop);
+        }
+        if (udpAddress != null) {
+            udp = DatagramChannel.open();
+            udp.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+            udp.bind(udpAddress);
+            executor.execute(this::udpLoop);
+            executor.execute(this::sweepLoop);
+        }
+    }
+
+    public int getTcpPort() throws IOException {
+        return ((InetSocketAddress) tcp.getLocalAddress()).getPort();
+    }
+
+    public int getUdpPort() throws IOException {
+        return ((InetSocketAddress) udp.getLocalAddress()).getPort();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (!closed) {
+                SocketChannel channel = tcp.accept();
+                connections.add(channel);
+                executor.execute(() -> serve(channel));
+            }
+        } catch (ClosedChannelException e) {
+            // close() で止めた
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("IngestServer: accept failed: " + e);
+            }
+        }
+    }
+
+    // 1 接続分。フレームごとに RESULT を返す。切断・プロトコル違反で終わる
+    private void serve(SocketChannel channel) {
+        ByteBuffer header = ByteBuffer.allocateDirect(IngestProtocol.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer result = ByteBuffer.allocateDirect(IngestProtocol.HEADER_BYTES + IngestProtocol.RESULT_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        DeviceSession session = null;
+        try (channel) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header, true)) {
+                    break;
+                }
+                int length = IngestProtocol.frameLength(header, 0);
+                int type = IngestProtocol.type(header, 0);
+                ByteBuffer frame = pool.acquire();
+                try {
+                    header.flip();
+                    frame.put(header);
+                    frame.limit(length);
+                    readFully(channel, frame, false);
+                    bytesReceived.add(length);
+                    if (type == IngestProtocol.TYPE_BYE) {
+                        break;
+                    }
+                    if (type != IngestProtocol.TYPE_SAMPLES) {
+                        throw new ProtocolException("Unexpected frame type " + type);
+                    }
+                    long deviceId = IngestProtocol.deviceId(frame, 0);
+                    if (session == null) {
+                        session = openSession(deviceId);
+                    } else if (session.deviceId != deviceId) {
+                        throw new ProtocolException("deviceId changed from " + session.deviceId
+                                + " to " + deviceId);
+                    }
+                    result.clear();
+                    process(session, frame, result);
+                } finally {
+                    pool.release(frame);
+                }
+                result.flip();
+                while (result.hasRemaining()) {
+                    channel.write(result);
+                }
+            }
+        } catch (ProtocolException e) {
+            badFrames.increment();
+        } catch (IOException e) {
+            // 切断・close() による中断
+        } finally {
+            connections.remove(channel);
+            if (session != null) {
+                activeSessions.decrementAndGet();
+            }
+        }
+    }
+
+    // buffer の limit まで読む。atFrameStart で 1 バイトも読めずに切れたら false（正常な切断）
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean atFrameStart)
+            throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (atFrameStart && buffer.position() == start) {
+                    return false;
+                }
+                throw new EOFException("Connection closed in the middle of a frame");
+            }
+        }
+        return true;
+    }
+
+    // UDP は受信ループ 1 本で全端末を処理する（セッションはこのスレッドだけが触る）
+    private void udpLoop() {
+        ByteBuffer frame = pool.acquire();
+        ByteBuffer result = ByteBuffer.allocateDirect(IngestProtocol.HEADER_BYTES + IngestProtocol.RESULT_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (!closed) {
+                frame.clear();
+                SocketAddress from = udp.receive(frame);
+                int size = frame.position();
+                bytesReceived.add(size);
+                try {
+                    if (size < IngestProtocol.HEADER_BYTES
+                            || IngestProtocol.frameLength(frame, 0) != size) {
+                        throw new ProtocolException("Datagram of " + size + " bytes is not one frame");
+                    }
+                    int type = IngestProtocol.type(frame, 0);
+                    long deviceId = IngestProtocol.deviceId(frame, 0);
+                    if (type == IngestProtocol.TYPE_BYE) {
+                        closeUdpSession(deviceId);
+                        continue;
+                    }
+                    if (type != IngestProtocol.TYPE_SAMPLES) {
+                        throw new ProtocolException("Unexpected frame type " + type);
+                    }
+                    DeviceSession session = udpSessions.get(deviceId);
+                    if (session == null) {
+                        session = openSession(deviceId);
+                        udpSessions.put(deviceId, session);
+                    }
+                    result.clear();
+                    process(session, frame, result);
+                } catch (ProtocolException e) {
+                    badFrames.increment();
+                    continue;
+                }
+                result.flip();
+                udp.send(result, from);
+            }
+        } catch (ClosedChannelException e) {
+            // close() で止めた
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("IngestServer: UDP receive failed: " + e);
+            }
+        } finally {
+            pool.release(frame);
+        }
+    }
+
+    // 受信の途絶えた UDP セッションを捨てる
+    private void sweepLoop() {
+        try {
+            while (!closed) {
+                Thread.sleep(SWEEP_INTERVAL_MS);
+                long now = System.nanoTime();
+                for (DeviceSession session : udpSessions.values()) {
+                    if (now - session.lastSeenNs > UDP_SESSION_TIMEOUT_NS) {
+                        closeUdpSession(session.deviceId);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // close() で止めた
+        }
+    }
+
+    private DeviceSession openSession(long deviceId) {
+        DeviceSession session = new DeviceSession(deviceId, processorFactory.get());
+        session.lastSeenNs = System.nanoTime();
+        activeSessions.incrementAndGet();
+        sessionsOpened.increment();
+        return session;
+    }
+
+    private void closeUdpSession(long deviceId) {
+        if (udpSessions.remove(deviceId) != null) {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private void process(DeviceSession session, ByteBuffer frame, ByteBuffer result) throws IOException {
+        long lost = session.lostFrames;
+        int count = session.process(frame, 0, result, System.nanoTime());
+        frames.increment();
+        samples.add(count);
+        if (session.lostFrames != lost) {
+            lostFrames.add(session.lostFrames - lost);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(activeSessions.get(), sessionsOpened.sum(), frames.sum(), samples.sum(),
+                bytesReceived.sum(), lostFrames.sum(), badFrames.sum(), pool.getAllocatedCount());
+    }
+
+    // 受け付けを止め、すべての接続を切ってスレッドの終了を待つ
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (tcp != null) {
+            tcp.close();
+        }
+        if (udp != null) {
+            udp.close();
+        }
+        for (SocketChannel channel : connections) {
+            channel.close();
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        activeSessions.addAndGet(-udpSessions.size());
+        udpSessions.clear();
+    }
+
+    /** 起動からの累計（activeSessions と buffersAllocated は現在値） */
+    public static final class Stats {
+        public final int activeSessions;
+        public final long sessionsOpened;
+        public final long frames;
+        public final long samples;
+        public final long bytesReceived;
+        public final long lostFrames;
+        public final long badFrames;
+        public final int buffersAllocated;
+
+        Stats(int activeSessions, long sessionsOpened, long frames, long samples, long bytesReceived,
+              long lostFrames, long badFrames, int buffersAllocated) {
+            this.activeSessions = activeSessions;
+            this.sessionsOpened = sessionsOpened;
+            this.frames = frames;
+            this.samples = samples;
+            this.bytesReceived = bytesReceived;
+            this.lostFrames = lostFrames;
+            this.badFrames = badFrames;
+            this.buffersAllocated = buffersAllocated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "sessions %d active / %d opened, %d frames, %d samples, %d bytes, %d lost, %d bad, %d buffers",
+                    activeSessions, sessionsOpened, frames, samples, bytesReceived, lostFrames, badFrames,
+                    buffersAllocated);
+        }
+    }
+}
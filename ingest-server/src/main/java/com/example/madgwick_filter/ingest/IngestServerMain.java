@@ -0,0 +1,90 @@
+package com.example.madgwick_filter.ingest;
+
+import com.example.madgwick_filter.FusionProcessor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * コマンドラインからの起動。
+ * <pre>
+ * ingest-server [--tcp PORT] [--udp PORT] [--no-udp] [--detect-ms MS] [--integrate-ms MS] [--stats-s S]
+ * </pre>
+ * 既定は TCP・UDP とも 7700 番。--stats-s ごとに累計と直近のレートを標準出力に出す（Ctrl-C で終了）。
+ */
+public final class IngestServerMain {
+    public static final int DEFAULT_PORT = 7700;
+
+    private IngestServerMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int tcpPort = DEFAULT_PORT;
+        int udpPort = DEFAULT_PORT;
+        boolean useUdp = true;
+        long detectionIntervalNs = 0;
+        long integrationIntervalNs = 0;
+        long statsMs = 5_000;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tcp":
+                    tcpPort = Integer.parseInt(args[++i]);
+                    break;
+                case "--udp":
+                    udpPort = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-udp":
+                    useUdp = false;
+                    break;
+                case "--detect-ms":
+                    detectionIntervalNs = Long.parseLong(args[++i]) * 1_000_000L;
+                    break;
+                case "--integrate-ms":
+                    integrationIntervalNs = Long.parseLong(args[++i]) * 1_000_000L;
+                    break;
+                case "--stats-s":
+                    statsMs = Long.parseLong(args[++i]) * 1_000L;
+                    break;
+                default:
+                    System.err.println("Usage: ingest-server [--tcp PORT] [--udp PORT] [--no-udp]"
+                            + " [--detect-ms MS] [--integrate-ms MS] [--stats-s S]");
+                    System.exit(2);
+            }
+        }
+
+        long detection = detectionIntervalNs;
+        long integration = integrationIntervalNs;
+        IngestServer server = new IngestServer(() -> {
+            FusionProcessor processor = new FusionProcessor();
+            processor.getDetector().setDebugLogging(false);
+            processor.setDetectionIntervalNs(detection);
+            processor.setIntegrationIntervalNs(integration);
+            return processor;
+        });
+        server.start(new InetSocketAddress(tcpPort), useUdp ? new InetSocketAddress(udpPort) : null);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close: " + e);
+            }
+            System.out.println("Final: " + server.getStats());
+        }));
+        System.out.printf("Listening on TCP %d%s%n", server.getTcpPort(),
+                useUdp ? ", UDP " + server.getUdpPort() : "");
+
+        IngestServer.Stats previous = server.getStats();
+        long previousTime = System.nanoTime();
+        while (true) {
+            Thread.sleep(statsMs);
+            IngestServer.Stats stats = server.getStats();
+            long now = System.nanoTime();
+            double seconds = (now - previousTime) / 1e9;
+            System.out.printf("%s (%.0f samples/s, %.0f frames/s)%n", stats,
+                    (stats.samples - previous.samples) / seconds, (stats.frames - previous.frames) / seconds);
+            previous = stats;
+            previousTime = now;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.madgwick_filter.ingest;
+
+import com.example.madgwick_filter.ImuTraceGenerator;
+import com.example.madgwick_filter.LatencyHistogram;
+import com.example.madgwick_filter.SessionRecord;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link IngestServer} の負荷試験用クライアント。端末ごとに仮想スレッドを 1 本使い、
+ * {@link ImuTraceGenerator} の歩行シナリオを実時間のレートで送って RESULT の往復時間を測る。
+ * <pre>
+ * load-generator [--host HOST] [--port PORT] [--udp] [--devices N] [--rate HZ] [--batch N] [--seconds S]
+ * </pre>
+ * --rate 0 なら待たずに送り続ける（サーバーの最大スループットを見る）。
+ */
+public final class LoadGenerator {
+    // UDP で RESULT を待つ上限。超えたら取りこぼしとして数える
+    private static final int UDP_TIMEOUT_MS = 1_000;
+
+    private final InetSocketAddress server;
+    private final boolean udp;
+    private final float rateHz;
+    private final int batch;
+
+    public LoadGenerator(InetSocketAddress server, boolean udp, float rateHz, int batch) {
+        if (batch <= 0 || batch > IngestProtocol.MAX_SAMPLES_PER_FRAME) {
+            throw new IllegalArgumentException("batch must be 1.." + IngestProtocol.MAX_SAMPLES_PER_FRAME + ": " + batch);
+        }
+        this.server = server;
+        this.udp = udp;
+        this.rateHz = rateHz;
+        this.batch = batch;
+    }
+
+    /** devices 台を同時に seconds 秒（送信するサンプルの時間で数える）走らせる */
+    public Report run(int devices, float seconds) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Future<DeviceResult>> futures = new ArrayList<>(devices);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < devices; i++) {
+                long deviceId = i + 1;
+                futures.add(executor.submit(() -> runDevice(deviceId, seconds)));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Report report = new Report(devices, elapsed);
+        for (Future<DeviceResult> future : futures) {
+            try {
+                DeviceResult result = future.get();
+                report.frames += result.frames;
+                report.samples += result.samples;
+                report.results += result.results;
+                report.roundTrip.add(result.roundTrip);
+            } catch (ExecutionException e) {
+                report.failedDevices++;
+                if (report.firstFailure == null) {
+                    report.firstFailure = e.getCause();
+                }
+            }
+        }
+        return report;
+    }
+
+    private DeviceResult runDevice(long deviceId, float seconds) throws IOException {
+        // 同じシナリオでも端末ごとにノイズと向きを変える
+        ImuTraceGenerator generator = new ImuTraceGenerator(rateHz > 0 ? rateHz : 100f, deviceId);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 2f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 20f);
+        generator.addSegment(ImuTraceGenerator.Motion.ROTATING, 3f);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 2f);
+        generator.setNoise(0.05f, 0.2f);
+        generator.setInitialOrientation(0f, 0f, (float) (new Random(deviceId).nextDouble() * 2 * Math.PI));
+
+        long total = (long) (seconds * generator.getRate());
+        ByteBuffer out = ByteBuffer.allocateDirect(IngestProtocol.HEADER_BYTES + IngestProtocol.SAMPLES_HEADER_BYTES
+                + batch * IngestProtocol.SAMPLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        DeviceResult result = new DeviceResult();
+        try (Link link = udp ? new UdpLink(server) : new TcpLink(server)) {
+            SessionRecord measured = new SessionRecord();
+            SessionRecord truth = new SessionRecord();
+            long offset = 0;
+            long periodNs = (long) (batch * 1e9 / generator.getRate());
+            // 全端末が同時に送り出さないよう開始をずらす
+            long deadline = System.nanoTime() + (rateHz > 0 ? Math.floorMod(deviceId * 7919, periodNs) : 0);
+            int sequence = 0;
+            for (long sent = 0; sent < total; ) {
+                int count = (int) Math.min(batch, total - sent);
+                out.clear();
+                IngestProtocol.writeSamplesHeader(out, deviceId, sequence, count);
+                for (int i = 0; i < count; i++) {
+                    if (!generator.next(measured, truth)) {
+                        // シナリオの最後まで来たら時刻を続けたまま頭から繰り返す
+                        offset += measured.timestamp + Math.round(1e9 / generator.getRate());
+                        generator.restart();
+                        generator.next(measured, truth);
+                    }
+                    IngestProtocol.writeSample(out, measured.timestamp + offset, measured.accel, measured.gyro);
+                }
+                out.flip();
+
+                if (rateHz > 0) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    deadline += periodNs;
+                }
+                long sendTime = System.nanoTime();
+                if (link.exchange(out)) {
+                    result.roundTrip.record(System.nanoTime() - sendTime);
+                    result.results++;
+                }
+                result.frames++;
+                result.samples += count;
+                sent += count;
+                sequence++;
+            }
+            out.clear();
+            IngestProtocol.writeBye(out, deviceId);
+            out.flip();
+            link.send(out);
+        }
+        return result;
+    }
+
+    // 端末 1 台分の接続。exchange は SAMPLES を送り、対応する RESULT を受け取れたら true
+    private interface Link extends AutoCloseable {
+        boolean exchange(ByteBuffer frame) throws IOException;
+
+        void send(ByteBuffer frame) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class TcpLink implements Link {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(IngestProtocol.HEADER_BYTES
+                + IngestProtocol.RESULT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        TcpLink(InetSocketAddress server) throws IOException {
+            channel = SocketChannel.open(server);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+
+        @Override
+        public boolean exchange(ByteBuffer frame) throws IOException {
+            send(frame);
+            in.clear();
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException("Server closed the connection");
+                }
+            }
+            IngestProtocol.frameLength(in, 0);
+            return IngestProtocol.type(in, 0) == IngestProtocol.TYPE_RESULT;
+        }
+
+        @Override
+        public void send(ByteBuffer frame) throws IOException {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class UdpLink implements Link {
+        private final DatagramSocket socket;
+        private final byte[] sendBytes = new byte[IngestProtocol.MAX_FRAME_BYTES];
+        private final DatagramPacket sendPacket = new DatagramPacket(sendBytes, 0);
+        private final byte[] receiveBytes = new byte[IngestProtocol.HEADER_BYTES + IngestProtocol.RESULT_BYTES];
+        private final DatagramPacket receivePacket = new DatagramPacket(receiveBytes, receiveBytes.length);
+        private final ByteBuffer in = ByteBuffer.wrap(receiveBytes).order(ByteOrder.LITTLE_ENDIAN);
+        private int expectedSequence;
+
+        UdpLink(InetSocketAddress server) throws IOException {
+            socket = new DatagramSocket();
+            socket.connect(server);
+            socket.setSoTimeout(UDP_TIMEOUT_MS);
+        }
+
+        @Override
+        public boolean exchange(ByteBuffer frame) throws IOException {
+            expectedSequence = IngestProtocol.sequence(frame, 0);
+            send(frame);
+            // 前のフレームの遅れて届いた RESULT は読み捨てる
+            while (true) {
+                try {
+                    socket.receive(receivePacket);
+                } catch (SocketTimeoutException e) {
+                    return false;
+                }
+                if (receivePacket.getLength() == receiveBytes.length
+                        && IngestProtocol.type(in, 0) == IngestProtocol.TYPE_RESULT
+                        && IngestProtocol.sequence(in, 0) == expectedSequence) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void send(ByteBuffer frame) throws IOException {
+            int length = frame.remaining();
+            frame.get(sendBytes, 0, length);
+            sendPacket.setLength(length);
+            socket.send(sendPacket);
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+    }
+
+    private static final class DeviceResult {
+        long frames;
+        long samples;
+        long results;
+        final LatencyHistogram roundTrip = new LatencyHistogram();
+    }
+
+    /** 全端末の合計。roundTrip は SAMPLES を送ってから RESULT を受け取るまで */
+    public static final class Report {
+        public final int devices;
+        public final long elapsedNs;
+        public long frames;
+        public long samples;
+        public long results;
+        public int failedDevices;
+        public Throwable firstFailure;
+        public final LatencyHistogram roundTrip = new LatencyHistogram();
+
+        Report(int devices, long elapsedNs) {
+            this.devices = devices;
+            this.elapsedNs = elapsedNs;
+        }
+
+        public double samplesPerSecond() {
+            return samples * 1e9 / elapsedNs;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = "127.0.0.1";
+        int port = IngestServerMain.DEFAULT_PORT;
+        boolean udp = false;
+        int devices = 1000;
+        float rate = 100f;
+        int batch = 10;
+        float seconds = 30f;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--udp":
+                    udp = true;
+                    break;
+                case "--devices":
+                    devices = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Float.parseFloat(args[++i]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Float.parseFloat(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: load-generator [--host HOST] [--port PORT] [--udp] [--devices N]"
+                            + " [--rate HZ] [--batch N] [--seconds S]");
+                    System.exit(2);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port), udp, rate, batch);
+        Report report = generator.run(devices, seconds);
+        System.out.printf("%d devices over %s: %d frames, %d samples in %.2f s (%.0f samples/s), %d results%n",
+                report.devices, udp ? "UDP" : "TCP", report.frames, report.samples, report.elapsedNs / 1e9,
+                report.samplesPerSecond(), report.results);
+        System.out.printf("Round trip: mean %.0f us, p50 %d us, p99 %d us, max %d us%n",
+                report.roundTrip.getMean() / 1e3, report.roundTrip.getPercentile(0.5) / 1000,
+                report.roundTrip.getPercentile(0.99) / 1000, report.roundTrip.getMax() / 1000);
+        if (report.failedDevices > 0) {
+            System.out.printf("%d devices failed, first: %s%n", report.failedDevices, report.firstFailure);
+        }
+    }
+}
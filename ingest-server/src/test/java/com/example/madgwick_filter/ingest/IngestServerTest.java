@@ -0,0 +1,224 @@
+package com.example.madgwick_filter.ingest;
+
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.ImuTraceGenerator;
+import com.example.madgwick_filter.SessionRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IngestServerTest {
+    private static final InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    private IngestServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new IngestServer();
+        server.start(new InetSocketAddress(LOOPBACK, 0), new InetSocketAddress(LOOPBACK, 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void tcp_sessionsMatchLocalProcessing() throws Exception {
+        int devices = 32;
+        List<Future<Integer>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < devices; i++) {
+                long deviceId = 100 + i;
+                futures.add(executor.submit(() -> streamAndCompare(deviceId)));
+            }
+        }
+        int frames = 0;
+        for (Future<Integer> future : futures) {
+            frames += future.get();
+        }
+
+        IngestServer.Stats stats = awaitStats(s -> s.activeSessions == 0);
+        assertEquals(devices, stats.sessionsOpened);
+        assertEquals(frames, stats.frames);
+        assertEquals(0, stats.badFrames);
+        // フレーム用のバッファは接続数ではなく同時に処理しているフレーム数だけ確保される
+        assertTrue("buffers " + stats.buffersAllocated, stats.buffersAllocated <= devices + 1);
+    }
+
+    // 端末 1 台分を TCP で送り、RESULT が手元の FusionProcessor と一致することを確かめる。送ったフレーム数を返す
+    private int streamAndCompare(long deviceId) throws IOException {
+        ImuTraceGenerator generator = new ImuTraceGenerator(200f, deviceId);
+        generator.addSegment(ImuTraceGenerator.Motion.STILL, 1f);
+        generator.addSegment(ImuTraceGenerator.Motion.WALKING, 4f);
+        generator.setNoise(0.05f, 0.2f);
+        FusionProcessor local = new FusionProcessor();
+        local.getDetector().setDebugLogging(false);
+
+        SessionRecord measured = new SessionRecord();
+        SessionRecord truth = new SessionRecord();
+        SessionRecord expected = new SessionRecord();
+        SessionRecord actual = new SessionRecord();
+        ByteBuffer out = newBuffer(IngestProtocol.MAX_FRAME_BYTES);
+        ByteBuffer in = newBuffer(IngestProtocol.HEADER_BYTES + IngestProtocol.RESULT_BYTES);
+        int batch = 25;
+        int sequence = 0;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(LOOPBACK, server.getTcpPort()))) {
+            boolean more = true;
+            while (more) {
+                out.clear();
+                out.position(IngestProtocol.HEADER_BYTES + IngestProtocol.SAMPLES_HEADER_BYTES);
+                int count = 0;
+                while (count < batch && (more = generator.next(measured, truth))) {
+                    local.process(measured.accel, measured.gyro, measured.timestamp, expected);
+                    IngestProtocol.writeSample(out, measured.timestamp, measured.accel, measured.gyro);
+                    count++;
+                }
+                if (count == 0) {
+                    break;
+                }
+                int end = out.position();
+                out.position(0);
+                IngestProtocol.writeSamplesHeader(out, deviceId, sequence, count);
+                out.position(0).limit(end);
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+
+                in.clear();
+                while (in.hasRemaining()) {
+                    assertTrue(channel.read(in) >= 0);
+                }
+                assertEquals(IngestProtocol.TYPE_RESULT, IngestProtocol.type(in, 0));
+                assertEquals(deviceId, IngestProtocol.deviceId(in, 0));
+                assertEquals(sequence, IngestProtocol.readResult(in, 0, actual));
+                assertEquals(expected.timestamp, actual.timestamp);
+                assertEquals(expected.moving, actual.moving);
+                assertArrayEquals(expected.quaternion, actual.quaternion, 0f);
+                // RESULT には位置と距離だけが載る
+                for (int i = 3; i < 7; i++) {
+                    assertEquals(expected.motion[i], actual.motion[i], 0f);
+                }
+                sequence++;
+            }
+            assertTrue(expected.motion[6] > 0f);
+
+            out.clear();
+            IngestProtocol.writeBye(out, deviceId);
+            out.flip();
+            channel.write(out);
+            // サーバー側から閉じられる
+            in.clear();
+            assertEquals(-1, channel.read(in));
+        }
+        return sequence;
+    }
+
+    @Test
+    public void udp_countsLostFramesAndClosesOnBye() throws Exception {
+        ByteBuffer out = newBuffer(IngestProtocol.MAX_FRAME_BYTES);
+        ByteBuffer in = newBuffer(IngestProtocol.MAX_FRAME_BYTES);
+        SessionRecord result = new SessionRecord();
+        float[] accel = {0f, 0f, 9.81f};
+        float[] gyro = new float[3];
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(new InetSocketAddress(LOOPBACK, server.getUdpPort()));
+            // 2 番を落とす
+            for (int sequence : new int[]{0, 1, 3}) {
+                out.clear();
+                IngestProtocol.writeSamplesHeader(out, 7L, sequence, 4);
+                for (int i = 0; i < 4; i++) {
+                    IngestProtocol.writeSample(out, (sequence * 4 + i) * 10_000_000L, accel, gyro);
+                }
+                out.flip();
+                channel.write(out);
+                in.clear();
+                channel.read(in);
+                assertEquals(IngestProtocol.HEADER_BYTES + IngestProtocol.RESULT_BYTES, in.position());
+                assertEquals(sequence, IngestProtocol.readResult(in, 0, result));
+                assertEquals((sequence * 4 + 3) * 10_000_000L, result.timestamp);
+            }
+            assertEquals(1, server.getStats().activeSessions);
+            assertEquals(1, server.getStats().lostFrames);
+
+            // ヘッダーの長さと合わないデータグラムは捨てて数える
+            out.clear();
+            IngestProtocol.writeSamplesHeader(out, 7L, 4, 4);
+            out.flip();
+            channel.write(out);
+
+            out.clear();
+            IngestProtocol.writeBye(out, 7L);
+            out.flip();
+            channel.write(out);
+        }
+        IngestServer.Stats stats = awaitStats(s -> s.activeSessions == 0);
+        assertEquals(1, stats.badFrames);
+        assertEquals(3, stats.frames);
+        assertEquals(12, stats.samples);
+    }
+
+    @Test
+    public void tcp_closesConnectionOnBadFrame() throws Exception {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(LOOPBACK, server.getTcpPort()))) {
+            ByteBuffer out = newBuffer(IngestProtocol.HEADER_BYTES);
+            out.putLong(0x1234_5678_9ABC_DEF0L);
+            out.flip();
+            channel.write(out);
+            assertEquals(-1, channel.read(newBuffer(16)));
+        }
+        assertEquals(1, awaitStats(s -> s.badFrames > 0).badFrames);
+    }
+
+    @Test
+    public void loadGenerator_sustainsManyConcurrentSessions() throws Exception {
+        for (boolean udp : new boolean[]{false, true}) {
+            int port = udp ? server.getUdpPort() : server.getTcpPort();
+            LoadGenerator generator = new LoadGenerator(new InetSocketAddress(LOOPBACK, port), udp, 200f, 20);
+            long before = server.getStats().samples;
+            LoadGenerator.Report report = generator.run(500, 1f);
+
+            assertEquals(0, report.failedDevices);
+            assertEquals(500 * 200, report.samples);
+            assertEquals(500 * 10, report.frames);
+            IngestServer.Stats stats = awaitStats(s -> s.activeSessions == 0);
+            assertEquals(report.samples, stats.samples - before);
+            if (!udp) {
+                assertEquals(report.frames, report.results);
+            }
+        }
+    }
+
+    private IngestServer.Stats awaitStats(Predicate<IngestServer.Stats> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        IngestServer.Stats stats = server.getStats();
+        while (!condition.test(stats) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            stats = server.getStats();
+        }
+        assertTrue("timed out: " + stats, condition.test(stats));
+        return stats;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
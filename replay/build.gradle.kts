@@ -0,0 +1,18 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    implementation(project(":fusion-core"))
+    testImplementation(libs.junit)
+}
+
+application {
+    mainClass.set("com.example.madgwick_filter.replay.ReplayMain")
+    applicationDefaultJvmArgs = listOf("-XX:+UseParallelGC")
+}
@@ -0,0 +1,132 @@
+package com.example.madgwick_filter.replay;
+
+import com.example.madgwick_filter.CsvSessionConverter;
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.SessionFileReader;
+import com.example.madgwick_filter.SessionFileWriter;
+import com.example.madgwick_filter.SessionRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 記録済みセッションの生センサー値を {@link FusionProcessor} に流し直す。
+ * 各ファイルは独立した FusionProcessor で処理し、複数ファイルはスレッドプールで並列に処理する。
+ */
+public class ReplayEngine {
+    private final Supplier<FusionProcessor> processorFactory;
+
+    // アプリと同じ設定で処理する
+    public ReplayEngine() {
+        this(FusionProcessor::withDefaultIntervals);
+    }
+
+    // チューニング値を変えた FusionProcessor を試す場合はファクトリを差し替える
+    public ReplayEngine(Supplier<FusionProcessor> processorFactory) {
+        this.processorFactory = processorFactory;
+    }
+
+    /** 1 ファイル（.mgs または アプリの .csv）をリプレイする。output が null なら結果は書き出さない */
+    public ReplayResult replay(File input, File output) throws IOException {
+        File session = input;
+        File converted = null;
+        if (input.getName().endsWith(".csv")) {
+            converted = File.createTempFile("replay", ".mgs");
+            CsvSessionConverter.convert(input, converted);
+            session = converted;
+        }
+
+        try (SessionFileReader reader = new SessionFileReader(session);
+             SessionFileWriter writer = output != null ? new SessionFileWriter(output) : null) {
+            FusionProcessor processor = processorFactory.get();
+            // 間隔が使えないサンプル（先頭・途切れた直後）の dt を記録時と合わせる
+            if (reader.getSampleFrequency() > 0) {
+                processor.setFallbackSampleFrequency(reader.getSampleFrequency());
+            }
+            if (writer != null) {
+                writer.setSampleFrequency(processor.getFallbackSampleFrequency());
+            }
+            SessionRecord in = new SessionRecord();
+            SessionRecord out = new SessionRecord();
+            SessionFileReader.Cursor cursor = reader.cursor(0);
+
+            long start = System.nanoTime();
+            long samples = 0;
+            while (cursor.next()) {
+                cursor.read(in);
+                processor.process(in.accel, in.gyro, in.timestamp, out);
+                if (writer != null) {
+                    writer.append(out);
+                }
+                samples++;
+            }
+            long elapsed = System.nanoTime() - start;
+            return new ReplayResult(input, samples, elapsed, out.motion[6]);
+        } finally {
+            if (converted != null) {
+                converted.delete();
+            }
+        }
+    }
+
+    /** 複数ファイルを threads 並列でリプレイする。outputDir が null なら結果は書き出さない */
+    public List<ReplayResult> replayAll(List<File> inputs, int threads, File outputDir)
+            throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ReplayResult>> futures = new ArrayList<>(inputs.size());
+            for (File input : inputs) {
+                File output = outputDir != null ? new File(outputDir, baseName(input) + ".replay.mgs") : null;
+                futures.add(executor.submit(() -> replay(input, output)));
+            }
+
+            List<ReplayResult> results = new ArrayList<>(inputs.size());
+            for (Future<ReplayResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("Replay failed", cause);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /** 1 ファイル分の処理結果 */
+    public static final class ReplayResult {
+        public final File input;
+        public final long samples;
+        public final long elapsedNanos;
+        public final float totalDistance;
+
+        ReplayResult(File input, long samples, long elapsedNanos, float totalDistance) {
+            this.input = input;
+            this.samples = samples;
+            this.elapsedNanos = elapsedNanos;
+            this.totalDistance = totalDistance;
+        }
+
+        public double samplesPerSecond() {
+            return elapsedNanos > 0 ? samples * 1e9 / elapsedNanos : 0;
+        }
+    }
+}
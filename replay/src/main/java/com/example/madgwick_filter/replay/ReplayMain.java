@@ -0,0 +1,93 @@
+package com.example.madgwick_filter.replay;
+
+import com.example.madgwick_filter.FusionProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * コマンドラインからのリプレイ。
+ * <pre>
+ * replay [--threads N] [--out DIR] [--detect-ms MS] [--integrate-ms MS] &lt;session.mgs|session.csv|dir&gt;...
+ * </pre>
+ * ディレクトリを指定した場合は直下の .mgs / .csv をすべて対象にする。
+ * 移動検出・距離積分の間隔は既定でアプリと同じ（FusionProcessor.DEFAULT_*_INTERVAL_NS）。
+ * --detect-ms / --integrate-ms で変えられる（0 なら毎サンプル）。
+ */
+public final class ReplayMain {
+    private ReplayMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        File outputDir = null;
+        long detectionIntervalNs = FusionProcessor.DEFAULT_DETECTION_INTERVAL_NS;
+        long integrationIntervalNs = FusionProcessor.DEFAULT_INTEGRATION_INTERVAL_NS;
+        List<File> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    outputDir = new File(args[++i]);
+                    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                        throw new IOException("Cannot create output directory " + outputDir);
+                    }
+                    break;
+                case "--detect-ms":
+                    detectionIntervalNs = Long.parseLong(args[++i]) * 1_000_000L;
+                    break;
+                case "--integrate-ms":
+                    integrationIntervalNs = Long.parseLong(args[++i]) * 1_000_000L;
+                    break;
+                default:
+                    addInputs(new File(args[i]), inputs);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: replay [--threads N] [--out DIR] [--detect-ms MS] [--integrate-ms MS]"
+                    + " <session.mgs|session.csv|dir>...");
+            System.exit(2);
+        }
+
+        long detection = detectionIntervalNs;
+        long integration = integrationIntervalNs;
+        ReplayEngine engine = new ReplayEngine(() -> {
+            FusionProcessor processor = new FusionProcessor();
+            processor.setDetectionIntervalNs(detection);
+            processor.setIntegrationIntervalNs(integration);
+            return processor;
+        });
+        long start = System.nanoTime();
+        List<ReplayEngine.ReplayResult> results = engine.replayAll(inputs, threads, outputDir);
+        long wall = System.nanoTime() - start;
+
+        long totalSamples = 0;
+        for (ReplayEngine.ReplayResult result : results) {
+            totalSamples += result.samples;
+            System.out.printf("%s: %d samples, %.0f samples/s, distance %.2f m%n",
+                    result.input.getName(), result.samples, result.samplesPerSecond(), result.totalDistance);
+        }
+        System.out.printf("Total: %d files, %d samples in %.3f s (%.0f samples/s on %d threads)%n",
+                results.size(), totalSamples, wall / 1e9, totalSamples * 1e9 / wall, threads);
+    }
+
+    private static void addInputs(File path, List<File> inputs) {
+        if (path.isDirectory()) {
+            File[] files = path.listFiles((dir, name) -> name.endsWith(".mgs") || name.endsWith(".csv"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    inputs.add(file);
+                }
+            }
+        } else {
+            inputs.add(path);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.madgwick_filter.replay;
+
+import com.example.madgwick_filter.CsvRecorder;
+import com.example.madgwick_filter.CsvSessionConverter;
+import com.example.madgwick_filter.FusionProcessor;
+import com.example.madgwick_filter.SessionFileReader;
+import com.example.madgwick_filter.SessionFileWriter;
+import com.example.madgwick_filter.SessionRecord;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayEngineTest {
+    private static final int SAMPLES = 20_000;
+    private static final long PERIOD_NS = 10_000_000L;
+    // アプリが SENSOR_DELAY_FASTEST の最小間隔から決める値の例（既定の 50Hz とは違う）
+    private static final float DEVICE_RATE_HZ = 400f;
+
+    // 記録したい値を受け取る（.mgs / .csv のどちらに書くか）
+    private interface Recorder {
+        void record(SessionRecord record) throws IOException;
+    }
+
+    // アプリと同じく FusionProcessor の出力をそのまま記録する。gapAt 番目の前でタイムスタンプが 1 秒途切れる（-1 ならなし）。
+    // 入力は 1/64 刻みにして CSV の小数 6 桁でも変わらないようにする
+    private static void runSession(FusionProcessor processor, int seed, int gapAt, Recorder recorder)
+            throws IOException {
+        SessionRecord record = new SessionRecord();
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+        long timestamp = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = i * 0.01 + seed;
+            boolean walking = (i / 1000) % 2 == 1;
+            accel[0] = quantize(walking ? Math.sin(t * 12) * 2 : 0.01);
+            accel[1] = quantize(walking ? Math.cos(t * 12) : -0.02);
+            accel[2] = quantize(9.81 + (walking ? Math.sin(t * 25) : 0));
+            gyro[2] = quantize(walking ? Math.sin(t) * 5 : 0);
+            timestamp += i == gapAt ? 1_000_000_000L : PERIOD_NS;
+            processor.process(accel, gyro, timestamp, record);
+            recorder.record(record);
+        }
+    }
+
+    private static float quantize(double value) {
+        return Math.round(value * 64) / 64f;
+    }
+
+    private static FusionProcessor deviceProcessor() {
+        FusionProcessor processor = FusionProcessor.withDefaultIntervals();
+        processor.getDetector().setDebugLogging(false);
+        processor.setFallbackSampleFrequency(DEVICE_RATE_HZ);
+        return processor;
+    }
+
+    // recordRate が false ならヘッダーに登録レートを書かない（古いファイル）
+    private static File recordSession(File dir, String name, int seed, int gapAt, boolean recordRate)
+            throws IOException {
+        File file = new File(dir, name);
+        FusionProcessor processor = deviceProcessor();
+        try (SessionFileWriter writer = new SessionFileWriter(file)) {
+            if (recordRate) {
+                writer.setSampleFrequency(processor.getFallbackSampleFrequency());
+            }
+            runSession(processor, seed, gapAt, writer::append);
+        }
+        return file;
+    }
+
+    private static File recordCsv(File dir, String name, int seed, int gapAt) throws IOException {
+        File file = new File(dir, name);
+        FusionProcessor processor = deviceProcessor();
+        try (CsvRecorder recorder = new CsvRecorder(new FileOutputStream(file), CsvRecorder.DEFAULT_BUFFER_SIZE,
+                processor.getFallbackSampleFrequency())) {
+            runSession(processor, seed, gapAt, record -> {
+                // 書き込みスレッドが追いつくまで待つ（このテストでは破棄させない）
+                while (!recorder.record(record.timestamp, record.accel, record.gyro, record.quaternion,
+                        record.worldAccel, record.motion)) {
+                    Thread.yield();
+                }
+            });
+        }
+        return file;
+    }
+
+    // 記録と出力を 1 レコードずつ比べ、すべての列が tolerance 以内なら true
+    private static boolean sameOutputs(File recorded, File replayed, float tolerance) throws IOException {
+        try (SessionFileReader expected = new SessionFileReader(recorded);
+             SessionFileReader actual = new SessionFileReader(replayed)) {
+            assertEquals(expected.getRecordCount(), actual.getRecordCount());
+            SessionFileReader.Cursor e = expected.cursor(0);
+            SessionFileReader.Cursor a = actual.cursor(0);
+            SessionRecord er = new SessionRecord();
+            SessionRecord ar = new SessionRecord();
+            while (e.next()) {
+                a.next();
+                e.read(er);
+                a.read(ar);
+                assertEquals(er.timestamp, ar.timestamp);
+                if (!close(er.quaternion, ar.quaternion, tolerance) || !close(er.worldAccel, ar.worldAccel, tolerance)
+                        || !close(er.motion, ar.motion, tolerance)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean close(float[] expected, float[] actual, float tolerance) {
+        for (int i = 0; i < expected.length; i++) {
+            if (!(Math.abs(expected[i] - actual[i]) <= tolerance * Math.max(1f, Math.abs(expected[i])))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void replayAll_reproducesRecordedOutputs() throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("replay").toFile();
+        File outDir = new File(dir, "out");
+        outDir.mkdirs();
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            inputs.add(recordSession(dir, "session" + i + ".mgs", i, -1, true));
+        }
+
+        List<ReplayEngine.ReplayResult> results = new ReplayEngine().replayAll(inputs, 3, outDir);
+
+        assertEquals(3, results.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(SAMPLES, results.get(i).samples);
+            File output = new File(outDir, "session" + i + ".replay.mgs");
+            try (SessionFileReader expected = new SessionFileReader(inputs.get(i));
+                 SessionFileReader actual = new SessionFileReader(output)) {
+                SessionFileReader.Cursor e = expected.cursor(0);
+                SessionFileReader.Cursor a = actual.cursor(0);
+                SessionRecord er = new SessionRecord();
+                SessionRecord ar = new SessionRecord();
+                while (e.next()) {
+                    a.next();
+                    e.read(er);
+                    a.read(ar);
+                    assertEquals(er.timestamp, ar.timestamp);
+                    assertArrayEquals(er.quaternion, ar.quaternion, 0f);
+                    assertArrayEquals(er.worldAccel, ar.worldAccel, 0f);
+                    assertArrayEquals(er.motion, ar.motion, 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void replay_csvFromRecorderReproducesRecordedOutputs() throws IOException {
+        File dir = Files.createTempDirectory("replay").toFile();
+        File csv = recordCsv(dir, "session.csv", 4, SAMPLES / 2);
+        File output = new File(dir, "session.replay.mgs");
+
+        ReplayEngine.ReplayResult result = new ReplayEngine().replay(csv, output);
+
+        assertEquals(SAMPLES, result.samples);
+        // 記録側の出力は CSV の小数 6 桁に丸められている
+        File recorded = new File(dir, "recorded.mgs");
+        CsvSessionConverter.convert(csv, recorded);
+        assertTrue(sameOutputs(recorded, output, 1e-6f));
+        try (SessionFileReader reader = new SessionFileReader(output)) {
+            assertEquals(DEVICE_RATE_HZ, reader.getSampleFrequency(), 0f);
+        }
+    }
+
+    @Test
+    public void replay_timestampGapUsesRecordedRate() throws IOException {
+        File dir = Files.createTempDirectory("replay").toFile();
+        File session = recordSession(dir, "gap.mgs", 5, SAMPLES / 2, true);
+        File output = new File(dir, "gap.replay.mgs");
+
+        new ReplayEngine().replay(session, output);
+        assertTrue(sameOutputs(session, output, 0f));
+
+        // 登録レートを記録していないと途切れた直後の dt が既定の 50Hz になり、以降がずれる
+        File unrated = recordSession(dir, "unrated.mgs", 5, SAMPLES / 2, false);
+        File unratedOutput = new File(dir, "unrated.replay.mgs");
+        new ReplayEngine().replay(unrated, unratedOutput);
+        assertFalse(sameOutputs(unrated, unratedOutput, 0f));
+
+        // 移動検出・距離積分の間隔が違っても再現できない
+        File perSample = new File(dir, "gap.per-sample.mgs");
+        new ReplayEngine(() -> {
+            FusionProcessor processor = new FusionProcessor();
+            processor.getDetector().setDebugLogging(false);
+            return processor;
+        }).replay(session, perSample);
+        assertFalse(sameOutputs(session, perSample, 0f));
+    }
+}
@@ -21,3 +21,8 @@ dependencyResolutionManagement {
 
 rootProject.name = "Madgwick_Filter"
 include(":app")
+include(":fusion-core")
+include(":benchmark")
+include(":replay")
+include(":fusion-simd")
+include(":ingest-server")